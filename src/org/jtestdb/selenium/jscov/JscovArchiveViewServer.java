@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+/**
+ * The view server of an archived report (see
+ * <code>JscovReportArchive</code>): serves the JSCover viewer files, the
+ * code-coverage and the original JS-files of the report from its archive,
+ * without unpacking it, on a port of 'localhost'&#46; It has the paths of
+ * the JSCover simple-server, so the viewer (and its stop button, '/stop')
+ * is used as with a report directory.
+ * <pre>
+ *   http://localhost:port/reports/jscov20260101_000000_000/jscoverage.html
+ * </pre>
+ * It is run as a process of its own (see <code>main</code>, launched by
+ * JscovTestUtil <code>viewReportDo</code> as the simple-server is), so the
+ * viewer outlives the test JVM; the process ends when the viewer is
+ * stopped.
+ */
+final class JscovArchiveViewServer {
+
+    /**
+     * The content type of a file suffix, others are 'application/octet-stream'.
+     */
+    private final static Map<String, String> CONTENT_TYPE_MAP = new HashMap<>();
+
+    static {
+        CONTENT_TYPE_MAP.put("html", "text/html; charset=UTF-8");
+        CONTENT_TYPE_MAP.put("js", "application/javascript; charset=UTF-8");
+        CONTENT_TYPE_MAP.put("json", "application/json; charset=UTF-8");
+        CONTENT_TYPE_MAP.put("css", "text/css; charset=UTF-8");
+        CONTENT_TYPE_MAP.put("png", "image/png");
+        CONTENT_TYPE_MAP.put("gif", "image/gif");
+    }
+
+    /**
+     * The archive of the report, opened.
+     */
+    private final ZipFile zipFile;
+
+    /**
+     * The path of the report (e.g. '/reports/jscov20260101_000000_000/').
+     */
+    private final String reportUrlPath;
+
+    /**
+     * The files served other than from the archive, by name.
+     */
+    private final Map<String, byte[]> addedFileMap = new HashMap<>();
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer httpServer;
+
+    /**
+     * Create the view server of an archived report (see
+     * <code>start</code>).
+     *
+     * @param portNo the port number
+     * @param reportDir the report directory (archived)
+     * @param reportUrlPath the path of the report relative to the server root
+     * (e.g. 'reports/jscov20260101_000000_000')
+     *
+     * @exception RuntimeException if the archive cannot be opened or the
+     * port bound
+     */
+    JscovArchiveViewServer(int portNo, File reportDir, String reportUrlPath) {
+        File archiveFile = JscovReportArchive.archiveFileOf(reportDir);
+
+        this.reportUrlPath = "/" + reportUrlPath + "/";
+        try {
+            this.zipFile = new ZipFile(archiveFile);
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover report archive cannot be opened: %s\n%s",
+                    archiveFile.getPath(), ex.getMessage()));
+        }
+        try {
+            this.httpServer = HttpServer.create(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), portNo), 0);
+
+        } catch (IOException ex) {
+            closeZipFile();
+            throw new RuntimeException(String.format(
+                    "The archived report view server cannot listen on port %d\n%s",
+                    portNo, ex.getMessage()));
+        }
+        this.httpServer.createContext("/", this::handle);
+    }
+
+    /**
+     * Run the view server of an archived report, serving the viewer of
+     * JscovTestUtil ('jscovtestutil.html/.js') with the report, until it
+     * is stopped ('/stop').
+     *
+     * @param args the port number, the report directory (archived) and the
+     * path of the report relative to the server root
+     *
+     * @exception RuntimeException if the archive cannot be read (or has no
+     * 'jscoverage.html') or the port bound
+     */
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("usage: JscovArchiveViewServer portNo reportDir reportUrlPath");
+            System.exit(2);
+        }
+        File reportDir = new File(args[1]);
+        JscovArchiveViewServer viewServer
+                = new JscovArchiveViewServer(Integer.parseInt(args[0]), reportDir, args[2]);
+        try {
+            byte[] htmlContent = viewServer.readEntry("jscoverage.html");
+
+            if (htmlContent == null) {
+                throw new RuntimeException(String.format(
+                        "The archived report has no jscoverage.html: %s", reportDir.getPath()));
+            }
+            viewServer.addFile("jscovtestutil.html",
+                    JscovTestUtil.modifyReportHtml(new String(htmlContent, StandardCharsets.UTF_8))
+                            .getBytes(StandardCharsets.UTF_8));
+            viewServer.addFile("jscovtestutil.js",
+                    JscovTestUtil.JSCOV_TEST_UTIL_REPORT_SCRIPT.getBytes(StandardCharsets.UTF_8));
+
+        } catch (RuntimeException ex) {
+            viewServer.closeZipFile();
+            throw ex;
+        }
+        // the (non-daemon) dispatcher thread keeps the process until stopped
+        viewServer.start();
+    }
+
+    /**
+     * Read a file of the report from the archive.
+     *
+     * @param entryName the file within the report
+     *
+     * @return the content, null if the archive has no such file
+     *
+     * @exception RuntimeException if the archive cannot be read
+     */
+    byte[] readEntry(String entryName) {
+        ByteArrayOutputStream entryOut = new ByteArrayOutputStream();
+        try {
+            return JscovReportArchive.writeEntry(this.zipFile, entryName, entryOut)
+                    ? entryOut.toByteArray() : null;
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover report archive cannot be read: %s\n%s",
+                    this.zipFile.getName(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Serve a file of the report other than from the archive (e.g. the
+     * viewer modified by JscovTestUtil), before the start.
+     *
+     * @param entryName the file within the report
+     * @param content the content
+     */
+    void addFile(String entryName, byte[] content) {
+        this.addedFileMap.put(entryName, content);
+    }
+
+    /**
+     * Start the server, on its dispatcher thread.
+     */
+    void start() {
+        this.httpServer.start();
+    }
+
+    /**
+     * Stop the server and close the archive.
+     */
+    void stop() {
+        this.httpServer.stop(0);
+        closeZipFile();
+    }
+
+    /**
+     * Handle a request: '/stop' stops the server, a file of the report is
+     * served, else not found.
+     *
+     * @param exchange the request and response
+     *
+     * @throws IOException if the response cannot be written
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String urlPath = URLDecoder.decode(exchange.getRequestURI().getRawPath(), "UTF-8");
+
+        if (urlPath.equals("/stop")) {
+            respond(exchange, 200, "text/plain",
+                    "JscovTestUtil archived report view server stopped".getBytes(StandardCharsets.UTF_8));
+
+            // not stopped on its own dispatch thread, the stop waits on it
+            new Thread(this::stop, "JscovTestUtil-archive-view-stop").start();
+            return;
+        }
+        byte[] content = null;
+        String entryName = "";
+
+        if (urlPath.startsWith(this.reportUrlPath)) {
+            entryName = urlPath.substring(this.reportUrlPath.length());
+            content = this.addedFileMap.get(entryName);
+
+            if (content == null && !entryName.isEmpty()) {
+                try {
+                    content = readEntry(entryName);
+
+                } catch (RuntimeException ex) {
+                    respond(exchange, 500, "text/plain", ex.getMessage().getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+        }
+        if (content == null) {
+            respond(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String suffix = entryName.substring(entryName.lastIndexOf('.') + 1);
+
+        respond(exchange, 200,
+                CONTENT_TYPE_MAP.getOrDefault(suffix, "application/octet-stream"), content);
+    }
+
+    /**
+     * Write a response.
+     *
+     * @param exchange the request and response
+     * @param status the HTTP status
+     * @param contentType the content type
+     * @param content the content
+     *
+     * @throws IOException if the response cannot be written
+     */
+    private static void respond(HttpExchange exchange, int status, String contentType,
+            byte[] content) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, content.length == 0 ? -1 : content.length);
+
+        try (OutputStream responseOut = exchange.getResponseBody()) {
+            responseOut.write(content);
+        }
+    }
+
+    /**
+     * Close the archive, a failure is ignored (it is only read).
+     */
+    private void closeZipFile() {
+        try {
+            this.zipFile.close();
+
+        } catch (IOException ex) {
+            // read only, nothing is lost
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An application class-data-sharing (AppCDS) archive of the JSCover-all.jar
+ * classes for the JSCover processes launched by JscovTestUtil&#46; The
+ * archive is created by the first proxy-server launch (the classes it loads
+ * are dumped at its exit) and is mapped by the later launches, which then
+ * start without loading and verifying those classes again.
+ * <p>
+ * The archive 'JSCover-all.jsa' is kept beside the jar and is created afresh
+ * if the jar is newer. It is first written to a temporary file and moved in
+ * place once the dumping process has ended, so a process does not map a
+ * partly written archive. '-Xshare:auto' is given so a rejected archive
+ * only costs the sharing, not the launch.
+ * <p>
+ * Dynamic archives need the 'java' of the launched processes to be Java 13
+ * or later; for earlier versions no options are given.
+ */
+class JscovCdsArchive {
+
+    /**
+     * The first Java version supporting dynamic CDS archives
+     * (-XX:ArchiveClassesAtExit).
+     */
+    private final static int DYNAMIC_ARCHIVE_JAVA_VERSION = 13;
+
+    /**
+     * The version of the 'java' command launched, null until determined.
+     */
+    private static Integer launchJavaVersion = null;
+
+    /**
+     * The archive file.
+     */
+    private final File archiveFile;
+
+    /**
+     * The jar file archived.
+     */
+    private final File jarFile;
+
+    /**
+     * The temporary file the launched process dumps to, null if the launch
+     * is not creating the archive.
+     */
+    private File dumpFile = null;
+
+    /**
+     * Create the archive object of a jar for a launch.
+     *
+     * @param jarFile the JSCover-all.jar file
+     */
+    JscovCdsArchive(File jarFile) {
+        this.jarFile = jarFile.getAbsoluteFile();
+
+        String jarName = this.jarFile.getName();
+        this.archiveFile = new File(this.jarFile.getParentFile(),
+                jarName.replaceFirst("\\.jar$", "") + ".jsa");
+    }
+
+    /**
+     * Get the JVM options for a launch: map the archive if it is current,
+     * or (if allowed) dump the archive at the exit of the launched process.
+     *
+     * @param mayCreate true if this launch may create the archive (a
+     * proxy-server, which loads the instrumenter classes)
+     * @param launchId a name unique to the launch for the temporary file
+     * (e.g. port number)
+     *
+     * @return list of JVM options, empty if the archive is not usable
+     */
+    List<String> jvmOptions(boolean mayCreate, String launchId) {
+        List<String> cdsOptions = new ArrayList<>();
+
+        if (getLaunchJavaVersion() < DYNAMIC_ARCHIVE_JAVA_VERSION) {
+            return cdsOptions;
+        }
+        if (isArchiveCurrent()) {
+            cdsOptions.add("-XX:SharedArchiveFile=" + this.archiveFile.getPath());
+            cdsOptions.add("-Xshare:auto");
+
+        } else if (mayCreate) {
+            this.dumpFile = new File(this.archiveFile.getPath() + "." + launchId + ".tmp");
+            cdsOptions.add("-XX:ArchiveClassesAtExit=" + this.dumpFile.getPath());
+        }
+        return cdsOptions;
+    }
+
+    /**
+     * The launched process has ended, move an archive it dumped into place
+     * (if another launch has not done so already).
+     */
+    void launchEnded() {
+        if (this.dumpFile == null) {
+            return;
+        }
+        File dumpedFile = this.dumpFile;
+        this.dumpFile = null;
+
+        if (!dumpedFile.isFile() || dumpedFile.length() == 0 || isArchiveCurrent()) {
+            dumpedFile.delete();
+            return;
+        }
+        try {
+            try {
+                Files.move(dumpedFile.toPath(), this.archiveFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(dumpedFile.toPath(), this.archiveFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            dumpedFile.delete();
+            System.err.printf("\nINFO: JscovTestUtil: CDS archive not stored: %s\n",
+                    ex.getMessage());
+        }
+    }
+
+    /**
+     * Is there an archive created after the jar was last modified.
+     *
+     * @return true if the archive may be mapped
+     */
+    private boolean isArchiveCurrent() {
+        return this.archiveFile.isFile()
+                && this.archiveFile.lastModified() >= this.jarFile.lastModified();
+    }
+
+    /**
+     * Get the major version of the 'java' command the JSCover processes are
+     * launched with (determined once, 'java -version').
+     *
+     * @return the major version (e.g. 8, 17), 0 if not determined
+     */
+    private static synchronized int getLaunchJavaVersion() {
+        if (launchJavaVersion != null) {
+            return launchJavaVersion;
+        }
+        launchJavaVersion = 0;
+
+        ProcessBuilder versionProcess = new ProcessBuilder("java", "-version");
+        versionProcess.redirectErrorStream(true);
+        try {
+            Process process = versionProcess.start();
+
+            String versionLine;
+            try (BufferedReader outputReader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream()))) {
+                versionLine = outputReader.readLine();
+
+                // drain the rest so the process is not held on output
+                while (outputReader.readLine() != null) {
+                }
+            }
+            process.waitFor(10, TimeUnit.SECONDS);
+
+            // 'java version "1.8.0_191"' or 'openjdk version "17.0.2" ...'
+            Matcher versionMatcher = Pattern.compile("version \"(\\d+)(?:\\.(\\d+))?")
+                    .matcher(versionLine == null ? "" : versionLine);
+
+            if (versionMatcher.find()) {
+                int majorVersion = Integer.parseInt(versionMatcher.group(1));
+
+                if (majorVersion == 1 && versionMatcher.group(2) != null) {
+                    majorVersion = Integer.parseInt(versionMatcher.group(2));
+                }
+                launchJavaVersion = majorVersion;
+            }
+        } catch (IOException ex) {
+            // the proxy-server launch will report the 'java' problem
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (launchJavaVersion < DYNAMIC_ARCHIVE_JAVA_VERSION) {
+            System.err.printf("\nINFO: JscovTestUtil: CDS archive needs 'java' %d or later"
+                    + " for the JSCover processes, not used.\n",
+                    DYNAMIC_ARCHIVE_JAVA_VERSION);
+        }
+        return launchJavaVersion;
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
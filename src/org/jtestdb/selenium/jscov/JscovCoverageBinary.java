@@ -0,0 +1,1067 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * The compact binary form of a JSCover code-coverage report, the file
+ * 'jscoverage.jscb' of a report directory, and its lossless conversion to
+ * and from 'jscoverage.json'&#46; A retained report held in binary takes a
+ * fraction of the disk of its JSON (which is mostly 'null' entries and
+ * counter digits) and is read several times faster.
+ * <p>
+ * The binary is a sequence of unsigned varints (7 bits a byte, low first),
+ * a signed value being zig-zag encoded:
+ * <pre>
+ *   file     := 'JSCB' version sourceLength sourceHash record* 0
+ *   record   := 1 uriLength uri(UTF-8) bodyLength body contentHash
+ *   body     := counters(lineData) counters(functionData) branches
+ *   counters := length [kind [codeBits] (hitBits | deltas)]
+ *   branches := lineCount (lineDelta conditionCount condition*)*
+ * </pre>
+ * A counters array has a bitset of the entries that are code (left out
+ * when all are), then either a bitset of the code entries executed (when
+ * every count is 0 or 1, e.g. function data) or the signed difference of
+ * each code entry from the previous (adjacent lines tend to share a
+ * count)&#46; A branch condition is its position (NOT_CODE for a JSCover
+ * 'null' condition, which has nothing more) then its node-length, eval-false
+ * and eval-true counts.
+ * <p>
+ * The content hash is the CRC32 of the record body (4 bytes, high first),
+ * checked on reading; equal coverage of a JS-file has an equal hash&#46;
+ * The source length and hash are the length and CRC32 of the bytes of the
+ * 'jscoverage.json' the binary was converted from (0 if none), so a binary
+ * beside a JSON file that has since been re-written (e.g. by a JSCover
+ * store) is known to be out of date, however soon after (a last-modified
+ * time may be of a second) and of whatever length&#46; A binary of
+ * version 1 (a last-modified time in place of the hash) is read, but is
+ * not current beside a JSON file.
+ */
+public final class JscovCoverageBinary {
+
+    /**
+     * The name of the binary coverage file of a report directory.
+     */
+    public final static String REPORT_BINARY_FILE_NAME = "jscoverage.jscb";
+
+    /**
+     * The bytes starting a binary coverage file.
+     */
+    private final static byte[] MAGIC = {'J', 'S', 'C', 'B'};
+
+    /**
+     * The version of the binary format.
+     */
+    private final static int FORMAT_VERSION = 2;
+
+    /**
+     * The version of the binary format of a last-modified time in place of
+     * the source hash (read, never current beside a JSON file).
+     */
+    private final static int FORMAT_VERSION_MODIFIED = 1;
+
+    /**
+     * The record tag ending the file.
+     */
+    private final static int RECORD_END = 0;
+
+    /**
+     * The record tag of a JS-file's coverage.
+     */
+    private final static int RECORD_FILE = 1;
+
+    /**
+     * Counters kind flag: the code entries are 0 or 1, held as a bitset.
+     */
+    private final static int COUNTERS_HIT_ONLY = 1;
+
+    /**
+     * Counters kind flag: all the entries are code, there is no code bitset.
+     */
+    private final static int COUNTERS_ALL_CODE = 2;
+
+    private JscovCoverageBinary() {
+    }
+
+    /**
+     * Write code-coverage in binary.
+     *
+     * @param coverageData the code-coverage
+     * @param out the stream to write (not closed)
+     *
+     * @throws IOException if the write fails
+     */
+    public static void write(JscovCoverageData coverageData, OutputStream out) throws IOException {
+        BinaryOutput binaryOutput = new BinaryOutput(out, 0, 0);
+
+        for (JscovFileCoverage fileCoverage : coverageData.getFileCoverages()) {
+            binaryOutput.writeFileCoverage(fileCoverage);
+        }
+        binaryOutput.end();
+    }
+
+    /**
+     * Read binary code-coverage.
+     *
+     * @param in the stream to read (not closed)
+     *
+     * @return the code-coverage
+     *
+     * @throws IOException if the read fails
+     * @exception RuntimeException if the stream is not binary code-coverage
+     */
+    public static JscovCoverageData read(InputStream in) throws IOException {
+        return read(in, "stream");
+    }
+
+    /**
+     * Read a binary code-coverage file.
+     *
+     * @param binaryFile the file
+     *
+     * @return the code-coverage
+     *
+     * @exception RuntimeException if the file cannot be read or is not binary
+     * code-coverage
+     */
+    public static JscovCoverageData readFile(File binaryFile) {
+        try (InputStream in = Files.newInputStream(binaryFile.toPath())) {
+            return read(in, binaryFile.getPath());
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover binary coverage cannot be read: %s\n%s",
+                    binaryFile.getPath(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Convert a 'jscoverage.json' file to binary, a JS-file at a time (the
+     * JSON is streamed by <code>JscovCoverageReader</code>)&#46; The binary
+     * is written aside and moved into place.
+     *
+     * @param jsonFile the JSON file
+     * @param binaryFile the binary file to write (replaced)
+     *
+     * @exception RuntimeException if a file cannot be read or written, or
+     * the JSON is not coverage JSON
+     */
+    public static void jsonToBinary(File jsonFile, File binaryFile) {
+        File tmpFile = new File(binaryFile.getPath() + ".tmp");
+
+        try {
+            long sourceLength = jsonFile.length();
+            long sourceHash = hashOf(jsonFile);
+
+            try (JscovCoverageReader reader = new JscovCoverageReader(jsonFile);
+                    OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+
+                BinaryOutput binaryOutput = new BinaryOutput(out, sourceLength, sourceHash);
+
+                while (reader.hasNext()) {
+                    binaryOutput.writeFileCoverage(reader.next());
+                }
+                binaryOutput.end();
+            }
+            // a JSON re-written while converted is not the source hashed
+            if (jsonFile.length() != sourceLength || hashOf(jsonFile) != sourceHash) {
+                throw new IOException("the JSON was re-written while converted");
+            }
+            Files.move(tmpFile.toPath(), binaryFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException | RuntimeException ex) {
+            tmpFile.delete();
+            throw new RuntimeException(String.format(
+                    "JSCover binary coverage cannot be written: %s\n%s",
+                    binaryFile.getPath(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Convert a binary code-coverage file to 'jscoverage.json' (in the form
+     * JSCover writes), a JS-file at a time&#46; The JSON is written aside and
+     * moved into place.
+     *
+     * @param binaryFile the binary file
+     * @param jsonFile the JSON file to write (replaced)
+     *
+     * @exception RuntimeException if a file cannot be read or written, or
+     * the binary is not binary code-coverage
+     */
+    public static void binaryToJson(File binaryFile, File jsonFile) {
+        File tmpFile = new File(jsonFile.getPath() + ".tmp");
+
+        try {
+            try (InputStream in = Files.newInputStream(binaryFile.toPath());
+                    Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+
+                BinaryInput binaryInput = new BinaryInput(in, binaryFile.getPath());
+                StringBuilder json = new StringBuilder();
+                String fileSeparator = "";
+
+                writer.write('{');
+                for (JscovFileCoverage fileCoverage = binaryInput.nextFileCoverage();
+                        fileCoverage != null;
+                        fileCoverage = binaryInput.nextFileCoverage()) {
+
+                    json.setLength(0);
+                    json.append(fileSeparator);
+                    fileSeparator = ",";
+                    JscovCoverageData.appendJSONString(json, fileCoverage.getUri());
+                    json.append(':');
+                    fileCoverage.appendJSON(json);
+                    writer.append(json);
+                }
+                writer.write('}');
+            }
+            Files.move(tmpFile.toPath(), jsonFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException | RuntimeException ex) {
+            tmpFile.delete();
+            throw new RuntimeException(String.format(
+                    "JSCover report cannot be written: %s\n%s",
+                    jsonFile.getPath(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Is the binary of a report directory its current code-coverage, it
+     * exists and the 'jscoverage.json' is absent or is the one it was
+     * converted from (of the same length and hash, the JSON is read).
+     *
+     * @param reportDir the report directory
+     *
+     * @return true if the binary may be read for the report
+     */
+    static boolean isReportBinaryCurrent(File reportDir) {
+        File binaryFile = new File(reportDir, REPORT_BINARY_FILE_NAME);
+
+        if (!binaryFile.isFile()) {
+            return false;
+        }
+        File jsonFile = new File(reportDir, JscovCoverageData.REPORT_JSON_FILE_NAME);
+
+        if (!jsonFile.isFile()) {
+            return true;
+        }
+        try (InputStream in = Files.newInputStream(binaryFile.toPath())) {
+            BinaryInput binaryInput = new BinaryInput(in, binaryFile.getPath());
+
+            return binaryInput.version == FORMAT_VERSION
+                    && binaryInput.sourceLength == jsonFile.length()
+                    && binaryInput.sourceHash == hashOf(jsonFile);
+
+        } catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Write the binary of a report directory's 'jscoverage.json' beside it,
+     * unless it is current.
+     *
+     * @param reportDir the report directory
+     *
+     * @exception RuntimeException if the binary cannot be written
+     */
+    static void storeReportBinary(File reportDir) {
+        File jsonFile = new File(reportDir, JscovCoverageData.REPORT_JSON_FILE_NAME);
+
+        if (jsonFile.isFile() && !isReportBinaryCurrent(reportDir)) {
+            jsonToBinary(jsonFile, new File(reportDir, REPORT_BINARY_FILE_NAME));
+        }
+    }
+
+    /**
+     * Compact a report directory, its 'jscoverage.json' is replaced by the
+     * binary.
+     *
+     * @param reportDir the report directory
+     *
+     * @exception RuntimeException if the binary cannot be written
+     */
+    static void compactReport(File reportDir) {
+        File jsonFile = new File(reportDir, JscovCoverageData.REPORT_JSON_FILE_NAME);
+
+        if (jsonFile.isFile()) {
+            storeReportBinary(reportDir);
+            jsonFile.delete();
+        }
+    }
+
+    /**
+     * Restore the 'jscoverage.json' of a compacted report directory from
+     * its binary, for JSCover (a store, the viewer) to read&#46; A directory
+     * with a 'jscoverage.json' or no binary is left as it is.
+     *
+     * @param reportDir the report directory
+     *
+     * @exception RuntimeException if the JSON cannot be written
+     */
+    static void restoreReportJson(File reportDir) {
+        File jsonFile = new File(reportDir, JscovCoverageData.REPORT_JSON_FILE_NAME);
+        File binaryFile = new File(reportDir, REPORT_BINARY_FILE_NAME);
+
+        if (!jsonFile.isFile() && binaryFile.isFile()) {
+            binaryToJson(binaryFile, jsonFile);
+        }
+    }
+
+    /**
+     * Get the CRC32 of the bytes of a file.
+     *
+     * @param file the file
+     *
+     * @return the hash
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private static long hashOf(File file) throws IOException {
+        CRC32 fileHash = new CRC32();
+        byte[] buffer = new byte[65536];
+
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int readCount;
+            while ((readCount = in.read(buffer)) > 0) {
+                fileHash.update(buffer, 0, readCount);
+            }
+        }
+        return fileHash.getValue();
+    }
+
+    /**
+     * Read binary code-coverage.
+     *
+     * @param in the stream to read
+     * @param sourceName the name of the stream, for an error message
+     *
+     * @return the code-coverage
+     *
+     * @throws IOException if the read fails
+     */
+    private static JscovCoverageData read(InputStream in, String sourceName) throws IOException {
+        BinaryInput binaryInput = new BinaryInput(in, sourceName);
+        JscovCoverageData coverageData = new JscovCoverageData();
+
+        for (JscovFileCoverage fileCoverage = binaryInput.nextFileCoverage();
+                fileCoverage != null;
+                fileCoverage = binaryInput.nextFileCoverage()) {
+            coverageData.add(fileCoverage);
+        }
+        return coverageData;
+    }
+
+    /**
+     * The writer of binary code-coverage, a JS-file at a time&#46; Each
+     * record is encoded into a buffer (re-used), so its length and hash
+     * precede and follow it.
+     */
+    private static final class BinaryOutput {
+
+        /**
+         * The stream written.
+         */
+        private final OutputStream out;
+
+        /**
+         * The encode buffer.
+         */
+        private byte[] buffer = new byte[8192];
+
+        /**
+         * The number of bytes in the buffer.
+         */
+        private int bufferLength = 0;
+
+        /**
+         * The content hash.
+         */
+        private final CRC32 contentHash = new CRC32();
+
+        /**
+         * Start the binary, writing its header.
+         *
+         * @param out the stream to write
+         * @param sourceLength the length of the JSON source, 0 if none
+         * @param sourceHash the CRC32 of the JSON source, 0 if none
+         *
+         * @throws IOException if the write fails
+         */
+        BinaryOutput(OutputStream out, long sourceLength, long sourceHash) throws IOException {
+            this.out = new BufferedOutputStream(out, 65536);
+            this.out.write(MAGIC);
+
+            putVarint(FORMAT_VERSION);
+            putVarint(sourceLength);
+            putVarint(sourceHash);
+            flushBuffer();
+        }
+
+        /**
+         * Write the coverage of a JS-file.
+         *
+         * @param fileCoverage the coverage
+         *
+         * @throws IOException if the write fails
+         */
+        void writeFileCoverage(JscovFileCoverage fileCoverage) throws IOException {
+            byte[] uriBytes = fileCoverage.getUri().getBytes(StandardCharsets.UTF_8);
+
+            putVarint(RECORD_FILE);
+            putVarint(uriBytes.length);
+            flushBuffer();
+            this.out.write(uriBytes);
+
+            putCounters(fileCoverage.getLineData());
+            putCounters(fileCoverage.getFunctionData());
+            putBranches(fileCoverage.getBranchData());
+
+            this.contentHash.reset();
+            this.contentHash.update(this.buffer, 0, this.bufferLength);
+            long hash = this.contentHash.getValue();
+
+            // the length precedes the body
+            long bodyLength = this.bufferLength;
+            while ((bodyLength & ~0x7fL) != 0) {
+                this.out.write((int) ((bodyLength & 0x7f) | 0x80));
+                bodyLength >>>= 7;
+            }
+            this.out.write((int) bodyLength);
+            flushBuffer();
+
+            this.out.write((int) (hash >>> 24));
+            this.out.write((int) (hash >>> 16));
+            this.out.write((int) (hash >>> 8));
+            this.out.write((int) hash);
+        }
+
+        /**
+         * End the binary (the stream is flushed, not closed).
+         *
+         * @throws IOException if the write fails
+         */
+        void end() throws IOException {
+            putVarint(RECORD_END);
+            flushBuffer();
+            this.out.flush();
+        }
+
+        /**
+         * Encode a counters array.
+         *
+         * @param counters the counters
+         */
+        private void putCounters(int[] counters) {
+            putVarint(counters.length);
+            if (counters.length == 0) {
+                return;
+            }
+            int codeCount = 0;
+            boolean isHitOnly = true;
+
+            for (int count : counters) {
+                if (count != JscovFileCoverage.NOT_CODE) {
+                    codeCount++;
+                    if (count != 0 && count != 1) {
+                        isHitOnly = false;
+                    }
+                }
+            }
+            boolean isAllCode = codeCount == counters.length;
+
+            putByte((isHitOnly ? COUNTERS_HIT_ONLY : 0) | (isAllCode ? COUNTERS_ALL_CODE : 0));
+
+            if (!isAllCode) {
+                putBits(counters, counters.length, true);
+            }
+            if (isHitOnly) {
+                putBits(counters, codeCount, false);
+            } else {
+                long previous = 0;
+                for (int count : counters) {
+                    if (count != JscovFileCoverage.NOT_CODE) {
+                        putSigned(count - previous);
+                        previous = count;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Encode a bitset of the counters, low bit first.
+         *
+         * @param counters the counters
+         * @param bitCount the number of bits
+         * @param isCodeBits true for a bit per entry set if it is code, false
+         * for a bit per code entry set if it is executed
+         */
+        private void putBits(int[] counters, int bitCount, boolean isCodeBits) {
+            ensureBuffer((bitCount + 7) / 8);
+            int bitNo = 0;
+            int bits = 0;
+
+            for (int count : counters) {
+                if (!isCodeBits && count == JscovFileCoverage.NOT_CODE) {
+                    continue;
+                }
+                if (isCodeBits ? count != JscovFileCoverage.NOT_CODE : count != 0) {
+                    bits |= 1 << (bitNo & 7);
+                }
+                bitNo++;
+                if ((bitNo & 7) == 0) {
+                    this.buffer[this.bufferLength++] = (byte) bits;
+                    bits = 0;
+                }
+            }
+            if ((bitNo & 7) != 0) {
+                this.buffer[this.bufferLength++] = (byte) bits;
+            }
+        }
+
+        /**
+         * Encode the branch data.
+         *
+         * @param branchData the packed conditions by line
+         */
+        private void putBranches(SortedMap<Integer, int[]> branchData) {
+            putVarint(branchData.size());
+            long previousLineNo = 0;
+
+            for (Map.Entry<Integer, int[]> branchEntry : branchData.entrySet()) {
+                int[] conditions = branchEntry.getValue();
+
+                putSigned(branchEntry.getKey() - previousLineNo);
+                previousLineNo = branchEntry.getKey();
+                putVarint(conditions.length / JscovFileCoverage.BRANCH_COND_SIZE);
+
+                for (int i = 0; i < conditions.length; i += JscovFileCoverage.BRANCH_COND_SIZE) {
+                    putSigned(conditions[i + JscovFileCoverage.BRANCH_POSITION]);
+
+                    if (conditions[i + JscovFileCoverage.BRANCH_POSITION] != JscovFileCoverage.NOT_CODE) {
+                        putSigned(conditions[i + JscovFileCoverage.BRANCH_NODE_LENGTH]);
+                        putSigned(conditions[i + JscovFileCoverage.BRANCH_EVAL_FALSE]);
+                        putSigned(conditions[i + JscovFileCoverage.BRANCH_EVAL_TRUE]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Encode a signed value (zig-zag).
+         *
+         * @param value the value
+         */
+        private void putSigned(long value) {
+            putVarint((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Encode an unsigned varint.
+         *
+         * @param value the value
+         */
+        private void putVarint(long value) {
+            ensureBuffer(10);
+            while ((value & ~0x7fL) != 0) {
+                this.buffer[this.bufferLength++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            this.buffer[this.bufferLength++] = (byte) value;
+        }
+
+        /**
+         * Encode a byte.
+         *
+         * @param value the byte
+         */
+        private void putByte(int value) {
+            ensureBuffer(1);
+            this.buffer[this.bufferLength++] = (byte) value;
+        }
+
+        /**
+         * Make room in the buffer.
+         *
+         * @param byteCount the number of bytes to be put
+         */
+        private void ensureBuffer(int byteCount) {
+            if (this.bufferLength + byteCount > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer,
+                        Math.max(this.buffer.length * 2, this.bufferLength + byteCount));
+            }
+        }
+
+        /**
+         * Write the buffer to the stream.
+         *
+         * @throws IOException if the write fails
+         */
+        private void flushBuffer() throws IOException {
+            this.out.write(this.buffer, 0, this.bufferLength);
+            this.bufferLength = 0;
+        }
+    }
+
+    /**
+     * The reader of binary code-coverage, a JS-file at a time&#46; A
+     * record's body is read whole into a buffer (re-used) and its hash
+     * checked before it is decoded.
+     */
+    private static final class BinaryInput {
+
+        /**
+         * The stream read.
+         */
+        private final InputStream in;
+
+        /**
+         * The name of the stream, for an error message.
+         */
+        private final String sourceName;
+
+        /**
+         * The format version of the binary.
+         */
+        final long version;
+
+        /**
+         * The length of the JSON source, 0 if none.
+         */
+        final long sourceLength;
+
+        /**
+         * The CRC32 of the JSON source, 0 if none (the last-modified time of
+         * a binary of version 1).
+         */
+        final long sourceHash;
+
+        /**
+         * The record body buffer.
+         */
+        private byte[] body = new byte[8192];
+
+        /**
+         * The number of bytes of the body.
+         */
+        private int bodyLength = 0;
+
+        /**
+         * The decode position in the body.
+         */
+        private int bodyPos = 0;
+
+        /**
+         * The content hash.
+         */
+        private final CRC32 contentHash = new CRC32();
+
+        /**
+         * Start reading the binary, its header is read.
+         *
+         * @param in the stream to read
+         * @param sourceName the name of the stream, for an error message
+         *
+         * @throws IOException if the read fails
+         */
+        BinaryInput(InputStream in, String sourceName) throws IOException {
+            this.in = new BufferedInputStream(in, 65536);
+            this.sourceName = sourceName;
+
+            for (byte magicByte : MAGIC) {
+                if (readStreamByte() != magicByte) {
+                    throw notBinaryCoverage("is not binary code-coverage");
+                }
+            }
+            this.version = readStreamVarint();
+
+            if (this.version != FORMAT_VERSION && this.version != FORMAT_VERSION_MODIFIED) {
+                throw notBinaryCoverage(String.format("has unknown format version %d", this.version));
+            }
+            this.sourceLength = readStreamVarint();
+            this.sourceHash = readStreamVarint();
+        }
+
+        /**
+         * Read the coverage of the next JS-file.
+         *
+         * @return the coverage, null at the end
+         *
+         * @throws IOException if the read fails
+         */
+        JscovFileCoverage nextFileCoverage() throws IOException {
+            long recordTag = readStreamVarint();
+
+            if (recordTag == RECORD_END) {
+                return null;
+            }
+            if (recordTag != RECORD_FILE) {
+                throw notBinaryCoverage(String.format("has unknown record %d", recordTag));
+            }
+            String uri = new String(readStreamBytes(readStreamLength()), StandardCharsets.UTF_8);
+
+            this.bodyLength = readStreamLength();
+            if (this.body.length < this.bodyLength) {
+                this.body = new byte[this.bodyLength];
+            }
+            readStreamFully(this.body, this.bodyLength);
+            this.bodyPos = 0;
+
+            long hash = 0;
+            for (int i = 0; i < 4; i++) {
+                hash = (hash << 8) | readStreamByte();
+            }
+            this.contentHash.reset();
+            this.contentHash.update(this.body, 0, this.bodyLength);
+
+            if (hash != this.contentHash.getValue()) {
+                throw notBinaryCoverage(String.format("has a content hash mismatch for '%s'", uri));
+            }
+            int[] lineData = getCounters();
+            int[] functionData = getCounters();
+            SortedMap<Integer, int[]> branchData = getBranches();
+
+            if (this.bodyPos != this.bodyLength) {
+                throw notBinaryCoverage(String.format("has a bad record for '%s'", uri));
+            }
+            return new JscovFileCoverage(uri, lineData, functionData, branchData);
+        }
+
+        /**
+         * Decode a counters array.
+         *
+         * @return the counters
+         */
+        private int[] getCounters() {
+            int countersLength = getLength();
+
+            // a bitset holds 8 entries a byte, so no longer is valid
+            if (countersLength > 8L * (this.bodyLength - this.bodyPos)) {
+                throw notBinaryCoverage("has a bad counters length");
+            }
+            int[] counters = new int[countersLength];
+
+            if (countersLength == 0) {
+                return counters;
+            }
+            int kind = getByte();
+
+            if ((kind & COUNTERS_ALL_CODE) == 0) {
+                // mark not code entries, code entries are set below
+                for (int i = 0; i < countersLength; i++) {
+                    if (!getBit(i)) {
+                        counters[i] = JscovFileCoverage.NOT_CODE;
+                    }
+                }
+                this.bodyPos += (countersLength + 7) / 8;
+            }
+            if ((kind & COUNTERS_HIT_ONLY) != 0) {
+                int bitNo = 0;
+                for (int i = 0; i < countersLength; i++) {
+                    if (counters[i] != JscovFileCoverage.NOT_CODE) {
+                        counters[i] = getBit(bitNo++) ? 1 : 0;
+                    }
+                }
+                this.bodyPos += (bitNo + 7) / 8;
+            } else {
+                long previous = 0;
+                for (int i = 0; i < countersLength; i++) {
+                    if (counters[i] != JscovFileCoverage.NOT_CODE) {
+                        previous += getSigned();
+                        counters[i] = (int) previous;
+                    }
+                }
+            }
+            return counters;
+        }
+
+        /**
+         * Decode the branch data.
+         *
+         * @return the packed conditions by line
+         */
+        private SortedMap<Integer, int[]> getBranches() {
+            SortedMap<Integer, int[]> branchData = new TreeMap<>();
+            int lineCount = getLength();
+            long lineNo = 0;
+
+            for (int line = 0; line < lineCount; line++) {
+                lineNo += getSigned();
+                int conditionCount = getLength();
+
+                if (conditionCount > this.bodyLength - this.bodyPos) {
+                    throw notBinaryCoverage("has a bad branch condition count");
+                }
+                int[] conditions = new int[conditionCount * JscovFileCoverage.BRANCH_COND_SIZE];
+
+                for (int i = 0; i < conditions.length; i += JscovFileCoverage.BRANCH_COND_SIZE) {
+                    conditions[i + JscovFileCoverage.BRANCH_POSITION] = (int) getSigned();
+
+                    if (conditions[i + JscovFileCoverage.BRANCH_POSITION] != JscovFileCoverage.NOT_CODE) {
+                        conditions[i + JscovFileCoverage.BRANCH_NODE_LENGTH] = (int) getSigned();
+                        conditions[i + JscovFileCoverage.BRANCH_EVAL_FALSE] = (int) getSigned();
+                        conditions[i + JscovFileCoverage.BRANCH_EVAL_TRUE] = (int) getSigned();
+                    }
+                }
+                branchData.put((int) lineNo, conditions);
+            }
+            return branchData;
+        }
+
+        /**
+         * Get a bit of a bitset at the decode position.
+         *
+         * @param bitNo the bit number
+         *
+         * @return true if set
+         */
+        private boolean getBit(int bitNo) {
+            int bytePos = this.bodyPos + (bitNo >>> 3);
+
+            if (bytePos >= this.bodyLength) {
+                throw notBinaryCoverage("has a bad bitset");
+            }
+            return (this.body[bytePos] & (1 << (bitNo & 7))) != 0;
+        }
+
+        /**
+         * Decode a signed value (zig-zag).
+         *
+         * @return the value
+         */
+        private long getSigned() {
+            long value = getVarint();
+
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Decode a length.
+         *
+         * @return the length
+         */
+        private int getLength() {
+            long length = getVarint();
+
+            if (length > Integer.MAX_VALUE) {
+                throw notBinaryCoverage("has a bad length");
+            }
+            return (int) length;
+        }
+
+        /**
+         * Decode an unsigned varint.
+         *
+         * @return the value
+         */
+        private long getVarint() {
+            long value = 0;
+
+            for (int shift = 0; shift < 64; shift += 7) {
+                int varintByte = getByte();
+
+                value |= (long) (varintByte & 0x7f) << shift;
+                if ((varintByte & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw notBinaryCoverage("has a bad varint");
+        }
+
+        /**
+         * Decode a byte.
+         *
+         * @return the byte (0 to 255)
+         */
+        private int getByte() {
+            if (this.bodyPos >= this.bodyLength) {
+                throw notBinaryCoverage("has a record cut short");
+            }
+            return this.body[this.bodyPos++] & 0xff;
+        }
+
+        /**
+         * Read a length from the stream.
+         *
+         * @return the length
+         *
+         * @throws IOException if the read fails
+         */
+        private int readStreamLength() throws IOException {
+            long length = readStreamVarint();
+
+            if (length > Integer.MAX_VALUE - 8) {
+                throw notBinaryCoverage("has a bad length");
+            }
+            return (int) length;
+        }
+
+        /**
+         * Read an unsigned varint from the stream.
+         *
+         * @return the value
+         *
+         * @throws IOException if the read fails
+         */
+        private long readStreamVarint() throws IOException {
+            long value = 0;
+
+            for (int shift = 0; shift < 64; shift += 7) {
+                int varintByte = readStreamByte();
+
+                value |= (long) (varintByte & 0x7f) << shift;
+                if ((varintByte & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw notBinaryCoverage("has a bad varint");
+        }
+
+        /**
+         * Read bytes from the stream.
+         *
+         * @param byteCount the number of bytes
+         *
+         * @return the bytes
+         *
+         * @throws IOException if the read fails
+         */
+        private byte[] readStreamBytes(int byteCount) throws IOException {
+            byte[] bytes = new byte[byteCount];
+
+            readStreamFully(bytes, byteCount);
+            return bytes;
+        }
+
+        /**
+         * Read bytes from the stream into a buffer.
+         *
+         * @param bytes the buffer
+         * @param byteCount the number of bytes
+         *
+         * @throws IOException if the read fails or the stream ends
+         */
+        private void readStreamFully(byte[] bytes, int byteCount) throws IOException {
+            int readCount = 0;
+
+            while (readCount < byteCount) {
+                int n = this.in.read(bytes, readCount, byteCount - readCount);
+                if (n < 0) {
+                    throw new EOFException(String.format(
+                            "JSCover binary coverage is cut short: %s", this.sourceName));
+                }
+                readCount += n;
+            }
+        }
+
+        /**
+         * Read a byte from the stream.
+         *
+         * @return the byte (0 to 255)
+         *
+         * @throws IOException if the read fails or the stream ends
+         */
+        private int readStreamByte() throws IOException {
+            int streamByte = this.in.read();
+
+            if (streamByte < 0) {
+                throw new EOFException(String.format(
+                        "JSCover binary coverage is cut short: %s", this.sourceName));
+            }
+            return streamByte;
+        }
+
+        /**
+         * The exception of input that is not binary code-coverage.
+         *
+         * @param problem what is wrong
+         *
+         * @return the exception to throw
+         */
+        private RuntimeException notBinaryCoverage(String problem) {
+            return new RuntimeException(String.format(
+                    "JSCover binary coverage is not valid: %s\n  %s",
+                    this.sourceName, problem));
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
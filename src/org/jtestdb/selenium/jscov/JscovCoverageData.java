@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import org.openqa.selenium.json.JsonInput;
+import org.openqa.selenium.json.JsonType;
+
+/**
+ * The code-coverage of a set of JS-files (a JSCover report), keyed and
+ * ordered by URI as JSCover writes 'jscoverage.json'&#46; The coverage of
+ * each JS-file is a <code>JscovFileCoverage</code> of primitive counters.
+ * <p>
+ * A report is read from 'jscoverage.json' as a stream (no object tree of
+ * the document is built) and written in the form JSCover writes, so the
+ * JSCover viewer (jscoverage.html) shows it.
+ * <p>
+ * Not thread-safe.
+ */
+public class JscovCoverageData {
+
+    /**
+     * The name of the coverage file of a JSCover report directory.
+     */
+    public final static String REPORT_JSON_FILE_NAME = "jscoverage.json";
+
+    /**
+     * The coverage of each JS-file by URI.
+     */
+    private final SortedMap<String, JscovFileCoverage> fileCoverages = new TreeMap<>();
+
+    /**
+     * Create an empty code-coverage.
+     */
+    public JscovCoverageData() {
+    }
+
+    /**
+     * Add the coverage of a JS-file, merging it into any of the same URI
+     * already held (the object added is then not held).
+     *
+     * @param fileCoverage the coverage of the JS-file
+     */
+    public void add(JscovFileCoverage fileCoverage) {
+        JscovFileCoverage heldCoverage = this.fileCoverages.get(fileCoverage.getUri());
+
+        if (heldCoverage == null) {
+            this.fileCoverages.put(fileCoverage.getUri(), fileCoverage);
+        } else {
+            heldCoverage.merge(fileCoverage);
+        }
+    }
+
+    /**
+     * Merge another code-coverage into this object, the counters of JS-files
+     * of the same URI are summed.
+     *
+     * @param other the code-coverage to merge in (its file coverages may be
+     * held by this object, so it is not to be used afterwards)
+     */
+    public void merge(JscovCoverageData other) {
+        for (JscovFileCoverage otherCoverage : other.fileCoverages.values()) {
+            add(otherCoverage);
+        }
+    }
+
+    /**
+     * Get the coverage of a JS-file.
+     *
+     * @param uri the URI of the JS-file
+     *
+     * @return the coverage, null if there is none
+     */
+    public JscovFileCoverage getFileCoverage(String uri) {
+        return this.fileCoverages.get(uri);
+    }
+
+    /**
+     * Get the coverages of the JS-files in URI order.
+     *
+     * @return unmodifiable collection of the coverages
+     */
+    public Collection<JscovFileCoverage> getFileCoverages() {
+        return Collections.unmodifiableCollection(this.fileCoverages.values());
+    }
+
+    /**
+     * Get the number of JS-files.
+     *
+     * @return the count
+     */
+    public int size() {
+        return this.fileCoverages.size();
+    }
+
+    /**
+     * Is there no JS-file coverage.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return this.fileCoverages.isEmpty();
+    }
+
+    /**
+     * Get the JSON of the code-coverage in the form JSCover writes to
+     * 'jscoverage.json'.
+     *
+     * @return the JSON string
+     */
+    public String toJSON() {
+        StringBuilder json = new StringBuilder();
+        String fileSeparator = "";
+
+        json.append('{');
+        for (JscovFileCoverage fileCoverage : this.fileCoverages.values()) {
+            json.append(fileSeparator);
+            fileSeparator = ",";
+
+            appendJSONString(json, fileCoverage.getUri());
+            json.append(':');
+            fileCoverage.appendJSON(json);
+        }
+        json.append('}');
+
+        return json.toString();
+    }
+
+    /**
+     * Write the JSON of the code-coverage.
+     *
+     * @param writer the writer (not closed)
+     *
+     * @throws IOException if the write fails
+     */
+    public void writeJSON(Writer writer) throws IOException {
+        writer.write('{');
+
+        String fileSeparator = "";
+        StringBuilder json = new StringBuilder();
+
+        for (JscovFileCoverage fileCoverage : this.fileCoverages.values()) {
+            json.setLength(0);
+            json.append(fileSeparator);
+            fileSeparator = ",";
+
+            appendJSONString(json, fileCoverage.getUri());
+            json.append(':');
+            fileCoverage.appendJSON(json);
+
+            writer.append(json);
+        }
+        writer.write('}');
+    }
+
+    /**
+     * Write the code-coverage to the 'jscoverage.json' of a report
+     * directory (created if need be)&#46; The file is written aside and
+     * moved into place, so a reader never sees it part written.
+     *
+     * @param reportDir the report directory
+     *
+     * @exception RuntimeException if the file cannot be written
+     */
+    public void writeReport(File reportDir) {
+        File jsonFile = new File(reportDir, REPORT_JSON_FILE_NAME);
+        File tmpFile = new File(reportDir, REPORT_JSON_FILE_NAME + ".tmp");
+
+        try {
+            Files.createDirectories(reportDir.toPath());
+
+            try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+                writeJSON(writer);
+            }
+            Files.move(tmpFile.toPath(), jsonFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException ex) {
+            tmpFile.delete();
+            throw new RuntimeException(String.format(
+                    "JSCover report cannot be written: %s\n%s",
+                    jsonFile.getPath(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Read the code-coverage of a report directory's 'jscoverage.json' (by
+     * the memory-mapped <code>JscovCoverageReader</code>), or of its
+     * 'jscoverage.jscb' when that is current (see
+     * <code>JscovCoverageBinary</code>), or of its archive when archived (see
+     * <code>JscovReportArchive</code>).
+     *
+     * @param reportDir the report directory
+     *
+     * @return the code-coverage, empty if there is no 'jscoverage.json' or
+     * binary
+     *
+     * @exception RuntimeException if the file cannot be read or is not
+     * JSCover coverage JSON
+     */
+    public static JscovCoverageData readReport(File reportDir) {
+        if (JscovReportArchive.isArchived(reportDir)) {
+            return JscovReportArchive.readReport(reportDir);
+        }
+        if (JscovCoverageBinary.isReportBinaryCurrent(reportDir)) {
+            return JscovCoverageBinary.readFile(
+                    new File(reportDir, JscovCoverageBinary.REPORT_BINARY_FILE_NAME));
+        }
+        File jsonFile = new File(reportDir, REPORT_JSON_FILE_NAME);
+
+        if (!jsonFile.isFile()) {
+            return new JscovCoverageData();
+        }
+        return JscovCoverageReader.readAll(jsonFile);
+    }
+
+    /**
+     * Read code-coverage JSON (the form of 'jscoverage.json', or of
+     * jscoverage_serializeCoverageToJSON in the web-page).
+     *
+     * @param reader the reader of the JSON (not closed)
+     *
+     * @return the code-coverage
+     *
+     * @exception RuntimeException if the JSON is not JSCover coverage JSON
+     */
+    public static JscovCoverageData readJSON(Reader reader) {
+        JscovCoverageData coverageData = new JscovCoverageData();
+
+        try {
+            JsonInput jsonInput = new Json().newInput(reader);
+
+            jsonInput.beginObject();
+            while (jsonInput.hasNext()) {
+                String uri = jsonInput.nextName();
+
+                coverageData.add(readFileCoverage(jsonInput, uri));
+            }
+            jsonInput.endObject();
+
+        } catch (JsonException | IllegalStateException | ClassCastException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover coverage JSON is not valid: %s", ex.getMessage()));
+        }
+        return coverageData;
+    }
+
+    /**
+     * Read the coverage of one JS-file.
+     *
+     * @param jsonInput the JSON input at the file's object
+     * @param uri the URI of the JS-file
+     *
+     * @return the coverage
+     */
+    private static JscovFileCoverage readFileCoverage(JsonInput jsonInput, String uri) {
+        int[] lineData = new int[0];
+        int[] functionData = new int[0];
+        SortedMap<Integer, int[]> branchData = new TreeMap<>();
+
+        jsonInput.beginObject();
+        while (jsonInput.hasNext()) {
+            switch (jsonInput.nextName()) {
+                case "lineData":
+                    lineData = readCounters(jsonInput);
+                    break;
+                case "functionData":
+                    functionData = readCounters(jsonInput);
+                    break;
+                case "branchData":
+                    readBranchData(jsonInput, branchData);
+                    break;
+                default:
+                    jsonInput.skipValue();
+                    break;
+            }
+        }
+        jsonInput.endObject();
+
+        return new JscovFileCoverage(uri, lineData, functionData, branchData);
+    }
+
+    /**
+     * Read a counters array, 'null' is NOT_CODE.
+     *
+     * @param jsonInput the JSON input at the array
+     *
+     * @return the counters
+     */
+    private static int[] readCounters(JsonInput jsonInput) {
+        int[] counters = new int[64];
+        int countersSize = 0;
+
+        jsonInput.beginArray();
+        while (jsonInput.hasNext()) {
+            if (countersSize == counters.length) {
+                counters = Arrays.copyOf(counters, countersSize * 2);
+            }
+            counters[countersSize++] = readIntOrNotCode(jsonInput);
+        }
+        jsonInput.endArray();
+
+        return Arrays.copyOf(counters, countersSize);
+    }
+
+    /**
+     * Read the branch data object (line to conditions array).
+     *
+     * @param jsonInput the JSON input at the object
+     * @param branchData the branch data to fill
+     */
+    private static void readBranchData(JsonInput jsonInput, SortedMap<Integer, int[]> branchData) {
+        jsonInput.beginObject();
+        while (jsonInput.hasNext()) {
+            int lineNo = Integer.parseInt(jsonInput.nextName());
+            ArrayList<int[]> conditionList = new ArrayList<>();
+
+            jsonInput.beginArray();
+            while (jsonInput.hasNext()) {
+                int[] condition = {JscovFileCoverage.NOT_CODE, 0, 0, 0};
+
+                if (jsonInput.peek() == JsonType.NULL) {
+                    jsonInput.nextNull();
+                    conditionList.add(condition);
+                    continue;
+                }
+                jsonInput.beginObject();
+                while (jsonInput.hasNext()) {
+                    switch (jsonInput.nextName()) {
+                        case "position":
+                            condition[JscovFileCoverage.BRANCH_POSITION] = readIntOrNotCode(jsonInput);
+                            break;
+                        case "nodeLength":
+                            condition[JscovFileCoverage.BRANCH_NODE_LENGTH] = readIntOrNotCode(jsonInput);
+                            break;
+                        case "evalFalse":
+                            condition[JscovFileCoverage.BRANCH_EVAL_FALSE] = readIntOrNotCode(jsonInput);
+                            break;
+                        case "evalTrue":
+                            condition[JscovFileCoverage.BRANCH_EVAL_TRUE] = readIntOrNotCode(jsonInput);
+                            break;
+                        default:
+                            jsonInput.skipValue();
+                            break;
+                    }
+                }
+                jsonInput.endObject();
+                conditionList.add(condition);
+            }
+            jsonInput.endArray();
+
+            int[] conditions = new int[conditionList.size() * JscovFileCoverage.BRANCH_COND_SIZE];
+
+            for (int i = 0; i < conditionList.size(); i++) {
+                System.arraycopy(conditionList.get(i), 0,
+                        conditions, i * JscovFileCoverage.BRANCH_COND_SIZE,
+                        JscovFileCoverage.BRANCH_COND_SIZE);
+            }
+            branchData.put(lineNo, conditions);
+        }
+        jsonInput.endObject();
+    }
+
+    /**
+     * Read an integer, 'null' is NOT_CODE.
+     *
+     * @param jsonInput the JSON input at the value
+     *
+     * @return the integer
+     */
+    private static int readIntOrNotCode(JsonInput jsonInput) {
+        if (jsonInput.peek() == JsonType.NULL) {
+            jsonInput.nextNull();
+            return JscovFileCoverage.NOT_CODE;
+        }
+        return jsonInput.nextNumber().intValue();
+    }
+
+    /**
+     * Append a JSON string (quoted and escaped as jscoverage_quote).
+     *
+     * @param json the JSON being built
+     * @param value the string
+     */
+    static void appendJSONString(StringBuilder json, String value) {
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c >= 0x7f) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        json.append('"');
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
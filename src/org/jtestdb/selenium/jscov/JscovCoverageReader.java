@@ -0,0 +1,703 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A streaming reader of a JSCover 'jscoverage.json' (the coverage of each
+ * JS-file, in the file's order)&#46; The file is memory-mapped and decoded
+ * byte by byte straight into the primitive counters of a
+ * <code>JscovFileCoverage</code>, no string or object tree of the document
+ * is built, so a report of tens of megabytes is read with the memory of one
+ * JS-file's coverage at a time.
+ * <pre>
+ *   try (JscovCoverageReader reader = new JscovCoverageReader(jsonFile)) {
+ *       while (reader.hasNext()) {
+ *           JscovFileCoverage fileCoverage = reader.next();
+ *           ...
+ *       }
+ *   }
+ * </pre>
+ * The file is mapped in windows (64M bytes by default), so is not limited
+ * in size by a mapping&#46; Not thread-safe.
+ */
+public class JscovCoverageReader implements Iterator<JscovFileCoverage>, Closeable {
+
+    /**
+     * The size of a mapped window of the file by default.
+     */
+    public final static int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The file being read.
+     */
+    private final File jsonFile;
+
+    /**
+     * The size of a mapped window of the file.
+     */
+    private final int windowSize;
+
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel jsonChannel;
+
+    /**
+     * The size of the file.
+     */
+    private final long fileSize;
+
+    /**
+     * The mapped window of the file.
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * The file position of the window.
+     */
+    private long windowStart = 0;
+
+    /**
+     * The number of bytes of the window.
+     */
+    private int windowLength = 0;
+
+    /**
+     * The file position of the next byte to decode.
+     */
+    private long filePos = 0;
+
+    /**
+     * True once the end of the top level object is decoded.
+     */
+    private boolean isEnd = false;
+
+    /**
+     * The counters decode buffer (grown as needed, re-used for each array).
+     */
+    private int[] countersBuffer = new int[1024];
+
+    /**
+     * Open a 'jscoverage.json' file for reading.
+     *
+     * @param jsonFile the file
+     *
+     * @exception RuntimeException if the file cannot be opened or does not
+     * start as coverage JSON
+     */
+    public JscovCoverageReader(File jsonFile) {
+        this(jsonFile, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Open a 'jscoverage.json' file for reading, mapped in windows of a
+     * size.
+     *
+     * @param jsonFile the file
+     * @param windowSize the size (bytes) of a mapped window of the file
+     *
+     * @exception RuntimeException if windowSize is not positive, or the file
+     * cannot be opened or does not start as coverage JSON
+     */
+    public JscovCoverageReader(File jsonFile, int windowSize) {
+        if (windowSize <= 0) {
+            throw new RuntimeException("The coverage reader window size needs to be positive.");
+        }
+        this.jsonFile = jsonFile;
+        this.windowSize = windowSize;
+        try {
+            this.jsonChannel = FileChannel.open(jsonFile.toPath(), StandardOpenOption.READ);
+            this.fileSize = this.jsonChannel.size();
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover report cannot be read: %s\n%s",
+                    jsonFile.getPath(), ex.getMessage()));
+        }
+        try {
+            expect('{');
+            skipWhitespace();
+
+            if (peek() == '}') {
+                this.filePos++;
+                this.isEnd = true;
+            }
+        } catch (RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read the coverage of all the JS-files of a 'jscoverage.json' file.
+     *
+     * @param jsonFile the file
+     *
+     * @return the code-coverage
+     *
+     * @exception RuntimeException if the file cannot be read or is not
+     * coverage JSON
+     */
+    public static JscovCoverageData readAll(File jsonFile) {
+        JscovCoverageData coverageData = new JscovCoverageData();
+
+        try (JscovCoverageReader reader = new JscovCoverageReader(jsonFile)) {
+            while (reader.hasNext()) {
+                coverageData.add(reader.next());
+            }
+        }
+        return coverageData;
+    }
+
+    /**
+     * Is there another JS-file's coverage.
+     *
+     * @return true if there is
+     */
+    @Override
+    public boolean hasNext() {
+        return !this.isEnd;
+    }
+
+    /**
+     * Read the coverage of the next JS-file.
+     *
+     * @return the coverage
+     *
+     * @exception NoSuchElementException if there is none
+     * @exception RuntimeException if the file is not coverage JSON
+     */
+    @Override
+    public JscovFileCoverage next() {
+        if (this.isEnd) {
+            throw new NoSuchElementException();
+        }
+        skipWhitespace();
+        String uri = readString();
+
+        expect(':');
+        JscovFileCoverage fileCoverage = readFileCoverage(uri);
+
+        skipWhitespace();
+        byte separator = nextByte();
+
+        if (separator == '}') {
+            this.isEnd = true;
+        } else if (separator != ',') {
+            throw notCoverageJson("',' or '}'");
+        }
+        return fileCoverage;
+    }
+
+    /**
+     * Close the file.
+     */
+    @Override
+    public void close() {
+        this.window = null;
+        try {
+            this.jsonChannel.close();
+
+        } catch (IOException ex) {
+            // reading only, nothing is lost
+        }
+    }
+
+    /**
+     * Read the coverage object of a JS-file.
+     *
+     * @param uri the URI of the JS-file
+     *
+     * @return the coverage
+     */
+    private JscovFileCoverage readFileCoverage(String uri) {
+        int[] lineData = new int[0];
+        int[] functionData = new int[0];
+        SortedMap<Integer, int[]> branchData = new TreeMap<>();
+
+        expect('{');
+        skipWhitespace();
+
+        if (peek() == '}') {
+            this.filePos++;
+            return new JscovFileCoverage(uri, lineData, functionData, branchData);
+        }
+        do {
+            skipWhitespace();
+            String fieldName = readString();
+
+            expect(':');
+            switch (fieldName) {
+                case "lineData":
+                    lineData = readCounters();
+                    break;
+                case "functionData":
+                    functionData = readCounters();
+                    break;
+                case "branchData":
+                    readBranchData(branchData);
+                    break;
+                default:
+                    skipValue();
+                    break;
+            }
+            skipWhitespace();
+        } while (nextByte() == ',');
+
+        this.filePos--;
+        expect('}');
+
+        return new JscovFileCoverage(uri, lineData, functionData, branchData);
+    }
+
+    /**
+     * Read a counters array, 'null' is NOT_CODE.
+     *
+     * @return the counters
+     */
+    private int[] readCounters() {
+        expect('[');
+        skipWhitespace();
+
+        if (peek() == ']') {
+            this.filePos++;
+            return new int[0];
+        }
+        int countersSize = 0;
+
+        do {
+            if (countersSize == this.countersBuffer.length) {
+                this.countersBuffer = Arrays.copyOf(this.countersBuffer, countersSize * 2);
+            }
+            this.countersBuffer[countersSize++] = readIntOrNotCode();
+            skipWhitespace();
+        } while (nextByte() == ',');
+
+        this.filePos--;
+        expect(']');
+
+        return Arrays.copyOf(this.countersBuffer, countersSize);
+    }
+
+    /**
+     * Read the branch data object (line to conditions array).
+     *
+     * @param branchData the branch data to fill
+     */
+    private void readBranchData(SortedMap<Integer, int[]> branchData) {
+        expect('{');
+        skipWhitespace();
+
+        if (peek() == '}') {
+            this.filePos++;
+            return;
+        }
+        ArrayList<int[]> conditionList = new ArrayList<>();
+
+        do {
+            skipWhitespace();
+            int lineNo = Integer.parseInt(readString());
+
+            expect(':');
+            expect('[');
+            skipWhitespace();
+            conditionList.clear();
+
+            if (peek() == ']') {
+                this.filePos++;
+            } else {
+                do {
+                    conditionList.add(readCondition());
+                    skipWhitespace();
+                } while (nextByte() == ',');
+
+                this.filePos--;
+                expect(']');
+            }
+            int[] conditions = new int[conditionList.size() * JscovFileCoverage.BRANCH_COND_SIZE];
+
+            for (int i = 0; i < conditionList.size(); i++) {
+                System.arraycopy(conditionList.get(i), 0,
+                        conditions, i * JscovFileCoverage.BRANCH_COND_SIZE,
+                        JscovFileCoverage.BRANCH_COND_SIZE);
+            }
+            branchData.put(lineNo, conditions);
+            skipWhitespace();
+        } while (nextByte() == ',');
+
+        this.filePos--;
+        expect('}');
+    }
+
+    /**
+     * Read a branch condition, 'null' or an object.
+     *
+     * @return the condition (position NOT_CODE for 'null')
+     */
+    private int[] readCondition() {
+        int[] condition = {JscovFileCoverage.NOT_CODE, 0, 0, 0};
+
+        skipWhitespace();
+        if (peek() == 'n') {
+            expectLiteral("null");
+            return condition;
+        }
+        expect('{');
+        skipWhitespace();
+
+        if (peek() == '}') {
+            this.filePos++;
+            return condition;
+        }
+        do {
+            skipWhitespace();
+            String fieldName = readString();
+
+            expect(':');
+            switch (fieldName) {
+                case "position":
+                    condition[JscovFileCoverage.BRANCH_POSITION] = readIntOrNotCode();
+                    break;
+                case "nodeLength":
+                    condition[JscovFileCoverage.BRANCH_NODE_LENGTH] = readIntOrNotCode();
+                    break;
+                case "evalFalse":
+                    condition[JscovFileCoverage.BRANCH_EVAL_FALSE] = readIntOrNotCode();
+                    break;
+                case "evalTrue":
+                    condition[JscovFileCoverage.BRANCH_EVAL_TRUE] = readIntOrNotCode();
+                    break;
+                default:
+                    skipValue();
+                    break;
+            }
+            skipWhitespace();
+        } while (nextByte() == ',');
+
+        this.filePos--;
+        expect('}');
+
+        return condition;
+    }
+
+    /**
+     * Read an integer, 'null' is NOT_CODE (a fraction or exponent is
+     * truncated).
+     *
+     * @return the integer
+     */
+    private int readIntOrNotCode() {
+        skipWhitespace();
+        byte b = peek();
+
+        if (b == 'n') {
+            expectLiteral("null");
+            return JscovFileCoverage.NOT_CODE;
+        }
+        boolean isNegative = b == '-';
+
+        if (isNegative) {
+            this.filePos++;
+        }
+        long value = 0;
+        int digits = 0;
+
+        while (this.filePos < this.fileSize) {
+            b = peek();
+
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            this.filePos++;
+        }
+        if (digits == 0) {
+            throw notCoverageJson("a number or null");
+        }
+        if (this.filePos < this.fileSize && (peek() == '.' || peek() == 'e' || peek() == 'E')) {
+            // not of JSCover, skip the remainder of the number
+            while (this.filePos < this.fileSize && "+-.eE0123456789".indexOf(peek()) >= 0) {
+                this.filePos++;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, isNegative ? -value : value);
+    }
+
+    /**
+     * Read a string (UTF-8 with JSON escapes).
+     *
+     * @return the string
+     */
+    private String readString() {
+        expect('"');
+        StringBuilder stringChars = new StringBuilder();
+        ByteArrayOutputStream utf8Bytes = new ByteArrayOutputStream(64);
+
+        while (true) {
+            byte b = nextByte();
+
+            if (b == '"') {
+                break;
+            }
+            if (b != '\\') {
+                utf8Bytes.write(b);
+                continue;
+            }
+            // the bytes before the escape are whole UTF-8 characters
+            stringChars.append(new String(utf8Bytes.toByteArray(), StandardCharsets.UTF_8));
+            utf8Bytes.reset();
+
+            byte escaped = nextByte();
+
+            switch (escaped) {
+                case 'b':
+                    stringChars.append('\b');
+                    break;
+                case 'f':
+                    stringChars.append('\f');
+                    break;
+                case 'n':
+                    stringChars.append('\n');
+                    break;
+                case 'r':
+                    stringChars.append('\r');
+                    break;
+                case 't':
+                    stringChars.append('\t');
+                    break;
+                case 'u':
+                    char[] hexChars = new char[4];
+
+                    for (int i = 0; i < hexChars.length; i++) {
+                        hexChars[i] = (char) nextByte();
+                    }
+                    stringChars.append((char) Integer.parseInt(new String(hexChars), 16));
+                    break;
+                default:
+                    stringChars.append((char) escaped);
+                    break;
+            }
+        }
+        return stringChars.append(new String(utf8Bytes.toByteArray(), StandardCharsets.UTF_8))
+                .toString();
+    }
+
+    /**
+     * Skip a value of any type (a field not of JSCover).
+     */
+    private void skipValue() {
+        skipWhitespace();
+        byte b = peek();
+
+        if (b == '"') {
+            readString();
+            return;
+        }
+        if (b != '{' && b != '[') {
+            // number or literal
+            while (this.filePos < this.fileSize) {
+                b = peek();
+
+                if (b == ',' || b == '}' || b == ']' || b <= ' ') {
+                    return;
+                }
+                this.filePos++;
+            }
+            return;
+        }
+        int depth = 0;
+
+        do {
+            b = peek();
+
+            if (b == '"') {
+                readString();
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+            this.filePos++;
+        } while (depth > 0);
+    }
+
+    /**
+     * Skip whitespace.
+     */
+    private void skipWhitespace() {
+        while (this.filePos < this.fileSize) {
+            byte b = peek();
+
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            this.filePos++;
+        }
+    }
+
+    /**
+     * Decode an expected byte (after any whitespace).
+     *
+     * @param expected the byte
+     */
+    private void expect(char expected) {
+        skipWhitespace();
+
+        if (nextByte() != expected) {
+            this.filePos--;
+            throw notCoverageJson("'" + expected + "'");
+        }
+    }
+
+    /**
+     * Decode an expected literal (e.g. null).
+     *
+     * @param literal the literal
+     */
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (nextByte() != literal.charAt(i)) {
+                throw notCoverageJson(literal);
+            }
+        }
+    }
+
+    /**
+     * Get the byte at the position, without moving on.
+     *
+     * @return the byte
+     */
+    private byte peek() {
+        if (this.filePos < this.windowStart
+                || this.filePos >= this.windowStart + this.windowLength) {
+            mapWindow();
+        }
+        return this.window.get((int) (this.filePos - this.windowStart));
+    }
+
+    /**
+     * Get the byte at the position and move on.
+     *
+     * @return the byte
+     */
+    private byte nextByte() {
+        byte b = peek();
+
+        this.filePos++;
+        return b;
+    }
+
+    /**
+     * Map the window of the file at the position.
+     */
+    private void mapWindow() {
+        if (this.filePos >= this.fileSize) {
+            throw notCoverageJson("more (end of file)");
+        }
+        this.windowStart = this.filePos;
+        this.windowLength = (int) Math.min(this.windowSize, this.fileSize - this.filePos);
+        try {
+            this.window = this.jsonChannel.map(FileChannel.MapMode.READ_ONLY,
+                    this.windowStart, this.windowLength);
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover report cannot be read: %s\n%s",
+                    this.jsonFile.getPath(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Create the exception for JSON that is not coverage JSON.
+     *
+     * @param expected what was expected at the position
+     *
+     * @return the exception
+     */
+    private RuntimeException notCoverageJson(String expected) {
+        return new RuntimeException(String.format(
+                "JSCover coverage JSON is not valid: %s\n  expected %s at byte %d",
+                this.jsonFile.getPath(), expected, this.filePos));
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,581 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.openqa.selenium.JavascriptExecutor;
+
+/**
+ * The direct report of JscovTestUtil: the code-coverage of the web-page is
+ * read through the WebDriver into a <code>JscovCoverageData</code> and the
+ * JSCover report files are written by the test JVM, rather than the
+ * web-page posting its coverage to the proxy-server (jscoverage_report) for
+ * JSCover to merge and write.
+ * <p>
+ * The coverage crosses the WebDriver wire protocol packed into strings (one
+ * per counters array) so the driver does not build, and the test JVM does
+ * not decode, a JSON object per counter.
+ */
+final class JscovDirectReport {
+
+    /**
+     * Javascript returning a chunk of the JSCover in-page coverage packed,
+     * null if the web-page is not instrumented&#46; The arguments are the
+     * cursor (JS-file index, line offset) to start from and the size budget
+     * (characters) of the chunk; the JS-files are packed until the budget is
+     * used, a JS-file larger than the budget being split by lines.
+     * <p>
+     * The result is [origin, fileCount, nextFileIndex, nextLineOffset,
+     * entry...] with an entry [uri, lineOffset, lineCount, lines, functions,
+     * branches] per JS-file (or part)&#46; Lines are 'c0,c1,...' from the
+     * line offset (empty for not code); functions are 'length:c0,c1,...' and
+     * branches 'line=length:cond,cond;...' with a condition 'position
+     * nodeLength evalFalse evalTrue' (empty for null), both null other than
+     * in the entry of line offset 0.
+     */
+    final static String EXTRACT_COVERAGE_CHUNK_SCRIPT
+            = "if (typeof _$jscoverage === 'undefined') { return null; }"
+            + "var fileIndex = arguments[0], lineOffset = arguments[1], budget = arguments[2];"
+            + "var coverage = _$jscoverage;"
+            + "var packCounters = function (counts) {"
+            + "  if (!counts) { return '0:'; }"
+            + "  return counts.length + ':' + Array.prototype.join.call(counts, ',');"
+            + "};"
+            + "var packBranches = function (branchData) {"
+            + "  var lines = [];"
+            + "  for (var line in branchData) {"
+            + "    if (isNaN(line)) { continue; }"
+            + "    var conds = branchData[line] || [], packed = [];"
+            + "    for (var c = 0; c < conds.length; c++) {"
+            + "      var cond = conds[c];"
+            + "      packed.push(cond ? cond.position + ' ' + cond.nodeLength + ' '"
+            + "          + cond.evalFalse + ' ' + cond.evalTrue : '');"
+            + "    }"
+            + "    lines.push(line + '=' + conds.length + ':' + packed.join(','));"
+            + "  }"
+            + "  return lines.join(';');"
+            + "};"
+            + "var files = [];"
+            + "for (var file in coverage) {"
+            + "  if (coverage.hasOwnProperty(file)) { files.push(file); }"
+            + "}"
+            + "var chunk = [window.location.protocol + '//' + window.location.host,"
+            + "    files.length, files.length, 0];"
+            + "var used = 0;"
+            + "while (fileIndex < files.length && used < budget) {"
+            + "  var fileCov = coverage[files[fileIndex]];"
+            + "  var lineData = fileCov.lineData || [];"
+            + "  var entry = [files[fileIndex], lineOffset, lineData.length, '', null, null];"
+            + "  if (lineOffset === 0) {"
+            + "    entry[4] = packCounters(fileCov.functionData);"
+            + "    entry[5] = packBranches(fileCov.branchData);"
+            + "    used += files[fileIndex].length + entry[4].length + entry[5].length;"
+            + "  }"
+            + "  var lines = [], line = lineOffset;"
+            + "  for (; line < lineData.length; line++) {"
+            + "    if (used >= budget && lines.length > 0) { break; }"
+            + "    var count = lineData[line];"
+            + "    var packedCount = count === undefined || count === null ? '' : String(count);"
+            + "    lines.push(packedCount);"
+            + "    used += packedCount.length + 1;"
+            + "  }"
+            + "  entry[3] = lines.join(',');"
+            + "  chunk.push(entry);"
+            + "  if (line < lineData.length) {"
+            + "    chunk[2] = fileIndex; chunk[3] = line;"
+            + "    return chunk;"
+            + "  }"
+            + "  fileIndex++;"
+            + "  lineOffset = 0;"
+            + "}"
+            + "chunk[2] = fileIndex;"
+            + "return chunk;";
+
+    /**
+     * The default size budget (characters) of a coverage chunk.
+     */
+    final static int DEFAULT_CHUNK_CHARS = 1000000;
+
+    /**
+     * The name of the JSCover viewer file of a report directory (its
+     * presence shows the viewer files have been generated).
+     */
+    private final static String VIEWER_HTML_FILE_NAME = "jscoverage.html";
+
+    /**
+     * The directory of a report holding the original JS-files.
+     */
+    private final static String ORIGINAL_SRC_DIR_NAME = "original-src";
+
+    /**
+     * The time (milliseconds) allowed to connect to and read an original
+     * JS-file.
+     */
+    private final static int ORIGINAL_SRC_TIMEOUT_MSECS = 10000;
+
+    /**
+     * The origin (protocol://host:port) of the web-page of the last
+     * extract.
+     */
+    private String pageOrigin = "";
+
+    /**
+     * The size budget (characters) of a coverage chunk read from the
+     * web-page by one WebDriver call.
+     */
+    private int chunkChars = DEFAULT_CHUNK_CHARS;
+
+    /**
+     * The number of WebDriver calls of the last extract.
+     */
+    private int lastExtractCallCount = 0;
+
+    /**
+     * Create a direct report object (one per JscovTestUtil).
+     */
+    JscovDirectReport() {
+    }
+
+    /**
+     * Get the origin of the web-page of the last extract.
+     *
+     * @return the origin string, empty if none
+     */
+    String getPageOrigin() {
+        return this.pageOrigin;
+    }
+
+    /**
+     * Set the size budget of a coverage chunk.
+     *
+     * @param chunkChars the budget (characters)
+     */
+    void setChunkChars(int chunkChars) {
+        this.chunkChars = chunkChars;
+    }
+
+    /**
+     * Get the number of WebDriver calls (chunks) the last extract made.
+     *
+     * @return the count
+     */
+    int getLastExtractCallCount() {
+        return this.lastExtractCallCount;
+    }
+
+    /**
+     * Read the code-coverage of the web-page, in chunks of the size budget
+     * so no WebDriver call (and response) is larger than the budget&#46; The
+     * chunks are accumulated into the primitive counters as they arrive, a
+     * chunk string is not held once decoded.
+     * <p>
+     * The chunks are read one after another while the web-page may run, so
+     * the coverage is not a snapshot of one instant (as for
+     * jscoverage_report, which serializes at once).
+     *
+     * @param jsExecutor the WebDriver of the web-page
+     *
+     * @return the code-coverage, null if the web-page is not instrumented
+     */
+    JscovCoverageData extract(JavascriptExecutor jsExecutor) {
+        JscovCoverageData coverageData = new JscovCoverageData();
+        JscovFileCoverage partCoverage = null;
+
+        long fileIndex = 0;
+        long lineOffset = 0;
+        long fileCount = 1;
+
+        this.lastExtractCallCount = 0;
+
+        while (fileIndex < fileCount) {
+            Object packedChunk = jsExecutor.executeScript(EXTRACT_COVERAGE_CHUNK_SCRIPT,
+                    fileIndex, lineOffset, this.chunkChars);
+            this.lastExtractCallCount++;
+
+            if (!(packedChunk instanceof List)) {
+                return null;
+            }
+            List<?> chunkList = (List<?>) packedChunk;
+
+            this.pageOrigin = String.valueOf(chunkList.get(0));
+            fileCount = ((Number) chunkList.get(1)).longValue();
+
+            long nextFileIndex = ((Number) chunkList.get(2)).longValue();
+            long nextLineOffset = ((Number) chunkList.get(3)).longValue();
+
+            for (int i = 4; i < chunkList.size(); i++) {
+                List<?> packedEntry = (List<?>) chunkList.get(i);
+
+                partCoverage = unpackEntry(packedEntry, partCoverage);
+
+                boolean isFileComplete = i < chunkList.size() - 1 || nextLineOffset == 0;
+
+                if (isFileComplete) {
+                    coverageData.add(partCoverage);
+                    partCoverage = null;
+                }
+            }
+            if (nextFileIndex <= fileIndex && nextLineOffset <= lineOffset) {
+                // no progress, the JSCover coverage object has changed
+                // under the cursor
+                break;
+            }
+            fileIndex = nextFileIndex;
+            lineOffset = nextLineOffset;
+        }
+        if (partCoverage != null) {
+            coverageData.add(partCoverage);
+        }
+        return coverageData;
+    }
+
+    /**
+     * Store the code-coverage into a report directory as JSCover does: the
+     * coverage is merged into that of the report's 'jscoverage.json', the
+     * viewer files are generated (first store only) and the original
+     * JS-files not yet in the report are fetched from the web-page origin.
+     *
+     * @param coverageData the code-coverage of the web-page (merged into the
+     * report, so not to be used afterwards)
+     * @param pageOrigin the origin of the web-page of the coverage (see
+     * <code>getPageOrigin</code>), the original JS-files are fetched from
+     * @param reportDir the report directory
+     * @param jscoverAllJarFile the JSCover-all.jar file, for the viewer
+     * files
+     *
+     * @return the code-coverage of the report, as written
+     *
+     * @exception RuntimeException if the report cannot be read or written
+     */
+    JscovCoverageData store(JscovCoverageData coverageData, String pageOrigin, File reportDir,
+            File jscoverAllJarFile) {
+        List<String> uriList = new ArrayList<>();
+
+        for (JscovFileCoverage fileCoverage : coverageData.getFileCoverages()) {
+            uriList.add(fileCoverage.getUri());
+        }
+        JscovCoverageData reportData = JscovCoverageData.readReport(reportDir);
+
+        reportData.merge(coverageData);
+        reportData.writeReport(reportDir);
+
+        if (!new File(reportDir, VIEWER_HTML_FILE_NAME).isFile()) {
+            generateViewerFiles(reportDir, jscoverAllJarFile);
+        }
+        fetchOriginalSources(uriList, pageOrigin, reportDir);
+
+        return reportData;
+    }
+
+    /**
+     * Generate the JSCover viewer files (jscoverage.html,...) into a report
+     * directory, by the JSCover IoService of the jar.
+     *
+     * @param reportDir the report directory
+     * @param jscoverAllJarFile the JSCover-all.jar file
+     *
+     * @exception RuntimeException if the files cannot be generated
+     */
+    static void generateViewerFiles(File reportDir, File jscoverAllJarFile) {
+        URLClassLoader jarLoader = JscovJarLoader.acquire(jscoverAllJarFile);
+        try {
+            Properties jscoverProps = new Properties();
+
+            try (InputStream propsStream = jarLoader.getResourceAsStream(
+                    "jscover/configuration.properties")) {
+                if (propsStream != null) {
+                    jscoverProps.load(propsStream);
+                }
+            }
+            Class<?> ioServiceClass = jarLoader.loadClass("jscover.util.IoService");
+
+            // the proxy-server is always run with '--local-storage'
+            Object ioService = ioServiceClass.getConstructor(boolean.class).newInstance(true);
+
+            ioServiceClass.getMethod("generateJSCoverFilesForWebServer", File.class, String.class)
+                    .invoke(ioService, reportDir, jscoverProps.getProperty("version", ""));
+
+        } catch (IOException | ReflectiveOperationException ex) {
+            Throwable cause = ex instanceof InvocationTargetException ? ex.getCause() : ex;
+
+            throw new RuntimeException(String.format(
+                    "JSCover report viewer files cannot be generated: %s\n%s",
+                    reportDir.getPath(), cause));
+
+        } finally {
+            JscovJarLoader.release(jarLoader, true);
+        }
+    }
+
+    /**
+     * Fetch the original JS-files (not instrumented, the request is not made
+     * through the proxy-server) of the URIs not yet in the report
+     * 'original-src' directory&#46; A JS-file that cannot be fetched (e.g.
+     * of another origin) is reported by an INFO message, the report viewer
+     * then has no source for it.
+     *
+     * @param uriList the URIs of the JS-files
+     * @param pageOrigin the origin of the web-page
+     * @param reportDir the report directory
+     */
+    private static void fetchOriginalSources(List<String> uriList, String pageOrigin,
+            File reportDir) {
+        File originalSrcDir = new File(reportDir, ORIGINAL_SRC_DIR_NAME);
+        List<String> failedList = new ArrayList<>();
+
+        for (String uri : uriList) {
+            // as JSCover, the file is the URI without its leading '/'
+            String uriPath = uri.startsWith("/") ? uri.substring(1) : uri;
+            File srcFile = new File(originalSrcDir, uriPath);
+
+            if (srcFile.isFile()) {
+                continue;
+            }
+            try {
+                // characters not legal in a URL path (e.g. space) are quoted
+                String urlPath = new URI(null, null, "/" + uriPath, null).getRawPath();
+
+                fetchToFile(new URL(pageOrigin + urlPath), srcFile);
+
+            } catch (IOException | URISyntaxException ex) {
+                failedList.add(uri);
+            }
+        }
+        if (!failedList.isEmpty()) {
+            System.err.printf("\nINFO: JscovTestUtil: original JS-file(s) not fetched from '%s' for the report: %s\n",
+                    pageOrigin, failedList);
+        }
+    }
+
+    /**
+     * Fetch a URL (no proxy) into a file, written aside and moved into
+     * place.
+     *
+     * @param url the URL
+     * @param targetFile the file
+     *
+     * @throws IOException if the fetch fails
+     */
+    private static void fetchToFile(URL url, File targetFile) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection(Proxy.NO_PROXY);
+
+        connection.setConnectTimeout(ORIGINAL_SRC_TIMEOUT_MSECS);
+        connection.setReadTimeout(ORIGINAL_SRC_TIMEOUT_MSECS);
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + connection.getResponseCode());
+            }
+            Files.createDirectories(targetFile.getParentFile().toPath());
+
+            File tmpFile = new File(targetFile.getPath() + ".tmp");
+
+            try (InputStream srcStream = connection.getInputStream()) {
+                Files.copy(srcStream, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmpFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Unpack an entry of a chunk, the coverage of a JS-file or of a part of
+     * its lines.
+     *
+     * @param packedEntry [uri, lineOffset, lineCount, lines, functions,
+     * branches]
+     * @param partCoverage the coverage of the JS-file of the previous chunk
+     * whose lines continue in this entry, null if none
+     *
+     * @return the coverage of the JS-file (lines up to those of the entry)
+     */
+    static JscovFileCoverage unpackEntry(List<?> packedEntry, JscovFileCoverage partCoverage) {
+        String uri = String.valueOf(packedEntry.get(0));
+        int lineOffset = ((Number) packedEntry.get(1)).intValue();
+
+        JscovFileCoverage fileCoverage = partCoverage;
+
+        if (lineOffset == 0 || fileCoverage == null || !fileCoverage.getUri().equals(uri)) {
+            int[] lineData = new int[((Number) packedEntry.get(2)).intValue()];
+
+            Arrays.fill(lineData, JscovFileCoverage.NOT_CODE);
+
+            Object packedFunctions = packedEntry.get(4);
+            Object packedBranches = packedEntry.get(5);
+
+            fileCoverage = new JscovFileCoverage(uri, lineData,
+                    packedFunctions == null ? new int[0] : unpackCounters(packedFunctions.toString()),
+                    packedBranches == null ? null : unpackBranches(packedBranches.toString()));
+        }
+        unpackCountersInto(String.valueOf(packedEntry.get(3)), fileCoverage.getLineData(), lineOffset);
+
+        return fileCoverage;
+    }
+
+    /**
+     * Unpack counters 'length:c0,c1,...' (an empty counter is NOT_CODE).
+     *
+     * @param packed the packed string
+     *
+     * @return the counters
+     */
+    static int[] unpackCounters(String packed) {
+        int colonIndex = packed.indexOf(':');
+        int[] counters = new int[Integer.parseInt(packed.substring(0, colonIndex))];
+
+        if (counters.length > 0) {
+            unpackCountersInto(packed.substring(colonIndex + 1), counters, 0);
+        }
+        return counters;
+    }
+
+    /**
+     * Unpack counters 'c0,c1,...' (an empty counter is NOT_CODE) into an
+     * array from an offset, as many as are packed (bounded by the array).
+     *
+     * @param packed the packed string, empty for none
+     * @param counters the counters array
+     * @param offset the index of the first counter
+     */
+    static void unpackCountersInto(String packed, int[] counters, int offset) {
+        int charIndex = 0;
+
+        for (int i = offset; i < counters.length && charIndex <= packed.length(); i++) {
+            int count = 0;
+            boolean isCode = false;
+
+            for (; charIndex < packed.length(); charIndex++) {
+                char c = packed.charAt(charIndex);
+
+                if (c == ',') {
+                    break;
+                }
+                count = count * 10 + (c - '0');
+                isCode = true;
+            }
+            charIndex++;
+            counters[i] = isCode ? count : JscovFileCoverage.NOT_CODE;
+        }
+    }
+
+    /**
+     * Unpack branches 'line=length:cond,cond;...' into packed conditions of
+     * each line.
+     *
+     * @param packed the packed string
+     *
+     * @return map of line number to conditions
+     */
+    static SortedMap<Integer, int[]> unpackBranches(String packed) {
+        SortedMap<Integer, int[]> branchData = new TreeMap<>();
+
+        if (packed.isEmpty()) {
+            return branchData;
+        }
+        for (String packedLine : packed.split(";")) {
+            int equalsIndex = packedLine.indexOf('=');
+            int colonIndex = packedLine.indexOf(':', equalsIndex);
+            int conditionCount = Integer.parseInt(packedLine.substring(equalsIndex + 1, colonIndex));
+            int[] conditions = new int[conditionCount * JscovFileCoverage.BRANCH_COND_SIZE];
+
+            String[] packedConditions = packedLine.substring(colonIndex + 1).split(",", -1);
+
+            for (int c = 0; c < conditionCount; c++) {
+                int offset = c * JscovFileCoverage.BRANCH_COND_SIZE;
+
+                if (c >= packedConditions.length || packedConditions[c].isEmpty()) {
+                    conditions[offset + JscovFileCoverage.BRANCH_POSITION] = JscovFileCoverage.NOT_CODE;
+                    continue;
+                }
+                String[] values = packedConditions[c].split(" ");
+
+                for (int v = 0; v < JscovFileCoverage.BRANCH_COND_SIZE; v++) {
+                    conditions[offset + v] = Integer.parseInt(values[v]);
+                }
+            }
+            branchData.put(Integer.parseInt(packedLine.substring(0, equalsIndex)), conditions);
+        }
+        return branchData;
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The code-coverage of one JS-file (URI) held as primitive counters, as
+ * recorded by the JSCover instrumented web-page in its
+ * <code>_$jscoverage</code> object and in a report 'jscoverage.json'.
+ * <p>
+ * The line and function counters are <code>int</code> arrays indexed by
+ * line (function) number, a line that is not code is NOT_CODE (JSCover
+ * 'null')&#46; The branch conditions of a line are packed into an
+ * <code>int</code> array of BRANCH_COND_SIZE entries per condition
+ * (position, node-length, eval-false, eval-true), a condition JSCover
+ * records as 'null' has the position NOT_CODE.
+ * <p>
+ * Not thread-safe, a coverage object is merged into by one thread at a
+ * time.
+ */
+public class JscovFileCoverage {
+
+    /**
+     * The counter value of a line or function that is not code (JSCover
+     * 'null').
+     */
+    public final static int NOT_CODE = -1;
+
+    /**
+     * The number of <code>int</code> entries for each branch condition.
+     */
+    public final static int BRANCH_COND_SIZE = 4;
+
+    /**
+     * The offset of the position within a branch condition.
+     */
+    public final static int BRANCH_POSITION = 0;
+
+    /**
+     * The offset of the node-length within a branch condition.
+     */
+    public final static int BRANCH_NODE_LENGTH = 1;
+
+    /**
+     * The offset of the eval-false count within a branch condition.
+     */
+    public final static int BRANCH_EVAL_FALSE = 2;
+
+    /**
+     * The offset of the eval-true count within a branch condition.
+     */
+    public final static int BRANCH_EVAL_TRUE = 3;
+
+    /**
+     * The URI of the JS-file (the key of the JSCover coverage object).
+     */
+    private final String uri;
+
+    /**
+     * The line counters.
+     */
+    private int[] lineData;
+
+    /**
+     * The function counters.
+     */
+    private int[] functionData;
+
+    /**
+     * The branch conditions of each line that has branches.
+     */
+    private final SortedMap<Integer, int[]> branchData;
+
+    /**
+     * Create the code-coverage of a JS-file, the arrays are held (not
+     * copied).
+     *
+     * @param uri the URI of the JS-file
+     * @param lineData the line counters (NOT_CODE for not code)
+     * @param functionData the function counters
+     * @param branchData the packed branch conditions of each line, null for
+     * none
+     */
+    public JscovFileCoverage(String uri, int[] lineData, int[] functionData,
+            SortedMap<Integer, int[]> branchData) {
+
+        this.uri = uri;
+        this.lineData = lineData;
+        this.functionData = functionData;
+        this.branchData = branchData == null ? new TreeMap<>() : branchData;
+    }
+
+    /**
+     * Get the URI of the JS-file.
+     *
+     * @return the URI string
+     */
+    public String getUri() {
+        return this.uri;
+    }
+
+    /**
+     * Get the line counters (not a copy).
+     *
+     * @return the counters array indexed by line number
+     */
+    public int[] getLineData() {
+        return this.lineData;
+    }
+
+    /**
+     * Get the function counters (not a copy).
+     *
+     * @return the counters array indexed by function number
+     */
+    public int[] getFunctionData() {
+        return this.functionData;
+    }
+
+    /**
+     * Get the packed branch conditions of the lines with branches (not a
+     * copy).
+     *
+     * @return map of line number to conditions
+     */
+    public SortedMap<Integer, int[]> getBranchData() {
+        return this.branchData;
+    }
+
+    /**
+     * Merge the code-coverage of the same JS-file into this object, the
+     * counters are summed&#46; Unlike JSCover the arrays need not be of the
+     * same size (the JS-file changed between runs), a counter missing or not
+     * code in one is taken from the other.
+     *
+     * @param other the coverage to merge in
+     */
+    public void merge(JscovFileCoverage other) {
+        this.lineData = mergeCounters(this.lineData, other.lineData);
+        this.functionData = mergeCounters(this.functionData, other.functionData);
+
+        for (Map.Entry<Integer, int[]> otherEntry : other.branchData.entrySet()) {
+            int[] conditions = this.branchData.get(otherEntry.getKey());
+
+            this.branchData.put(otherEntry.getKey(), conditions == null
+                    ? otherEntry.getValue().clone()
+                    : mergeConditions(conditions, otherEntry.getValue()));
+        }
+    }
+
+    /**
+     * Is there any counter that is not zero.
+     *
+     * @return true if some code has been executed
+     */
+    public boolean isAnyCovered() {
+        for (int count : this.lineData) {
+            if (count > 0) {
+                return true;
+            }
+        }
+        for (int count : this.functionData) {
+            if (count > 0) {
+                return true;
+            }
+        }
+        for (int[] conditions : this.branchData.values()) {
+            for (int i = 0; i < conditions.length; i += BRANCH_COND_SIZE) {
+                if (conditions[i + BRANCH_EVAL_FALSE] > 0
+                        || conditions[i + BRANCH_EVAL_TRUE] > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of code lines.
+     *
+     * @return the count
+     */
+    public int getCodeLineCount() {
+        int codeLines = 0;
+
+        for (int count : this.lineData) {
+            if (count != NOT_CODE) {
+                codeLines++;
+            }
+        }
+        return codeLines;
+    }
+
+    /**
+     * Get the number of code lines executed.
+     *
+     * @return the count
+     */
+    public int getCodeLinesCoveredCount() {
+        int coveredLines = 0;
+
+        for (int count : this.lineData) {
+            if (count > 0) {
+                coveredLines++;
+            }
+        }
+        return coveredLines;
+    }
+
+    /**
+     * Get the number of branches, as JSCover each condition is two branches
+     * (evaluated false and evaluated true).
+     *
+     * @return the count
+     */
+    public int getBranchCount() {
+        int branches = 0;
+
+        for (int[] conditions : this.branchData.values()) {
+            for (int i = 0; i < conditions.length; i += BRANCH_COND_SIZE) {
+                if (conditions[i + BRANCH_POSITION] != NOT_CODE) {
+                    branches += 2;
+                }
+            }
+        }
+        return branches;
+    }
+
+    /**
+     * Get the number of branches taken.
+     *
+     * @return the count
+     */
+    public int getBranchesCoveredCount() {
+        int coveredBranches = 0;
+
+        for (int[] conditions : this.branchData.values()) {
+            for (int i = 0; i < conditions.length; i += BRANCH_COND_SIZE) {
+                if (conditions[i + BRANCH_POSITION] == NOT_CODE) {
+                    continue;
+                }
+                if (conditions[i + BRANCH_EVAL_FALSE] > 0) {
+                    coveredBranches++;
+                }
+                if (conditions[i + BRANCH_EVAL_TRUE] > 0) {
+                    coveredBranches++;
+                }
+            }
+        }
+        return coveredBranches;
+    }
+
+    /**
+     * Append the JSON of this object's coverage (the value of its URI key)
+     * in the form JSCover writes to 'jscoverage.json' (empty function and
+     * branch data are left out).
+     *
+     * @param json the JSON being built
+     */
+    void appendJSON(StringBuilder json) {
+        json.append("{\"lineData\":");
+        appendCounters(json, this.lineData);
+
+        if (this.functionData.length > 0) {
+            json.append(",\"functionData\":");
+            appendCounters(json, this.functionData);
+        }
+        if (!this.branchData.isEmpty()) {
+            json.append(",\"branchData\":{");
+
+            String lineSeparator = "";
+            for (Map.Entry<Integer, int[]> branchEntry : this.branchData.entrySet()) {
+                json.append(lineSeparator).append('"').append(branchEntry.getKey()).append("\":[");
+                lineSeparator = ",";
+
+                int[] conditions = branchEntry.getValue();
+
+                for (int i = 0; i < conditions.length; i += BRANCH_COND_SIZE) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    if (conditions[i + BRANCH_POSITION] == NOT_CODE) {
+                        json.append("null");
+                        continue;
+                    }
+                    json.append("{\"position\":").append(conditions[i + BRANCH_POSITION])
+                            .append(",\"nodeLength\":").append(conditions[i + BRANCH_NODE_LENGTH])
+                            .append(",\"evalFalse\":").append(conditions[i + BRANCH_EVAL_FALSE])
+                            .append(",\"evalTrue\":").append(conditions[i + BRANCH_EVAL_TRUE])
+                            .append('}');
+                }
+                json.append(']');
+            }
+            json.append('}');
+        }
+        json.append('}');
+    }
+
+    /**
+     * Append a counters array as JSON, NOT_CODE as 'null'.
+     *
+     * @param json the JSON being built
+     * @param counters the counters
+     */
+    private static void appendCounters(StringBuilder json, int[] counters) {
+        json.append('[');
+
+        for (int i = 0; i < counters.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            if (counters[i] == NOT_CODE) {
+                json.append("null");
+            } else {
+                json.append(counters[i]);
+            }
+        }
+        json.append(']');
+    }
+
+    /**
+     * Sum two counters arrays.
+     *
+     * @param counters the counters merged into (returned if large enough)
+     * @param otherCounters the counters to merge in
+     *
+     * @return the summed counters
+     */
+    static int[] mergeCounters(int[] counters, int[] otherCounters) {
+        int[] merged = counters.length >= otherCounters.length
+                ? counters : Arrays.copyOf(counters, otherCounters.length);
+
+        if (merged != counters) {
+            Arrays.fill(merged, counters.length, merged.length, NOT_CODE);
+        }
+        for (int i = 0; i < otherCounters.length; i++) {
+            int otherCount = otherCounters[i];
+
+            if (otherCount == NOT_CODE) {
+                continue;
+            }
+            merged[i] = merged[i] == NOT_CODE ? otherCount : merged[i] + otherCount;
+        }
+        return merged;
+    }
+
+    /**
+     * Sum the eval counts of two packed branch conditions arrays of a line.
+     *
+     * @param conditions the conditions merged into (returned if large
+     * enough)
+     * @param otherConditions the conditions to merge in
+     *
+     * @return the summed conditions
+     */
+    static int[] mergeConditions(int[] conditions, int[] otherConditions) {
+        int[] merged = conditions.length >= otherConditions.length
+                ? conditions : Arrays.copyOf(conditions, otherConditions.length);
+
+        for (int i = conditions.length; i < merged.length; i += BRANCH_COND_SIZE) {
+            merged[i + BRANCH_POSITION] = NOT_CODE;
+        }
+        for (int i = 0; i < otherConditions.length; i += BRANCH_COND_SIZE) {
+            if (otherConditions[i + BRANCH_POSITION] == NOT_CODE) {
+                continue;
+            }
+            if (merged[i + BRANCH_POSITION] == NOT_CODE) {
+                System.arraycopy(otherConditions, i, merged, i, BRANCH_COND_SIZE);
+                continue;
+            }
+            merged[i + BRANCH_EVAL_FALSE] += otherConditions[i + BRANCH_EVAL_FALSE];
+            merged[i + BRANCH_EVAL_TRUE] += otherConditions[i + BRANCH_EVAL_TRUE];
+        }
+        return merged;
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
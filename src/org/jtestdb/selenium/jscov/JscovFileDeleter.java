@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The deletion of directory trees (e.g. the reports directory) by a
+ * fork-join pool of its own (created for each delete and shut down after
+ * it, not the common pool, the deletes block on I/O): the directories of the top levels of the tree are
+ * deleted in parallel, each sub-tree below by a <code>Files.walkFileTree</code>
+ * (no list of files is built)&#46; A symbolic link is deleted, not what it
+ * links to&#46; What could not be deleted is returned, rather than ignored.
+ * <pre>
+ *   List&lt;Path&gt; notDeleted = new JscovFileDeleter().delete(reportsDir);
+ * </pre>
+ * A detach renames the tree aside (at once, atomically) and deletes it in
+ * the background, on a daemon thread of the detaches (ends when idle), so
+ * the caller does not wait on the deletion; a detached
+ * tree left by a JVM that ended part way is deleted by the next detach of
+ * the same parent directory.
+ */
+public class JscovFileDeleter {
+
+    /**
+     * The prefix of the name a detached tree is renamed to.
+     */
+    public final static String DETACHED_NAME_PREFIX = ".jscovtrash-";
+
+    /**
+     * The depth of the tree to which directories are deleted in parallel,
+     * below a sub-tree is walked by one task.
+     */
+    private final static int PARALLEL_DEPTH = 3;
+
+    /**
+     * The time (seconds) the idle detach thread is kept.
+     */
+    private final static int IDLE_THREAD_SECS = 30;
+
+    /**
+     * The executor of the background deletions of the detaches (one
+     * thread, a daemon).
+     */
+    private final static ThreadPoolExecutor DETACH_EXECUTOR = new ThreadPoolExecutor(1, 1,
+            IDLE_THREAD_SECS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            (runnable) -> {
+                Thread detachThread = new Thread(runnable, "JscovFileDeleter-detach");
+                detachThread.setDaemon(true);
+                return detachThread;
+            });
+
+    static {
+        DETACH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The number of threads of the fork-join pool of a deletion.
+     */
+    private final int parallelism;
+
+    /**
+     * Create a deleter of a parallelism of the number of processors.
+     */
+    public JscovFileDeleter() {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Create a deleter of a parallelism.
+     *
+     * @param parallelism the number of threads
+     *
+     * @exception RuntimeException if parallelism is not positive
+     */
+    public JscovFileDeleter(int parallelism) {
+        if (parallelism <= 0) {
+            throw new RuntimeException("The delete parallelism needs to be positive.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Delete a directory tree, or a file&#46; A path that does not exist is
+     * deleted.
+     *
+     * @param fileOrDir the directory or file
+     *
+     * @return the paths that could not be deleted, empty if all were
+     */
+    public List<Path> delete(File fileOrDir) {
+        ConcurrentLinkedQueue<Path> failedQueue = new ConcurrentLinkedQueue<>();
+        ForkJoinPool deletePool = new ForkJoinPool(this.parallelism);
+
+        try {
+            deletePool.invoke(new DeleteTask(fileOrDir.toPath(), 0, failedQueue));
+
+        } finally {
+            deletePool.shutdown();
+        }
+        return new ArrayList<>(failedQueue);
+    }
+
+    /**
+     * Detach a directory tree: it is renamed to a detached name in its
+     * parent directory and deleted in the background, with any detached
+     * tree left there before&#46; A tree that cannot be renamed is deleted
+     * in the background where it is.
+     *
+     * @param dir the directory
+     *
+     * @return future completed with the paths that could not be deleted
+     */
+    public CompletableFuture<List<Path>> detach(File dir) {
+        File parentDir = dir.getAbsoluteFile().getParentFile();
+        File detachedDir = dir;
+
+        if (parentDir != null && dir.exists()) {
+            File renamedDir = new File(parentDir,
+                    DETACHED_NAME_PREFIX + dir.getName() + "-" + System.nanoTime());
+            try {
+                Files.move(dir.toPath(), renamedDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                detachedDir = renamedDir;
+
+            } catch (IOException ex) {
+                // deleted in place
+            }
+        }
+        File deleteDir = detachedDir;
+
+        return CompletableFuture.supplyAsync(() -> {
+            List<Path> failedList = delete(deleteDir);
+
+            File[] leftOverDirs = parentDir == null ? null : parentDir.listFiles(
+                    (leftOver) -> leftOver.getName().startsWith(DETACHED_NAME_PREFIX));
+            if (leftOverDirs != null) {
+                for (File leftOverDir : leftOverDirs) {
+                    failedList.addAll(delete(leftOverDir));
+                }
+            }
+            return failedList;
+        }, DETACH_EXECUTOR);
+    }
+
+    /**
+     * The deletion of a directory, its sub-directories in parallel to the
+     * parallel depth, then by a walk.
+     */
+    private static class DeleteTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The path to delete.
+         */
+        private final Path path;
+
+        /**
+         * The depth of the path in the tree.
+         */
+        private final int depth;
+
+        /**
+         * The paths that could not be deleted.
+         */
+        private final ConcurrentLinkedQueue<Path> failedQueue;
+
+        /**
+         * Create the delete task.
+         *
+         * @param path the path to delete
+         * @param depth the depth of the path in the tree
+         * @param failedQueue the paths that could not be deleted
+         */
+        DeleteTask(Path path, int depth, ConcurrentLinkedQueue<Path> failedQueue) {
+            this.path = path;
+            this.depth = depth;
+            this.failedQueue = failedQueue;
+        }
+
+        @Override
+        protected void compute() {
+            if (!Files.isDirectory(this.path, LinkOption.NOFOLLOW_LINKS)) {
+                deletePath(this.path, this.failedQueue);
+                return;
+            }
+            if (this.depth >= PARALLEL_DEPTH) {
+                walkDelete(this.path, this.failedQueue);
+                return;
+            }
+            List<DeleteTask> subTaskList = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.path)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subTaskList.add(new DeleteTask(entry, this.depth + 1, this.failedQueue));
+                    } else {
+                        deletePath(entry, this.failedQueue);
+                    }
+                }
+            } catch (NoSuchFileException ex) {
+                return;
+
+            } catch (IOException ex) {
+                // not listed, the directory delete below fails
+            }
+            invokeAll(subTaskList);
+            deletePath(this.path, this.failedQueue);
+        }
+    }
+
+    /**
+     * Delete a directory tree by a walk, the files of a directory then the
+     * directory.
+     *
+     * @param dir the directory
+     * @param failedQueue the paths that could not be deleted
+     */
+    private static void walkDelete(Path dir, ConcurrentLinkedQueue<Path> failedQueue) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    deletePath(file, failedQueue);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    if (!(exc instanceof NoSuchFileException)) {
+                        failedQueue.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path visitedDir, IOException exc) {
+                    deletePath(visitedDir, failedQueue);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            failedQueue.add(dir);
+        }
+    }
+
+    /**
+     * Delete a file, link or empty directory, one that does not exist is
+     * deleted.
+     *
+     * @param path the path
+     * @param failedQueue the paths that could not be deleted
+     */
+    private static void deletePath(Path path, ConcurrentLinkedQueue<Path> failedQueue) {
+        try {
+            Files.deleteIfExists(path);
+
+        } catch (IOException ex) {
+            failedQueue.add(path);
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
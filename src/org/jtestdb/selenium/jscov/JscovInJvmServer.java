@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * A JSCover proxy-server run on threads within the test JVM, JSCover-all.jar
+ * being loaded by an isolated class-loader (JscovJarLoader)&#46; This
+ * avoids the JVM start-up of a separate JSCover process on every start, and
+ * the JSCover classes stay loaded (and JIT compiled) across restarts.
+ * <p>
+ * JSCover is driven through its own classes (reflection, as the jar is not
+ * on the test classpath): the options are parsed by
+ * <code>ConfigurationForServer</code> and a <code>WebDaemon</code> accepts
+ * connections on a daemon thread. The server is stopped by
+ * <code>WebDaemon.stop</code>; the JSCover '/stop' message must never be
+ * sent, as JSCover ends the JVM on '/stop'.
+ * <p>
+ * JSCover configures java.util.logging on start (a 'jscover.log' file
+ * handler on every logger)&#46; The handlers it adds are removed on stop,
+ * and the levels of the loggers that existed before the start are put back.
+ */
+class JscovInJvmServer implements JscovServer {
+
+    /**
+     * The time (milliseconds) allowed for JSCover to open its server socket
+     * once its thread is started.
+     */
+    private final static long OPEN_WAIT_MSECS = 5000;
+
+    /**
+     * The time (milliseconds) to wait for the server thread to end once
+     * stopped, if the caller allows no time.
+     */
+    private final static long MIN_STOP_WAIT_MSECS = 1000;
+
+    /**
+     * Starts are made one at a time so the logging JSCover configures on
+     * start is known to belong to that start.
+     */
+    private final static Object START_LOCK = new Object();
+
+    /**
+     * The port numbers of the in-JVM servers running.
+     */
+    private final static Set<Integer> SERVING_PORT_NOS
+            = Collections.synchronizedSet(new HashSet<>());
+
+    /**
+     * A name of the server for messages (e.g. 'in-JVM proxy-server port
+     * 3128').
+     */
+    private final String description;
+
+    /**
+     * The port number of the server.
+     */
+    private final int portNo;
+
+    /**
+     * The loader of the JSCover classes.
+     */
+    private final URLClassLoader jarLoader;
+
+    /**
+     * The JSCover WebDaemon object.
+     */
+    private final Object webDaemon;
+
+    /**
+     * The thread accepting connections (WebDaemon.start).
+     */
+    private final Thread serverThread;
+
+    /**
+     * The logging handlers JSCover added on start, with their loggers.
+     */
+    private final Map<Handler, List<Logger>> addedLogHandlers = new IdentityHashMap<>();
+
+    /**
+     * True once stop has been asked for.
+     */
+    private volatile boolean stopRequested = false;
+
+    /**
+     * The exit value once the server thread ends: 0 stopped, 1 failed.
+     */
+    private volatile Integer exitValue = null;
+
+    /**
+     * The failure of the server thread (stack trace) for failure messages.
+     */
+    private volatile String failureText = "";
+
+    /**
+     * True once the loader has been returned to JscovJarLoader.
+     */
+    private boolean loaderReleased = false;
+
+    /**
+     * Create the server object, JSCover having been configured.
+     *
+     * @param description name of the server for messages
+     * @param portNo the port number of the server
+     * @param jarLoader the loader of the JSCover classes
+     * @param webDaemon the JSCover WebDaemon object
+     * @param startMethod the WebDaemon start method
+     * @param configuration the JSCover ConfigurationForServer object
+     */
+    private JscovInJvmServer(String description, int portNo, URLClassLoader jarLoader,
+            Object webDaemon, Method startMethod, Object configuration) {
+        this.description = description;
+        this.portNo = portNo;
+        this.jarLoader = jarLoader;
+        this.webDaemon = webDaemon;
+
+        this.serverThread = new Thread(() -> runServer(startMethod, configuration),
+                "JscovTestUtil-" + description);
+
+        // the connection handler threads JSCover starts inherit daemon, so
+        // an open browser connection does not hold the JVM from exiting
+        this.serverThread.setDaemon(true);
+        this.serverThread.setContextClassLoader(jarLoader);
+    }
+
+    /**
+     * Start a JSCover proxy-server within the test JVM.
+     *
+     * @param jarFile the JSCover-all.jar file
+     * @param jscoverArgs the JSCover command line arguments (as given to
+     * 'java -jar JSCover-all.jar', '-ws' included)
+     * @param portNo the port number in the arguments
+     * @param description name of the server for messages
+     *
+     * @return the server object, the server may still be opening its port
+     *
+     * @exception RuntimeException if JSCover cannot be loaded or the
+     * arguments are invalid
+     */
+    static JscovInJvmServer start(File jarFile, List<String> jscoverArgs,
+            int portNo, String description) {
+
+        URLClassLoader jarLoader = JscovJarLoader.acquire(jarFile);
+
+        Thread currentThread = Thread.currentThread();
+        ClassLoader previousContextLoader = currentThread.getContextClassLoader();
+
+        JscovInJvmServer inJvmServer;
+        try {
+            currentThread.setContextClassLoader(jarLoader);
+
+            Class<?> mainClass = jarLoader.loadClass("jscover.Main");
+            Class<?> configClass = jarLoader.loadClass("jscover.server.ConfigurationForServer");
+            Class<?> daemonClass = jarLoader.loadClass("jscover.server.WebDaemon");
+
+            // loads the JSCover properties (version) and checks the jar
+            // dependencies are present
+            Object jscoverMain = mainClass.newInstance();
+            mainClass.getMethod("initialize").invoke(jscoverMain);
+
+            // 'java -jar JSCover-all.jar -ws ...' options are parsed by the
+            // configuration, without the '-ws'
+            List<String> serverArgs = new ArrayList<>(jscoverArgs);
+            serverArgs.remove("-ws");
+
+            Object configuration = configClass.getMethod("parse", String[].class)
+                    .invoke(null, (Object) serverArgs.toArray(new String[0]));
+
+            configClass.getMethod("setProperties", Properties.class)
+                    .invoke(configuration, mainClass.getField("properties").get(null));
+
+            if ((Boolean) configClass.getMethod("isInvalid").invoke(configuration)) {
+                throw new RuntimeException(String.format(
+                        "JSCover options are invalid for the in-JVM proxy-server:\n%s",
+                        serverArgs));
+            }
+            Object webDaemon = daemonClass.newInstance();
+
+            inJvmServer = new JscovInJvmServer(description, portNo, jarLoader,
+                    webDaemon, daemonClass.getMethod("start", configClass), configuration);
+
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            JscovJarLoader.release(jarLoader, false);
+
+            Throwable cause = ex instanceof InvocationTargetException
+                    ? ex.getCause() : ex;
+            throw new RuntimeException(String.format(
+                    "Failed to load JSCover for the in-JVM proxy-server: %s\n"
+                    + "Root-Cause is: %s\n"
+                    + "Root-Message is: %s\n",
+                    jarFile.getAbsolutePath(),
+                    cause.getClass().getName(),
+                    cause.getMessage()));
+
+        } catch (RuntimeException rte) {
+            JscovJarLoader.release(jarLoader, false);
+            throw rte;
+
+        } finally {
+            currentThread.setContextClassLoader(previousContextLoader);
+        }
+        inJvmServer.startServerThread();
+
+        return inJvmServer;
+    }
+
+    /**
+     * Is an in-JVM server running on the port&#46; The JSCover '/stop'
+     * message is not to be sent to such a port.
+     *
+     * @param portNo the port number
+     *
+     * @return true if an in-JVM server is on the port
+     */
+    static boolean isServingPort(int portNo) {
+        return SERVING_PORT_NOS.contains(portNo);
+    }
+
+    @Override
+    public boolean isAlive() {
+        return this.serverThread.isAlive();
+    }
+
+    @Override
+    public Integer exitValue() {
+        if (this.serverThread.isAlive()) {
+            return null;
+        }
+        return this.exitValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getOutputTail() {
+        return this.failureText;
+    }
+
+    @Override
+    public boolean waitForExit(long timeoutMsecs) {
+        try {
+            this.serverThread.join(Math.max(1, timeoutMsecs));
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return !this.serverThread.isAlive();
+    }
+
+    @Override
+    public synchronized Integer stop(long gracefulTimeoutMsecs) {
+        this.stopRequested = true;
+
+        if (this.serverThread.isAlive()) {
+            try {
+                // closes the server socket, the accept loop then ends
+                this.webDaemon.getClass().getMethod("stop").invoke(this.webDaemon);
+
+            } catch (ReflectiveOperationException ex) {
+                // the thread is left to end with the JVM (daemon)
+            }
+            waitForExit(Math.max(MIN_STOP_WAIT_MSECS, gracefulTimeoutMsecs));
+        }
+        boolean ended = !this.serverThread.isAlive();
+
+        if (ended && !this.loaderReleased) {
+            this.loaderReleased = true;
+
+            removeAddedLogHandlers();
+            JscovJarLoader.release(this.jarLoader, this.exitValue != null && this.exitValue == 0);
+        }
+        return exitValue();
+    }
+
+    @Override
+    public boolean isInJvm() {
+        return true;
+    }
+
+    /**
+     * Start the server thread and wait for JSCover to open its port (or
+     * fail), recording the logging handlers JSCover adds as it starts.
+     */
+    private void startServerThread() {
+        synchronized (START_LOCK) {
+            Map<String, Level> previousLevels = new HashMap<>();
+            Set<Handler> previousHandlers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            forEachLogger((logger) -> {
+                previousLevels.put(logger.getName(), logger.getLevel());
+                Collections.addAll(previousHandlers, logger.getHandlers());
+            });
+            SERVING_PORT_NOS.add(this.portNo);
+            this.serverThread.start();
+
+            long deadline = System.currentTimeMillis() + OPEN_WAIT_MSECS;
+
+            while (this.serverThread.isAlive()
+                    && !JscovTestUtil.isServerAccepting(this.portNo)
+                    && System.currentTimeMillis() < deadline) {
+                waitForExit(10);
+            }
+            forEachLogger((logger) -> {
+                for (Handler handler : logger.getHandlers()) {
+                    if (!previousHandlers.contains(handler)) {
+                        this.addedLogHandlers.computeIfAbsent(handler, (h) -> new ArrayList<>())
+                                .add(logger);
+                    }
+                }
+                if (previousLevels.containsKey(logger.getName())) {
+                    logger.setLevel(previousLevels.get(logger.getName()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Run the JSCover WebDaemon until it is stopped (runs on the server
+     * thread).
+     *
+     * @param startMethod the WebDaemon start method
+     * @param configuration the JSCover ConfigurationForServer object
+     */
+    private void runServer(Method startMethod, Object configuration) {
+        try {
+            startMethod.invoke(this.webDaemon, configuration);
+            this.exitValue = 0;
+
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException ex) {
+            Throwable cause = ex instanceof InvocationTargetException
+                    ? ex.getCause() : ex;
+
+            if (this.stopRequested) {
+                // the accept of the closed server socket fails on stop
+                this.exitValue = 0;
+            } else {
+                StringWriter traceWriter = new StringWriter();
+                cause.printStackTrace(new PrintWriter(traceWriter));
+
+                this.failureText = traceWriter.toString();
+                this.exitValue = 1;
+            }
+        } finally {
+            SERVING_PORT_NOS.remove(this.portNo);
+        }
+    }
+
+    /**
+     * Remove (and close) the logging handlers JSCover added on start.
+     */
+    private void removeAddedLogHandlers() {
+        this.addedLogHandlers.forEach((handler, loggers) -> {
+            loggers.forEach((logger) -> logger.removeHandler(handler));
+            handler.close();
+        });
+        this.addedLogHandlers.clear();
+    }
+
+    /**
+     * Perform an action on every logger of the LogManager.
+     *
+     * @param loggerAction the action
+     */
+    private static void forEachLogger(Consumer<Logger> loggerAction) {
+        LogManager logManager = LogManager.getLogManager();
+        Enumeration<String> loggerNames = logManager.getLoggerNames();
+
+        while (loggerNames.hasMoreElements()) {
+            Logger logger = logManager.getLogger(loggerNames.nextElement());
+
+            if (logger != null) {
+                loggerAction.accept(logger);
+            }
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
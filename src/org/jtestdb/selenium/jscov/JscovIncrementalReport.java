@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.BRANCH_COND_SIZE;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.BRANCH_EVAL_FALSE;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.BRANCH_EVAL_TRUE;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.BRANCH_POSITION;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.NOT_CODE;
+
+/**
+ * The incremental report of JscovTestUtil: a store sends only the
+ * code-coverage gained since the last store (the delta), rather than the
+ * cumulative coverage of the web-page, and is skipped when there is none.
+ * <p>
+ * The test JVM keeps a snapshot of the counters as last stored, the
+ * coverage read from the web-page (<code>JscovDirectReport</code>) per
+ * web-page origin; nothing is kept in the web-page (its local-storage is
+ * JSCover's, and a web-page global is lost on navigation)&#46; A store is
+ * three steps:
+ * <ol>
+ * <li>the delta of each JS-file (new, or a counter changed) is computed
+ * from the snapshot and the coverage read from the web-page, and the
+ * coverage read becomes the snapshot (so a store following before the
+ * write of this one completes, in the background, has only its own
+ * delta)</li>
+ * <li>the delta is stored (posted to the proxy-server as
+ * jscoverage_report does, or written for a direct report)</li>
+ * <li>a delta whose store fails, on the test thread or a background
+ * write, is rolled back: held and included in the next delta of its
+ * web-page origin, so no coverage of a failed store is lost</li>
+ * </ol>
+ * A counter lower than its snapshot shows the JS-file's coverage was reset
+ * (e.g. the local-storage cleared), its whole coverage is then the delta.
+ * <p>
+ * Thread-safe, a failed background write rolls back from the writer
+ * thread.
+ */
+final class JscovIncrementalReport {
+
+    /**
+     * Javascript posting the delta (the JSON of arguments[1]) to the
+     * proxy-server report directory (arguments[0], empty for the base) as
+     * jscoverage_report does, run by executeAsyncScript returning the HTTP
+     * status of the store once done.
+     */
+    final static String POST_DELTA_ASYNC_SCRIPT
+            = "var reportComplete = arguments[arguments.length - 1];"
+            + "var url = '/jscoverage-store';"
+            + "if (arguments[0]) { url += '/' + encodeURIComponent(arguments[0]); }"
+            + "var request = new XMLHttpRequest();"
+            + "request.open('POST', url, true);"
+            + "request.onreadystatechange = function () {"
+            + "  if (request.readyState === 4) { reportComplete(request.status); }"
+            + "};"
+            + "request.setRequestHeader('Content-Type', 'application/json');"
+            + "request.send(arguments[1]);";
+
+    /**
+     * The snapshot of the coverage last stored, of each web-page origin.
+     */
+    private final Map<String, JscovCoverageData> snapshotMap = new HashMap<>();
+
+    /**
+     * The deltas rolled back (of failed stores) not yet included in a
+     * delta, of each web-page origin.
+     */
+    private final Map<String, JscovCoverageData> rolledBackMap = new HashMap<>();
+
+    /**
+     * Create an incremental report object (one per JscovTestUtil).
+     */
+    JscovIncrementalReport() {
+    }
+
+    /**
+     * Compute the delta of the coverage of a web-page from its snapshot,
+     * with the deltas rolled back of its origin (taken, the delta is to be
+     * stored or rolled back)&#46; The delta is new objects, neither the
+     * coverage nor the snapshot is changed.
+     *
+     * @param pageOrigin the origin of the web-page
+     * @param pageCoverage the coverage read from the web-page
+     *
+     * @return the delta, empty for nothing to store
+     */
+    synchronized JscovCoverageData delta(String pageOrigin, JscovCoverageData pageCoverage) {
+        JscovCoverageData snapshot = this.snapshotMap.get(pageOrigin);
+        JscovCoverageData deltaData = new JscovCoverageData();
+
+        for (JscovFileCoverage fileCoverage : pageCoverage.getFileCoverages()) {
+            JscovFileCoverage snapCoverage = snapshot == null
+                    ? null : snapshot.getFileCoverage(fileCoverage.getUri());
+
+            JscovFileCoverage fileDelta = fileDelta(fileCoverage, snapCoverage);
+
+            if (fileDelta == null) {
+                // a counter was reset, the whole coverage is the delta
+                fileDelta = fileDelta(fileCoverage, null);
+            }
+            if (snapCoverage == null || fileDelta.isAnyCovered()) {
+                deltaData.add(fileDelta);
+            }
+        }
+        JscovCoverageData rolledBack = this.rolledBackMap.remove(pageOrigin);
+
+        if (rolledBack != null) {
+            deltaData.merge(rolledBack);
+        }
+        return deltaData;
+    }
+
+    /**
+     * Make the coverage of a web-page its snapshot, as its delta is stored
+     * (a store that fails rolls its delta back).
+     *
+     * @param pageOrigin the origin of the web-page
+     * @param pageCoverage the coverage the delta was computed from (held, so
+     * not to be changed afterwards)
+     */
+    synchronized void commit(String pageOrigin, JscovCoverageData pageCoverage) {
+        this.snapshotMap.put(pageOrigin, pageCoverage);
+    }
+
+    /**
+     * Roll back the delta of a failed store, it is included in the next
+     * delta of the web-page origin.
+     *
+     * @param pageOrigin the origin of the web-page
+     * @param deltaCoverage the delta (held, so not to be used afterwards)
+     */
+    synchronized void rollback(String pageOrigin, JscovCoverageData deltaCoverage) {
+        JscovCoverageData rolledBack = this.rolledBackMap.get(pageOrigin);
+
+        if (rolledBack == null) {
+            this.rolledBackMap.put(pageOrigin, deltaCoverage);
+        } else {
+            rolledBack.merge(deltaCoverage);
+        }
+    }
+
+    /**
+     * Remove the snapshots (the counters have been reset, or the WebDriver
+     * changed), the deltas rolled back are kept (coverage executed not yet
+     * in a report).
+     */
+    synchronized void clear() {
+        this.snapshotMap.clear();
+    }
+
+    /**
+     * Compute the delta of a JS-file.
+     *
+     * @param fileCoverage the coverage of the JS-file
+     * @param snapCoverage the snapshot of the JS-file, null for none
+     *
+     * @return the delta, null if a counter is lower than its snapshot
+     */
+    private static JscovFileCoverage fileDelta(JscovFileCoverage fileCoverage,
+            JscovFileCoverage snapCoverage) {
+        int[] lineDelta = deltaCounters(fileCoverage.getLineData(),
+                snapCoverage == null ? null : snapCoverage.getLineData());
+        int[] functionDelta = deltaCounters(fileCoverage.getFunctionData(),
+                snapCoverage == null ? null : snapCoverage.getFunctionData());
+
+        if (lineDelta == null || functionDelta == null) {
+            return null;
+        }
+        SortedMap<Integer, int[]> branchDelta = new TreeMap<>();
+
+        for (Map.Entry<Integer, int[]> branchEntry : fileCoverage.getBranchData().entrySet()) {
+            int[] conditions = branchEntry.getValue().clone();
+            int[] snapConditions = snapCoverage == null
+                    ? null : snapCoverage.getBranchData().get(branchEntry.getKey());
+
+            for (int i = 0; snapConditions != null && i < conditions.length
+                    && i < snapConditions.length; i += BRANCH_COND_SIZE) {
+                if (conditions[i + BRANCH_POSITION] == NOT_CODE
+                        || snapConditions[i + BRANCH_POSITION] == NOT_CODE) {
+                    continue;
+                }
+                conditions[i + BRANCH_EVAL_FALSE] -= snapConditions[i + BRANCH_EVAL_FALSE];
+                conditions[i + BRANCH_EVAL_TRUE] -= snapConditions[i + BRANCH_EVAL_TRUE];
+
+                if (conditions[i + BRANCH_EVAL_FALSE] < 0 || conditions[i + BRANCH_EVAL_TRUE] < 0) {
+                    return null;
+                }
+            }
+            branchDelta.put(branchEntry.getKey(), conditions);
+        }
+        return new JscovFileCoverage(fileCoverage.getUri(), lineDelta, functionDelta, branchDelta);
+    }
+
+    /**
+     * Compute the delta of a counters array, NOT_CODE is kept.
+     *
+     * @param counters the counters
+     * @param snapCounters the snapshot counters, null for none
+     *
+     * @return the delta counters, null if a counter is lower than its
+     * snapshot
+     */
+    private static int[] deltaCounters(int[] counters, int[] snapCounters) {
+        int[] deltaCounts = counters.clone();
+
+        for (int i = 0; snapCounters != null && i < deltaCounts.length
+                && i < snapCounters.length; i++) {
+            if (deltaCounts[i] == NOT_CODE || snapCounters[i] == NOT_CODE) {
+                continue;
+            }
+            deltaCounts[i] -= snapCounters[i];
+
+            if (deltaCounts[i] < 0) {
+                return null;
+            }
+        }
+        return deltaCounts;
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
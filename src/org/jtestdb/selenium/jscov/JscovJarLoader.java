@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class-loaders of JSCover-all.jar files for proxy-servers run within the
+ * test JVM&#46; Each loader is isolated from the test classpath (its parent
+ * is the platform/extension class-loader) so the JSCover dependencies do not
+ * clash with those of the test code.
+ * <p>
+ * JSCover keeps server state in static fields (e.g. the instrumented URI
+ * map cleared on each start), so a loader is used by one proxy-server at a
+ * time&#46; A stopped proxy-server returns its loader for the next start to
+ * re-use, its classes having been loaded and JIT compiled already.
+ */
+final class JscovJarLoader {
+
+    /**
+     * The idle loaders for each jar (keyed on its path and last-modified
+     * time, so a re-built jar is loaded afresh).
+     */
+    private final static Map<String, Deque<URLClassLoader>> IDLE_LOADERS = new HashMap<>();
+
+    /**
+     * The idle loaders key of each loader handed out.
+     */
+    private final static Map<URLClassLoader, String> LOADER_KEYS = new HashMap<>();
+
+    /**
+     * Not instantiated, static methods only.
+     */
+    private JscovJarLoader() {
+    }
+
+    /**
+     * Get a class-loader for the jar, re-using an idle loader if there is
+     * one.
+     *
+     * @param jarFile the JSCover-all.jar file
+     *
+     * @return the loader, to be returned with <code>release</code> once the
+     * proxy-server using it has stopped
+     *
+     * @exception RuntimeException if the jar cannot be made into a URL
+     */
+    static synchronized URLClassLoader acquire(File jarFile) {
+        String loaderKey = getLoaderKey(jarFile);
+
+        Deque<URLClassLoader> idleDeque = IDLE_LOADERS.get(loaderKey);
+
+        if (idleDeque != null && !idleDeque.isEmpty()) {
+            return idleDeque.pop();
+        }
+        URLClassLoader jarLoader;
+        try {
+            // the manifest Class-Path of the jar (if any) is followed by the
+            // URLClassLoader
+            jarLoader = new URLClassLoader(
+                    new URL[]{jarFile.getAbsoluteFile().toURI().toURL()},
+                    ClassLoader.getSystemClassLoader().getParent());
+
+        } catch (MalformedURLException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover jar cannot be loaded: %s\n%s",
+                    jarFile.getAbsolutePath(), ex.getMessage()));
+        }
+        LOADER_KEYS.put(jarLoader, loaderKey);
+        return jarLoader;
+    }
+
+    /**
+     * Return a loader as its proxy-server has stopped.
+     *
+     * @param jarLoader the loader from <code>acquire</code>
+     * @param reusable true if the loader may be used by another
+     * proxy-server, false to discard it (the proxy-server did not stop
+     * cleanly)
+     */
+    static synchronized void release(URLClassLoader jarLoader, boolean reusable) {
+        String loaderKey = LOADER_KEYS.get(jarLoader);
+
+        if (reusable && loaderKey != null) {
+            IDLE_LOADERS.computeIfAbsent(loaderKey, (k) -> new ArrayDeque<>())
+                    .push(jarLoader);
+            return;
+        }
+        LOADER_KEYS.remove(jarLoader);
+        try {
+            jarLoader.close();
+
+        } catch (IOException ex) {
+            // the loader is discarded, nothing more to do
+        }
+    }
+
+    /**
+     * Get the key of the idle loaders of a jar.
+     *
+     * @param jarFile the JSCover-all.jar file
+     *
+     * @return string of the path and last-modified time
+     */
+    private static String getLoaderKey(File jarFile) {
+        return String.format("%s|%d",
+                jarFile.getAbsolutePath(), jarFile.lastModified());
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
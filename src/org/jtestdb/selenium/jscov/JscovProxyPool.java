@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A pool of pre-started JSCover proxy-servers (JscovTestUtil objects) that
+ * are leased to test-classes&#46; Each JscovTestUtil start pays for a JVM
+ * launch of JSCover-all.jar; with many test-classes this adds up, the pool
+ * starts the proxy-servers up front (in parallel) so a test-class setup
+ * receives an already started proxy-server.
+ * <p>
+ * The pool keeps a number of proxy-servers warm: as proxy-servers are leased
+ * replacements are started in the background. A returned proxy-server has its
+ * report stored and its report target reset to the report directory, and is
+ * then available to the next lease.
+ * <p>
+ * The JscovTestUtil objects are created by a supplier so they may be
+ * configured as any other JscovTestUtil (options, on-code-coverage,...)&#46;
+ * The supplier must create each object with its own port, typically
+ * <code>JscovTestUtil.ANY_FREE_PORT</code>.
+ * <pre>
+ * &#64;BeforeSuite
+ * public void beforeSuite() {
+ *   pool = new JscovProxyPool(() -&gt;
+ *           new JscovTestUtil(JscovTestUtil.ANY_FREE_PORT, "myreports")
+ *                   .setOnCodeCoverage()
+ *                   .optionNoInstrument("aes.js"),
+ *           4);
+ * }
+ *
+ * &#64;BeforeClass
+ * public void beforeClass() {
+ *   jscovObject = pool.leaseIntoSubDir("loginpage");
+ *   driver = jscovObject.webDriverForJSCoverProxy(CHROME);
+ * }
+ *
+ * &#64;AfterClass
+ * public void afterClass() {
+ *   pool.release(jscovObject, 30); // before the driver is quit
+ *   driver.quit();
+ * }
+ *
+ * &#64;AfterSuite
+ * public void afterSuite() {
+ *   pool.shutdown(30);
+ * }
+ * </pre>
+ * <p>
+ * A leased JscovTestUtil is not to be stopped by the test-class (the pool
+ * does this on shutdown)&#46; A leased object that is stopped, or whose
+ * proxy-server terminated, is discarded on release and replaced.
+ */
+public class JscovProxyPool {
+
+    /**
+     * Creates the JscovTestUtil objects of the pool.
+     */
+    private final Supplier<JscovTestUtil> proxyFactory;
+
+    /**
+     * The number of started proxy-servers the pool keeps ready for lease.
+     */
+    private final int warmCount;
+
+    /**
+     * Started proxy-servers available for lease.
+     */
+    private final LinkedBlockingQueue<JscovTestUtil> idleProxies = new LinkedBlockingQueue<>();
+
+    /**
+     * Proxy-servers currently leased.
+     */
+    private final Set<JscovTestUtil> leasedProxies = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The number of proxy-servers being started in the background.
+     */
+    private final AtomicInteger startingCount = new AtomicInteger();
+
+    /**
+     * Executor that starts the proxy-servers in the background.
+     */
+    private final ExecutorService starterExecutor;
+
+    /**
+     * The time (milliseconds) a lease waits for a started proxy-server.
+     */
+    private volatile int leaseTimeoutMsecs = 60000;
+
+    /**
+     * The message of the last failed background start, null if none.
+     */
+    private volatile String lastStartFailure = null;
+
+    /**
+     * True once the pool has been shutdown.
+     */
+    private volatile boolean shutdown = false;
+
+    /**
+     * Create a pool and start 'warmCount' proxy-servers in parallel&#46; The
+     * constructor returns immediately, leases wait for the starts.
+     *
+     * @param proxyFactory creates a configured (not started) JscovTestUtil
+     * object, each with its own port (e.g. ANY_FREE_PORT)
+     * @param warmCount the number of started proxy-servers to keep ready for
+     * lease
+     *
+     * @exception RuntimeException if warmCount is not positive
+     */
+    public JscovProxyPool(Supplier<JscovTestUtil> proxyFactory, int warmCount) {
+        if (warmCount <= 0) {
+            throw new RuntimeException("The pool warmCount needs to be positive.");
+        }
+        this.proxyFactory = proxyFactory;
+        this.warmCount = warmCount;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.starterExecutor = Executors.newFixedThreadPool(warmCount, (runnable) -> {
+            Thread starterThread = new Thread(runnable,
+                    "JscovProxyPool-starter-" + threadNo.incrementAndGet());
+            starterThread.setDaemon(true);
+            return starterThread;
+        });
+        topUp();
+    }
+
+    /**
+     * Set the time a lease will wait for a started proxy-server&#46; The
+     * default is 60 seconds.
+     *
+     * @param leaseTimeoutMsecs time (milliseconds) to wait
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovProxyPool setLeaseTimeout(int leaseTimeoutMsecs) {
+        this.leaseTimeoutMsecs = leaseTimeoutMsecs;
+        return this;
+    }
+
+    /**
+     * Lease a started proxy-server reporting into its report directory.
+     *
+     * @return a started JscovTestUtil object
+     *
+     * @exception RuntimeException if the pool is shutdown or no proxy-server
+     * was started within the lease time-out
+     */
+    public JscovTestUtil lease() {
+        return leaseInternal(0, "");
+    }
+
+    /**
+     * Lease a started proxy-server reporting into a sub-directory of its
+     * report directory (as <code>reportIntoSubDir</code>).
+     *
+     * @param furtherSubDir name of the sub-directory to use
+     *
+     * @return a started JscovTestUtil object
+     *
+     * @exception RuntimeException if the pool is shutdown or no proxy-server
+     * was started within the lease time-out
+     */
+    public JscovTestUtil leaseIntoSubDir(String furtherSubDir) {
+        return leaseInternal(0, furtherSubDir);
+    }
+
+    /**
+     * Lease a started proxy-server reporting into a new time-stamped
+     * sub-directory of its report directory (as
+     * <code>reportIntoTimeStampDir</code>).
+     *
+     * @param retainNTimestampReports the number of report directories with
+     * time-stamps to be retained in the reporting directory (0 means retain
+     * all) applied when the proxy-server is released
+     *
+     * @return a started JscovTestUtil object
+     *
+     * @exception RuntimeException if the pool is shutdown or no proxy-server
+     * was started within the lease time-out, or retainNTimestampReports is
+     * negative
+     */
+    public JscovTestUtil leaseIntoTimeStampDir(int retainNTimestampReports) {
+        return leaseInternal(retainNTimestampReports, JscovTestUtil.newTimeStampDirName());
+    }
+
+    /**
+     * Return a leased proxy-server to the pool&#46; The code-coverage report
+     * is stored (the WebDriver needs to still have its session), then the
+     * proxy-server is made available to the next lease.
+     *
+     * @param proxy the leased JscovTestUtil object
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     *
+     * @exception RuntimeException if the object was not leased from this pool
+     */
+    public void release(JscovTestUtil proxy, int timerForJscoverReport2Complete) {
+        if (!this.leasedProxies.remove(proxy)) {
+            throw new RuntimeException("The JscovTestUtil was not leased from this pool.");
+        }
+        try {
+            proxy.storeAndResetForReuse(timerForJscoverReport2Complete);
+
+        } finally {
+            if (proxy.isReadyForLease() && !this.shutdown) {
+                this.idleProxies.add(proxy);
+            } else {
+                // stopped by the user or terminated, replace it
+                proxy.tearDownProxyServer(false);
+                topUp();
+            }
+        }
+    }
+
+    /**
+     * Stop all the proxy-servers of the pool, both idle and leased (leased
+     * proxy-servers have their report stored first)&#46; The pool cannot be
+     * used after shutdown.
+     *
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     */
+    public void shutdown(int timerForJscoverReport2Complete) {
+        this.shutdown = true;
+        this.starterExecutor.shutdown();
+        try {
+            this.starterExecutor.awaitTermination(this.leaseTimeoutMsecs, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<JscovTestUtil> proxiesToStop = new ArrayList<>(this.leasedProxies);
+        this.leasedProxies.clear();
+        this.idleProxies.drainTo(proxiesToStop);
+
+        for (JscovTestUtil proxy : proxiesToStop) {
+            proxy.stopProxyServer(timerForJscoverReport2Complete);
+        }
+    }
+
+    /**
+     * Get the number of started proxy-servers ready for lease.
+     *
+     * @return the idle count
+     */
+    public int getIdleCount() {
+        return this.idleProxies.size();
+    }
+
+    /**
+     * Lease a proxy-server and set its report target.
+     *
+     * @param retainNTimestampReports the retain value for time-stamp reports
+     * @param furtherSubDirOrTimeStamp the sub-directory to report into
+     *
+     * @return a started JscovTestUtil object
+     */
+    private JscovTestUtil leaseInternal(int retainNTimestampReports, String furtherSubDirOrTimeStamp) {
+        if (this.shutdown) {
+            throw new RuntimeException("The JscovProxyPool is shutdown.");
+        }
+        long deadline = System.currentTimeMillis() + this.leaseTimeoutMsecs;
+
+        while (true) {
+            // ask for replacements before waiting, so the pool is refilled
+            // while this lease waits
+            topUp();
+
+            JscovTestUtil proxy;
+            try {
+                proxy = this.idleProxies.poll(
+                        Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting on a JscovProxyPool lease.");
+            }
+            if (proxy == null) {
+                throw new RuntimeException(String.format(
+                        "No proxy-server started within %d msecs for a JscovProxyPool lease.%s",
+                        this.leaseTimeoutMsecs,
+                        this.lastStartFailure == null ? ""
+                        : "\nLast start failure: " + this.lastStartFailure));
+            }
+            if (!proxy.isReadyForLease()) {
+                // terminated while idle, discard it
+                proxy.tearDownProxyServer(false);
+                continue;
+            }
+            proxy.setReportTargetInternal(retainNTimestampReports, furtherSubDirOrTimeStamp);
+            this.leasedProxies.add(proxy);
+
+            topUp();
+            return proxy;
+        }
+    }
+
+    /**
+     * Start proxy-servers in the background so the idle and starting count
+     * reaches the warm count.
+     */
+    private synchronized void topUp() {
+        if (this.shutdown) {
+            return;
+        }
+        int deficit = this.warmCount - this.idleProxies.size() - this.startingCount.get();
+
+        for (int i = 0; i < deficit; i++) {
+            this.startingCount.incrementAndGet();
+            this.starterExecutor.execute(this::startOneProxy);
+        }
+    }
+
+    /**
+     * Create and start a proxy-server and make it available for lease (runs
+     * on a starter thread).
+     */
+    private void startOneProxy() {
+        try {
+            JscovTestUtil proxy = this.proxyFactory.get();
+            proxy.startProxyServer();
+
+            if (this.shutdown) {
+                proxy.stopProxyServer(0);
+            } else {
+                this.idleProxies.add(proxy);
+            }
+        } catch (RuntimeException rte) {
+            this.lastStartFailure = rte.getMessage();
+            System.err.printf("\nINFO: JscovProxyPool: proxy-server start failed\n%s\n",
+                    rte.getMessage());
+        } finally {
+            this.startingCount.decrementAndGet();
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The archive of a report: the report directory packed into one compressed
+ * file beside it, 'jscov20260101_000000_000.zip' for the report directory
+ * 'jscov20260101_000000_000', the directory then deleted&#46; A time-stamp
+ * report is archived once it is not the latest (see
+ * <code>setOnArchiveReport</code>), so the reports retained are a file
+ * each.
+ * <p>
+ * An archived report is read where it is, not unpacked: its code-coverage
+ * (<code>JscovCoverageData.readReport</code>, so merges) from the binary
+ * written into the archive, its files (viewing, the sources of a merge)
+ * from the entries of the archive&#46; An archived report stored into again is
+ * unpacked first.
+ */
+final class JscovReportArchive {
+
+    /**
+     * The suffix of the archive file of a report directory.
+     */
+    final static String ARCHIVE_FILE_SUFFIX = ".zip";
+
+    private JscovReportArchive() {
+    }
+
+    /**
+     * Get the archive file of a report directory.
+     *
+     * @param reportDir the report directory
+     *
+     * @return the archive file (may not exist)
+     */
+    static File archiveFileOf(File reportDir) {
+        return new File(reportDir.getParentFile(), reportDir.getName() + ARCHIVE_FILE_SUFFIX);
+    }
+
+    /**
+     * Is a report archived, its archive file exists (a directory beside it
+     * is left by an archive that ended part way, or is being unpacked, and
+     * is not read).
+     *
+     * @param reportDir the report directory
+     *
+     * @return true if archived
+     */
+    static boolean isArchived(File reportDir) {
+        return archiveFileOf(reportDir).isFile();
+    }
+
+    /**
+     * Archive a report directory: its files and the binary of its
+     * code-coverage are packed into the archive file (written aside and
+     * moved into place), then the directory moved to the trash (at once,
+     * atomically) and deleted&#46; Files that could not be deleted are
+     * reported by an INFO message&#46; A report already archived has only
+     * the directory left beside its archive removed.
+     *
+     * @param reportDir the report directory
+     *
+     * @exception RuntimeException if the report cannot be read or the archive
+     * written
+     */
+    static void archive(File reportDir) {
+        File archiveFile = archiveFileOf(reportDir);
+        File reportsDir = reportDir.getParentFile();
+
+        if (archiveFile.isFile()) {
+            JscovRetention.moveToTrash(reportsDir, reportDir);
+            JscovRetention.emptyTrash(reportsDir);
+            return;
+        }
+        File tmpFile = new File(archiveFile.getPath() + ".tmp");
+        Path reportPath = reportDir.toPath();
+
+        JscovCoverageData coverageData = JscovCoverageData.readReport(reportDir);
+
+        try (ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tmpFile.toPath())))) {
+
+            Files.walkFileTree(reportPath, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String entryName = reportPath.relativize(file).toString()
+                            .replace(File.separatorChar, '/');
+
+                    // the binary is written current, a mark of shared
+                    // sources does not apply to an archive
+                    if (!attrs.isRegularFile()
+                            || entryName.equals(JscovCoverageBinary.REPORT_BINARY_FILE_NAME)
+                            || entryName.equals(JscovSourceStore.SHARED_MARK_FILE_NAME)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    zipOut.putNextEntry(new ZipEntry(entryName));
+                    Files.copy(file, zipOut);
+                    zipOut.closeEntry();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            zipOut.putNextEntry(new ZipEntry(JscovCoverageBinary.REPORT_BINARY_FILE_NAME));
+            JscovCoverageBinary.write(coverageData, zipOut);
+            zipOut.closeEntry();
+
+        } catch (IOException ex) {
+            tmpFile.delete();
+            throw new RuntimeException(String.format(
+                    "JSCover report cannot be archived: %s\n%s",
+                    reportDir.getPath(), ex.getMessage()));
+        }
+        try {
+            Files.move(tmpFile.toPath(), archiveFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException ex) {
+            tmpFile.delete();
+            throw new RuntimeException(String.format(
+                    "JSCover report archive cannot be written: %s\n%s",
+                    archiveFile.getPath(), ex.getMessage()));
+        }
+        JscovRetention.moveToTrash(reportsDir, reportDir);
+        JscovRetention.emptyTrash(reportsDir);
+    }
+
+    /**
+     * Unpack an archived report into its directory (a directory left beside
+     * the archive is removed first), then delete the archive file, none if
+     * the report is not archived.
+     *
+     * @param reportDir the report directory
+     *
+     * @exception RuntimeException if the archive cannot be unpacked
+     */
+    static void unarchive(File reportDir) {
+        if (!isArchived(reportDir)) {
+            return;
+        }
+        File archiveFile = archiveFileOf(reportDir);
+        Path reportPath = reportDir.toPath();
+
+        JscovRetention.moveToTrash(reportDir.getParentFile(), reportDir);
+        JscovRetention.emptyTrash(reportDir.getParentFile());
+
+        try (ZipFile zipFile = new ZipFile(archiveFile)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                Path targetPath = reportPath.resolve(entry.getName()).normalize();
+
+                if (!targetPath.startsWith(reportPath)) {
+                    throw new IOException("entry outside of the report: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(targetPath);
+                    continue;
+                }
+                Files.createDirectories(targetPath.getParent());
+
+                try (InputStream entryIn = zipFile.getInputStream(entry)) {
+                    Files.copy(entryIn, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover report archive cannot be unpacked: %s\n%s",
+                    archiveFile.getPath(), ex.getMessage()));
+        }
+        // the binary unpacked is not of the JSON unpacked (a store reads
+        // the JSON, a compacted report is restored from the binary)
+        if (new File(reportDir, JscovCoverageData.REPORT_JSON_FILE_NAME).isFile()) {
+            new File(reportDir, JscovCoverageBinary.REPORT_BINARY_FILE_NAME).delete();
+        }
+        archiveFile.delete();
+    }
+
+    /**
+     * Read the code-coverage of an archived report, from its binary (or
+     * its 'jscoverage.json' if none).
+     *
+     * @param reportDir the report directory
+     *
+     * @return the code-coverage, empty if the archive has none
+     *
+     * @exception RuntimeException if the archive cannot be read
+     */
+    static JscovCoverageData readReport(File reportDir) {
+        File archiveFile = archiveFileOf(reportDir);
+
+        try (ZipFile zipFile = new ZipFile(archiveFile)) {
+            ZipEntry binaryEntry = zipFile.getEntry(JscovCoverageBinary.REPORT_BINARY_FILE_NAME);
+
+            if (binaryEntry != null) {
+                try (InputStream entryIn = zipFile.getInputStream(binaryEntry)) {
+                    return JscovCoverageBinary.read(entryIn);
+                }
+            }
+            ZipEntry jsonEntry = zipFile.getEntry(JscovCoverageData.REPORT_JSON_FILE_NAME);
+
+            if (jsonEntry == null) {
+                return new JscovCoverageData();
+            }
+            try (Reader entryReader = new InputStreamReader(
+                    zipFile.getInputStream(jsonEntry), StandardCharsets.UTF_8)) {
+                return JscovCoverageData.readJSON(entryReader);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover report archive cannot be read: %s\n%s",
+                    archiveFile.getPath(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Write a file of an archived report, its 'jscoverage.json' written from
+     * the binary if the archive does not have it (a compacted report).
+     *
+     * @param zipFile the archive, opened
+     * @param entryName the file within the report (e.g. 'jscoverage.html')
+     * @param out the stream to write (not closed)
+     *
+     * @return true if written, false if the archive has no such file
+     *
+     * @throws IOException if the archive cannot be read
+     */
+    static boolean writeEntry(ZipFile zipFile, String entryName, OutputStream out) throws IOException {
+        ZipEntry entry = zipFile.getEntry(entryName);
+
+        if (entry != null && !entry.isDirectory()) {
+            try (InputStream entryIn = zipFile.getInputStream(entry)) {
+                byte[] buffer = new byte[8192];
+                int readCount;
+
+                while ((readCount = entryIn.read(buffer)) > 0) {
+                    out.write(buffer, 0, readCount);
+                }
+            }
+            return true;
+        }
+        ZipEntry binaryEntry = zipFile.getEntry(JscovCoverageBinary.REPORT_BINARY_FILE_NAME);
+
+        if (entryName.equals(JscovCoverageData.REPORT_JSON_FILE_NAME) && binaryEntry != null) {
+            try (InputStream binaryIn = zipFile.getInputStream(binaryEntry)) {
+                out.write(JscovCoverageBinary.read(binaryIn).toJSON().getBytes(StandardCharsets.UTF_8));
+            }
+            return true;
+        }
+        return false;
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
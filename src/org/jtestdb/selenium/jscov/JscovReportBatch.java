@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The batch of the stores of one JscovTestUtil not yet written (see
+ * <code>setOnBatchReport</code>)&#46; The code-coverage of each store is
+ * summed into that of its report directory (and web-page origin) in
+ * memory, as the write of the report would have summed it into the
+ * 'jscoverage.json', so writing the batch once gives the report the
+ * stores one at a time would have.
+ * <p>
+ * The batch is due to be written once maxCalls stores are held or
+ * windowMsecs has elapsed since the first store held (0 for no limit of
+ * either), checked as each store is added&#46; Not thread-safe, it is used
+ * by the test thread.
+ */
+final class JscovReportBatch {
+
+    /**
+     * The code-coverage held for a report directory and web-page origin.
+     */
+    static final class Entry {
+
+        /**
+         * The report directory.
+         */
+        final File reportDir;
+
+        /**
+         * The origin of the web-page, the original JS-files are fetched
+         * from.
+         */
+        final String pageOrigin;
+
+        /**
+         * The summed code-coverage of the stores.
+         */
+        final JscovCoverageData coverageData = new JscovCoverageData();
+
+        /**
+         * Create an empty entry.
+         *
+         * @param reportDir the report directory
+         * @param pageOrigin the origin of the web-page
+         */
+        private Entry(File reportDir, String pageOrigin) {
+            this.reportDir = reportDir;
+            this.pageOrigin = pageOrigin;
+        }
+    }
+
+    /**
+     * The maximum number of stores held, 0 for no limit.
+     */
+    private final int maxCalls;
+
+    /**
+     * The time (milliseconds) a store is held, 0 for no limit.
+     */
+    private final int windowMsecs;
+
+    /**
+     * The entries by report directory and origin, in the order first
+     * stored.
+     */
+    private final Map<String, Entry> entryMap = new LinkedHashMap<>();
+
+    /**
+     * The number of stores held.
+     */
+    private int callCount = 0;
+
+    /**
+     * The time (milliseconds) of the first store held.
+     */
+    private long firstCallMsecs = 0;
+
+    /**
+     * Create an empty batch.
+     *
+     * @param maxCalls the maximum number of stores held, 0 for no limit
+     * @param windowMsecs the time (milliseconds) a store is held, 0 for no
+     * limit
+     */
+    JscovReportBatch(int maxCalls, int windowMsecs) {
+        this.maxCalls = maxCalls;
+        this.windowMsecs = windowMsecs;
+    }
+
+    /**
+     * Add the code-coverage of a store.
+     *
+     * @param coverageData the code-coverage (held, so not to be used
+     * afterwards)
+     * @param pageOrigin the origin of the web-page
+     * @param reportDir the report directory
+     *
+     * @return true if the batch is now due to be written
+     */
+    boolean add(JscovCoverageData coverageData, String pageOrigin, File reportDir) {
+        String entryKey = reportDir.getPath() + '\n' + pageOrigin;
+        Entry entry = this.entryMap.get(entryKey);
+
+        if (entry == null) {
+            entry = new Entry(reportDir, pageOrigin);
+            this.entryMap.put(entryKey, entry);
+        }
+        entry.coverageData.merge(coverageData);
+
+        long nowMsecs = System.currentTimeMillis();
+        if (this.callCount++ == 0) {
+            this.firstCallMsecs = nowMsecs;
+        }
+        return (this.maxCalls > 0 && this.callCount >= this.maxCalls)
+                || (this.windowMsecs > 0 && nowMsecs - this.firstCallMsecs >= this.windowMsecs);
+    }
+
+    /**
+     * Get the number of stores held.
+     *
+     * @return the count
+     */
+    int getCallCount() {
+        return this.callCount;
+    }
+
+    /**
+     * Take the entries held, the batch is then empty.
+     *
+     * @return the entries in the order first stored
+     */
+    List<Entry> drain() {
+        List<Entry> entryList = new ArrayList<>(this.entryMap.values());
+
+        this.entryMap.clear();
+        this.callCount = 0;
+        return entryList;
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,805 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * The manifest of the reports of a reports directory, the append-only file
+ * 'jscovtestutil.manifest' in it&#46; A line is appended as a report
+ * (run) is stored into, as it is stopped and as it is removed, so the runs,
+ * their times, sizes and summary code-coverage are known without listing
+ * (and stat-ing) the reports directory:
+ * <pre>
+ *   S|E  run  timeMsecs  bytes  codeLines  coveredLines  branches  coveredBranches
+ *   A    run  timeMsecs  bytes
+ *   R    run  timeMsecs
+ *   D    -    timeMsecs  dirMsecs
+ * </pre>
+ * (tab separated, S a store, E a stop, A an archive of the bytes of the
+ * archive, R a removal, D a reconcile of the reports directory as of its
+ * modified time; -1 is not known)&#46;
+ * The file is read once and then from where the last read ended, so the
+ * lines of another JVM reporting into the same directory are seen&#46; A
+ * manifest is re-written without the removed runs once they are most of it,
+ * under a new generation (the header line), a reader of another generation
+ * reads it again from the start&#46; The appends, reads and re-writes are
+ * made under a file lock (the 'jscovtestutil.manifest.lock' sibling) and
+ * a JVM lock, so the JVMs sharing a reports directory do not lose lines.
+ * <p>
+ * The manifest is reconciled with the reports directory as listed (see
+ * <code>reconcile</code>) when a look-up misses, or when the reports
+ * directory was modified since the last reconcile (a run directory or
+ * archive created or removed, by this or another JVM, a tool or by hand
+ * modifies it), so a run not recorded or removed other than by this is
+ * known&#46; A reports directory not modified is not listed.
+ * <p>
+ * Thread-safe, stores may be recorded by the background report writer.
+ */
+final class JscovReportManifest {
+
+    /**
+     * The name of the manifest file of a reports directory.
+     */
+    final static String MANIFEST_FILE_NAME = "jscovtestutil.manifest";
+
+    /**
+     * The name of the lock file of the manifest, in the reports directory.
+     */
+    private final static String LOCK_FILE_NAME = "jscovtestutil.manifest.lock";
+
+    /**
+     * The first line of a manifest, followed by its generation.
+     */
+    private final static String MANIFEST_HEADER = "#jscovtestutil-manifest 1";
+
+    /**
+     * The JVM lock, the file lock is per JVM.
+     */
+    private final static Object JVM_LOCK = new Object();
+
+    /**
+     * The number of lines of a manifest above which it may be re-written.
+     */
+    private final static int REWRITE_MIN_LINES = 1000;
+
+    /**
+     * The age (milliseconds) of a modified time of the reports directory
+     * below which it is not recorded by a reconcile (a modify within the
+     * resolution of the file-system time could leave it the same).
+     */
+    private final static long DIR_MSECS_SETTLE_MSECS = 2000;
+
+    /**
+     * The manifest of a run (report directory).
+     */
+    static final class RunEntry {
+
+        /**
+         * The name of the run, its directory in the reports directory.
+         */
+        final String runName;
+
+        /**
+         * The time (milliseconds) of the first store.
+         */
+        long startMsecs;
+
+        /**
+         * The time (milliseconds) of the last store or stop.
+         */
+        long lastMsecs;
+
+        /**
+         * The time (milliseconds) of the stop, 0 if not stopped.
+         */
+        long endMsecs = 0;
+
+        /**
+         * The size (bytes) of the report at the stop, -1 if not known.
+         */
+        long bytes = -1;
+
+        /**
+         * The number of code lines, -1 if not known.
+         */
+        long codeLines = -1;
+
+        /**
+         * The number of code lines executed, -1 if not known.
+         */
+        long coveredLines = -1;
+
+        /**
+         * The number of branches, -1 if not known.
+         */
+        long branches = -1;
+
+        /**
+         * The number of branches taken, -1 if not known.
+         */
+        long coveredBranches = -1;
+
+        /**
+         * Create the entry of a run.
+         *
+         * @param runName the name of the run
+         * @param startMsecs the time (milliseconds) of the first store
+         */
+        private RunEntry(String runName, long startMsecs) {
+            this.runName = runName;
+            this.startMsecs = startMsecs;
+            this.lastMsecs = startMsecs;
+        }
+    }
+
+    /**
+     * The reports directory.
+     */
+    private final File reportsDir;
+
+    /**
+     * The manifest file.
+     */
+    private final File manifestFile;
+
+    /**
+     * The runs not removed, in the order first stored.
+     */
+    private final Map<String, RunEntry> runMap = new LinkedHashMap<>();
+
+    /**
+     * The names of the runs not removed, ordered.
+     */
+    private final TreeSet<String> runNameSet = new TreeSet<>();
+
+    /**
+     * The header line (of the generation) of the file last read, null if
+     * none.
+     */
+    private String headerLine = null;
+
+    /**
+     * The file position the last read ended at.
+     */
+    private long readPos = 0;
+
+    /**
+     * The number of lines read.
+     */
+    private int lineCount = 0;
+
+    /**
+     * The modified time of the reports directory at the last reconcile,
+     * -1 if none.
+     */
+    private long reconciledDirMsecs = -1;
+
+    /**
+     * Create the manifest of a reports directory (the file is read as
+     * needed).
+     *
+     * @param reportsDir the reports directory
+     */
+    JscovReportManifest(File reportsDir) {
+        this.reportsDir = reportsDir;
+        this.manifestFile = new File(reportsDir, MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * Does the manifest file exist.
+     *
+     * @return true if it exists
+     */
+    boolean exists() {
+        return this.manifestFile.isFile();
+    }
+
+    /**
+     * Is this the manifest of a reports directory.
+     *
+     * @param reportsDir the reports directory
+     *
+     * @return true if it is
+     */
+    boolean isOf(File reportsDir) {
+        return this.reportsDir.equals(reportsDir);
+    }
+
+    /**
+     * Record a store into a report, none if the report directory is not
+     * within the reports directory (a run).
+     *
+     * @param reportDir the report directory
+     * @param coverageData the code-coverage of the report, null if not known
+     */
+    synchronized void recordStore(File reportDir, JscovCoverageData coverageData) {
+        String runName = runNameOf(reportDir);
+
+        if (runName != null) {
+            append(summaryLine("S", runName, -1, coverageData));
+        }
+    }
+
+    /**
+     * Record the stop of a report, with its size and code-coverage (the
+     * report is read), none if the report directory is not within the
+     * reports directory or does not exist.
+     *
+     * @param reportDir the report directory
+     */
+    synchronized void recordStop(File reportDir) {
+        String runName = runNameOf(reportDir);
+
+        if (runName == null || !reportDir.isDirectory()) {
+            return;
+        }
+        JscovCoverageData coverageData = null;
+        try {
+            coverageData = JscovCoverageData.readReport(reportDir);
+
+        } catch (RuntimeException ex) {
+            // the summary is not known
+        }
+        append(summaryLine("E", runName, JscovRetention.sizeOf(reportDir), coverageData));
+    }
+
+    /**
+     * Record the archive of a report, with the size of the archive (see
+     * <code>JscovReportArchive</code>).
+     *
+     * @param reportDir the report directory
+     */
+    synchronized void recordArchived(File reportDir) {
+        String runName = runNameOf(reportDir);
+
+        if (runName != null) {
+            append(String.format("A\t%s\t%d\t%d\n", runName, System.currentTimeMillis(),
+                    JscovReportArchive.archiveFileOf(reportDir).length()));
+        }
+    }
+
+    /**
+     * Record the removal of runs.
+     *
+     * @param runNameList the names of the runs
+     */
+    synchronized void recordRemoved(List<String> runNameList) {
+        StringBuilder lines = new StringBuilder();
+
+        for (String runName : runNameList) {
+            lines.append("R\t").append(runName).append('\t')
+                    .append(System.currentTimeMillis()).append('\n');
+        }
+        if (lines.length() > 0) {
+            append(lines.toString());
+        }
+    }
+
+    /**
+     * Record runs found on disk (a manifest started for a reports directory
+     * already holding reports), a run already in the manifest is left.
+     *
+     * @param runNameList the names of the runs
+     */
+    synchronized void recordFound(List<String> runNameList) {
+        read();
+        StringBuilder lines = new StringBuilder();
+
+        for (String runName : runNameList) {
+            if (!this.runMap.containsKey(runName)) {
+                File reportDir = new File(this.reportsDir, runName);
+                long foundMsecs = reportDir.isDirectory() ? reportDir.lastModified()
+                        : JscovReportArchive.archiveFileOf(reportDir).lastModified();
+
+                lines.append("S\t").append(runName).append('\t').append(foundMsecs)
+                        .append("\t-1\t-1\t-1\t-1\t-1\n");
+            }
+        }
+        if (lines.length() > 0) {
+            append(lines.toString());
+        }
+    }
+
+    /**
+     * Reconcile the runs of the manifest with those found on disk: a run
+     * found that is not in the manifest is recorded (e.g. of a store that
+     * timed out while JSCover still wrote it, or of another tool), a run
+     * accepted that is not found is recorded as removed (e.g. removed by
+     * hand)&#46; The modified time of the reports directory is recorded, a
+     * later reconcile is due only once it is modified again.
+     *
+     * @param foundRunNameList the names of the runs found
+     * @param isAccepted the test of the name of a run that may be removed
+     * @param dirMsecs the modified time of the reports directory taken
+     * before it was listed
+     */
+    synchronized void reconcile(List<String> foundRunNameList, Predicate<String> isAccepted,
+            long dirMsecs) {
+        read();
+        Set<String> foundRunNameSet = new HashSet<>(foundRunNameList);
+        List<String> removedList = new ArrayList<>();
+
+        for (String runName : this.runNameSet) {
+            if (isAccepted.test(runName) && !foundRunNameSet.contains(runName)) {
+                removedList.add(runName);
+            }
+        }
+        recordFound(foundRunNameList);
+        recordRemoved(removedList);
+
+        if (dirMsecs > 0 && dirMsecs < System.currentTimeMillis() - DIR_MSECS_SETTLE_MSECS) {
+            append(String.format("D\t-\t%d\t%d\n", System.currentTimeMillis(), dirMsecs));
+        }
+    }
+
+    /**
+     * Is a reconcile due, the reports directory modified since the last
+     * reconcile (or none).
+     *
+     * @return true if due
+     */
+    synchronized boolean isReconcileDue() {
+        read();
+        return this.reconciledDirMsecs < 0 || this.reportsDir.lastModified() != this.reconciledDirMsecs;
+    }
+
+    /**
+     * Get the runs not removed that are accepted.
+     *
+     * @param isAccepted the test of a run name
+     *
+     * @return copies of the entries, ordered by name
+     */
+    synchronized List<RunEntry> getRunEntries(Predicate<String> isAccepted) {
+        read();
+        List<RunEntry> entryList = new ArrayList<>();
+
+        for (String runName : this.runNameSet) {
+            if (!isAccepted.test(runName)) {
+                continue;
+            }
+            RunEntry entry = this.runMap.get(runName);
+            RunEntry copyEntry = new RunEntry(entry.runName, entry.startMsecs);
+            copyEntry.lastMsecs = entry.lastMsecs;
+            copyEntry.endMsecs = entry.endMsecs;
+            copyEntry.bytes = entry.bytes;
+            copyEntry.codeLines = entry.codeLines;
+            copyEntry.coveredLines = entry.coveredLines;
+            copyEntry.branches = entry.branches;
+            copyEntry.coveredBranches = entry.coveredBranches;
+            entryList.add(copyEntry);
+        }
+        return entryList;
+    }
+
+    /**
+     * Get the names of the runs not removed that are accepted, ordered.
+     *
+     * @param isAccepted the test of a run name
+     *
+     * @return the names
+     */
+    synchronized List<String> getRunNames(Predicate<String> isAccepted) {
+        read();
+        List<String> nameList = new ArrayList<>();
+
+        for (String runName : this.runNameSet) {
+            if (isAccepted.test(runName)) {
+                nameList.add(runName);
+            }
+        }
+        return nameList;
+    }
+
+    /**
+     * Get the last (in name order) run not removed that is accepted.
+     *
+     * @param isAccepted the test of a run name
+     *
+     * @return the name, null if none
+     */
+    synchronized String getLastRunName(Predicate<String> isAccepted) {
+        read();
+        for (String runName : this.runNameSet.descendingSet()) {
+            if (isAccepted.test(runName)) {
+                return runName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the name of the run of a report directory, its path within the
+     * reports directory.
+     *
+     * @param reportDir the report directory
+     *
+     * @return the name, null if not within the reports directory (or of a
+     * name the manifest cannot hold)
+     */
+    private String runNameOf(File reportDir) {
+        String runName = this.reportsDir.toPath().relativize(reportDir.toPath())
+                .toString().replace(File.separatorChar, '/');
+
+        if (runName.isEmpty() || runName.startsWith("..")
+                || runName.indexOf('\t') >= 0 || runName.indexOf('\n') >= 0) {
+            return null;
+        }
+        return runName;
+    }
+
+    /**
+     * The line of a store or stop.
+     *
+     * @param kind "S" or "E"
+     * @param runName the name of the run
+     * @param bytes the size of the report, -1 if not known
+     * @param coverageData the code-coverage of the report, null if not known
+     *
+     * @return the line
+     */
+    private static String summaryLine(String kind, String runName, long bytes,
+            JscovCoverageData coverageData) {
+        long codeLines = -1;
+        long coveredLines = -1;
+        long branches = -1;
+        long coveredBranches = -1;
+
+        if (coverageData != null) {
+            codeLines = 0;
+            coveredLines = 0;
+            branches = 0;
+            coveredBranches = 0;
+            for (JscovFileCoverage fileCoverage : coverageData.getFileCoverages()) {
+                codeLines += fileCoverage.getCodeLineCount();
+                coveredLines += fileCoverage.getCodeLinesCoveredCount();
+                branches += fileCoverage.getBranchCount();
+                coveredBranches += fileCoverage.getBranchesCoveredCount();
+            }
+        }
+        return String.format("%s\t%s\t%d\t%d\t%d\t%d\t%d\t%d\n", kind, runName,
+                System.currentTimeMillis(), bytes, codeLines, coveredLines, branches, coveredBranches);
+    }
+
+    /**
+     * An action on the manifest file under the JVM and file locks.
+     */
+    private interface ManifestAction {
+
+        /**
+         * Perform the action.
+         *
+         * @exception IOException if the manifest file cannot be written
+         */
+        void perform() throws IOException;
+    }
+
+    /**
+     * Perform an action on the manifest file under the JVM and file locks.
+     *
+     * @param manifestAction the action
+     *
+     * @exception IOException if the lock file cannot be locked, or of the
+     * action
+     */
+    private void withLock(ManifestAction manifestAction) throws IOException {
+        synchronized (JVM_LOCK) {
+            File lockFile = new File(this.reportsDir, LOCK_FILE_NAME);
+
+            try (RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw");
+                    FileChannel lockChannel = lockAccess.getChannel()) {
+
+                FileLock fileLock = lockChannel.lock();
+                try {
+                    manifestAction.perform();
+
+                } finally {
+                    fileLock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Append lines to the manifest file (created with its header if need
+     * be)&#46; A failure is reported by an INFO message, the manifest is
+     * then not used (the reports directory is listed).
+     *
+     * @param lines the lines
+     */
+    private void append(String lines) {
+        try {
+            Files.createDirectories(this.reportsDir.toPath());
+
+            withLock(() -> {
+                String appendLines = lines;
+
+                if (!this.manifestFile.isFile()) {
+                    appendLines = newHeaderLine() + "\n" + lines;
+                }
+                Files.write(this.manifestFile.toPath(), appendLines.getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+                readLocked();
+            });
+        } catch (IOException ex) {
+            System.err.printf("\nINFO: JscovTestUtil: report manifest not written: %s\n%s\n",
+                    this.manifestFile.getPath(), ex.getMessage());
+            this.manifestFile.delete();
+        }
+    }
+
+    /**
+     * Read the lines appended since the last read (all if the file is new
+     * or was re-written), and re-write the file if it is mostly removed
+     * runs.
+     */
+    private void read() {
+        if (!this.manifestFile.isFile()) {
+            // removed (with the reports)
+            clearRuns();
+            return;
+        }
+        try {
+            withLock(this::readLocked);
+
+        } catch (IOException ex) {
+            // not locked, the runs of the last read are kept
+        }
+    }
+
+    /**
+     * Read the lines appended since the last read, under the locks.
+     */
+    private void readLocked() {
+        byte[] appended;
+        try (RandomAccessFile manifestRaf = new RandomAccessFile(this.manifestFile, "r")) {
+            String fileHeaderLine = manifestRaf.readLine();
+            long fileLength = manifestRaf.length();
+
+            if (fileHeaderLine == null || !fileHeaderLine.equals(this.headerLine)
+                    || fileLength < this.readPos) {
+                // new, or re-written (of another generation)
+                clearRuns();
+                this.headerLine = fileHeaderLine;
+            }
+            if (fileLength == this.readPos) {
+                return;
+            }
+            appended = new byte[(int) (fileLength - this.readPos)];
+            manifestRaf.seek(this.readPos);
+            manifestRaf.readFully(appended);
+
+        } catch (IOException ex) {
+            return;
+        }
+        int lineStart = 0;
+        for (int i = 0; i < appended.length; i++) {
+            if (appended[i] == '\n') {
+                applyLine(new String(appended, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                lineStart = i + 1;
+            }
+        }
+        this.readPos += lineStart;
+
+        if (this.lineCount > REWRITE_MIN_LINES && this.lineCount > 4 * this.runMap.size()) {
+            rewrite();
+        }
+    }
+
+    /**
+     * Clear the runs read, the file is to be read from the start.
+     */
+    private void clearRuns() {
+        this.runMap.clear();
+        this.runNameSet.clear();
+        this.headerLine = null;
+        this.readPos = 0;
+        this.lineCount = 0;
+        this.reconciledDirMsecs = -1;
+    }
+
+    /**
+     * The header line of a new generation of the manifest.
+     *
+     * @return the line (without its end)
+     */
+    private static String newHeaderLine() {
+        return MANIFEST_HEADER + " " + UUID.randomUUID();
+    }
+
+    /**
+     * Apply a manifest line to the runs.
+     *
+     * @param line the line (without its end)
+     */
+    private void applyLine(String line) {
+        this.lineCount++;
+        String[] fields = line.split("\t");
+
+        if (line.startsWith("#") || fields.length < 3) {
+            return;
+        }
+        String runName = fields[1];
+        long timeMsecs;
+        try {
+            timeMsecs = Long.parseLong(fields[2]);
+
+        } catch (NumberFormatException ex) {
+            return;
+        }
+        if (fields[0].equals("D")) {
+            if (fields.length >= 4) {
+                try {
+                    this.reconciledDirMsecs = Long.parseLong(fields[3]);
+
+                } catch (NumberFormatException ex) {
+                    // a reconcile is due
+                }
+            }
+            return;
+        }
+        if (fields[0].equals("R")) {
+            this.runMap.remove(runName);
+            this.runNameSet.remove(runName);
+            return;
+        }
+        RunEntry entry = this.runMap.get(runName);
+
+        if (fields[0].equals("A")) {
+            // the size is that of the archive, not a store (the age is kept)
+            if (entry != null && fields.length >= 4) {
+                try {
+                    entry.bytes = Long.parseLong(fields[3]);
+
+                } catch (NumberFormatException ex) {
+                    // the size is not known
+                }
+            }
+            return;
+        }
+        if (entry == null) {
+            entry = new RunEntry(runName, timeMsecs);
+            this.runMap.put(runName, entry);
+            this.runNameSet.add(runName);
+        }
+        entry.lastMsecs = Math.max(entry.lastMsecs, timeMsecs);
+
+        if (fields.length < 8) {
+            return;
+        }
+        try {
+            long bytes = Long.parseLong(fields[3]);
+            long codeLines = Long.parseLong(fields[4]);
+
+            if (fields[0].equals("E")) {
+                entry.endMsecs = timeMsecs;
+            }
+            if (bytes >= 0) {
+                entry.bytes = bytes;
+            }
+            if (codeLines >= 0) {
+                entry.codeLines = codeLines;
+                entry.coveredLines = Long.parseLong(fields[5]);
+                entry.branches = Long.parseLong(fields[6]);
+                entry.coveredBranches = Long.parseLong(fields[7]);
+            }
+        } catch (NumberFormatException ex) {
+            // the summary is not known
+        }
+    }
+
+    /**
+     * Re-write the manifest with the runs not removed, written aside and
+     * moved into place, as a new generation (under the locks).
+     */
+    private void rewrite() {
+        String rewriteHeaderLine = newHeaderLine();
+        StringBuilder lines = new StringBuilder(rewriteHeaderLine).append('\n');
+
+        for (RunEntry entry : this.runMap.values()) {
+            lines.append("S\t").append(entry.runName).append('\t').append(entry.startMsecs)
+                    .append("\t-1\t-1\t-1\t-1\t-1\n");
+            lines.append(entry.endMsecs > 0 ? "E\t" : "S\t").append(entry.runName).append('\t')
+                    .append(entry.endMsecs > 0 ? entry.endMsecs : entry.lastMsecs).append('\t')
+                    .append(entry.bytes).append('\t').append(entry.codeLines).append('\t')
+                    .append(entry.coveredLines).append('\t').append(entry.branches).append('\t')
+                    .append(entry.coveredBranches).append('\n');
+        }
+        File tmpFile = new File(this.manifestFile.getPath() + ".tmp");
+        try {
+            byte[] rewritten = lines.toString().getBytes(StandardCharsets.UTF_8);
+
+            Files.write(tmpFile.toPath(), rewritten);
+            Files.move(tmpFile.toPath(), this.manifestFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.headerLine = rewriteHeaderLine;
+            this.readPos = rewritten.length;
+            this.lineCount = 2 * this.runMap.size() + 1;
+
+        } catch (IOException ex) {
+            tmpFile.delete();
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
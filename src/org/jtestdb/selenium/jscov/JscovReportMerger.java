@@ -0,0 +1,576 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merge JSCover reports (the 'jscoverage.json' of report directories, e.g.
+ * the time-stamped reports of <code>reportIntoTimeStampDir</code>) into one
+ * JSCover report, in the test JVM rather than by the JSCover merge
+ * tool&#46; The reports are read in parallel, then the coverage of each
+ * JS-file is merged (primitive counters summed) in parallel split by
+ * JS-file, on a fork-join pool of the merger created for each merge and
+ * shut down once done (the reads are blocking I/O, so are not run on the
+ * common fork-join pool).
+ * <p>
+ * <code>mergeInto</code> writes the merged report to a directory, with the
+ * original JS-files ('original-src') and the viewer files copied from the
+ * reports merged, so the JSCover viewer shows it&#46; An archived report
+ * (see <code>JscovReportArchive</code>) is merged from its archive.
+ * <pre>
+ *   JscovCoverageData merged = new JscovReportMerger()
+ *           .addReportDirs(runDirs)
+ *           .mergeInto(new File("reports/merged"));
+ * </pre>
+ */
+public class JscovReportMerger {
+
+    /**
+     * The number of JS-files a merge task merges without splitting.
+     */
+    private final static int MERGE_FILES_PER_TASK = 8;
+
+    /**
+     * The directory of a report holding the original JS-files.
+     */
+    private final static String ORIGINAL_SRC_DIR_NAME = "original-src";
+
+    /**
+     * The number of threads of the fork-join pool of a merge.
+     */
+    private final int parallelism;
+
+    /**
+     * The report directories to merge, in order (a later report's original
+     * JS-file is taken over an earlier one's).
+     */
+    private final List<File> reportDirList = new ArrayList<>();
+
+    /**
+     * The archives of the archived reports, opened for the merge into a
+     * report directory.
+     */
+    private final Map<File, ZipFile> archiveMap = new HashMap<>();
+
+    /**
+     * Create a merger of a parallelism of the number of processors.
+     */
+    public JscovReportMerger() {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Create a merger of a parallelism.
+     *
+     * @param parallelism the number of threads
+     *
+     * @exception RuntimeException if parallelism is not positive
+     */
+    public JscovReportMerger(int parallelism) {
+        if (parallelism <= 0) {
+            throw new RuntimeException("The merge parallelism needs to be positive.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Add a report directory to merge.
+     *
+     * @param reportDir the report directory (holding 'jscoverage.json')
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovReportMerger addReportDir(File reportDir) {
+        this.reportDirList.add(reportDir);
+        return this;
+    }
+
+    /**
+     * Add report directories to merge.
+     *
+     * @param reportDirs the report directories, oldest first
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovReportMerger addReportDirs(Collection<File> reportDirs) {
+        this.reportDirList.addAll(reportDirs);
+        return this;
+    }
+
+    /**
+     * Merge the reports&#46; A report directory without 'jscoverage.json'
+     * adds nothing.
+     *
+     * @return the merged code-coverage
+     *
+     * @exception RuntimeException if a report cannot be read
+     */
+    public JscovCoverageData merge() {
+        return invokeMerge(null);
+    }
+
+    /**
+     * Merge the reports and write the merged report to a directory (created
+     * if need be, any 'jscoverage.json' in it is replaced), with the
+     * original JS-files and viewer files copied from the reports merged.
+     *
+     * @param targetReportDir the directory of the merged report
+     *
+     * @return the merged code-coverage
+     *
+     * @exception RuntimeException if a report cannot be read or the merged
+     * report cannot be written
+     */
+    public JscovCoverageData mergeInto(File targetReportDir) {
+        try {
+            for (File reportDir : this.reportDirList) {
+                if (JscovReportArchive.isArchived(reportDir) && !this.archiveMap.containsKey(reportDir)) {
+                    this.archiveMap.put(reportDir,
+                            new ZipFile(JscovReportArchive.archiveFileOf(reportDir)));
+                }
+            }
+            JscovCoverageData mergedData = invokeMerge(targetReportDir);
+
+            mergedData.writeReport(targetReportDir);
+            copyViewerFiles(targetReportDir);
+
+            return mergedData;
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover report archive cannot be opened: %s",
+                    ex.getMessage()));
+        } finally {
+            closeArchives();
+        }
+    }
+
+    /**
+     * Run the merge task on a fork-join pool of its own, shut down once the
+     * merge is done.
+     *
+     * @param targetReportDir the directory of the merged report, null if
+     * none
+     *
+     * @return the merged code-coverage
+     */
+    private JscovCoverageData invokeMerge(File targetReportDir) {
+        ForkJoinPool mergePool = new ForkJoinPool(this.parallelism);
+        try {
+            return mergePool.invoke(new MergeTask(targetReportDir));
+
+        } finally {
+            mergePool.shutdown();
+        }
+    }
+
+    /**
+     * Close the archives opened, a failure is ignored (they are only read).
+     */
+    private void closeArchives() {
+        for (ZipFile zipFile : this.archiveMap.values()) {
+            try {
+                zipFile.close();
+
+            } catch (IOException ex) {
+                // read only, nothing is lost
+            }
+        }
+        this.archiveMap.clear();
+    }
+
+    /**
+     * The merge: read the reports (a task each), group the coverage by
+     * JS-file and merge each group (split into tasks).
+     */
+    private class MergeTask extends RecursiveTask<JscovCoverageData> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The directory of the merged report to copy the original JS-files
+         * to, null for none.
+         */
+        private final File targetReportDir;
+
+        /**
+         * Create the merge task.
+         *
+         * @param targetReportDir the merged report directory, null for none
+         */
+        MergeTask(File targetReportDir) {
+            this.targetReportDir = targetReportDir;
+        }
+
+        @Override
+        protected JscovCoverageData compute() {
+            List<ReadTask> readTaskList = new ArrayList<>();
+
+            for (File reportDir : reportDirList) {
+                readTaskList.add(new ReadTask(reportDir));
+            }
+            invokeAll(readTaskList);
+
+            // group by JS-file, the source of a JS-file is that of the latest
+            // report having it
+            TreeMap<String, List<JscovFileCoverage>> uriCoverages = new TreeMap<>();
+            TreeMap<String, List<File>> uriReportDirs = new TreeMap<>();
+
+            for (ReadTask readTask : readTaskList) {
+                for (JscovFileCoverage fileCoverage : readTask.join().getFileCoverages()) {
+                    uriCoverages.computeIfAbsent(fileCoverage.getUri(), (k) -> new ArrayList<>())
+                            .add(fileCoverage);
+                    uriReportDirs.computeIfAbsent(fileCoverage.getUri(), (k) -> new ArrayList<>())
+                            .add(0, readTask.reportDir);
+                }
+            }
+            List<List<JscovFileCoverage>> groupList = new ArrayList<>(uriCoverages.values());
+            List<List<File>> groupReportDirList = new ArrayList<>(uriReportDirs.values());
+
+            invokeAll(new FileMergeTask(groupList, groupReportDirList, archiveMap,
+                    this.targetReportDir, 0, groupList.size()));
+
+            JscovCoverageData mergedData = new JscovCoverageData();
+
+            for (List<JscovFileCoverage> group : groupList) {
+                mergedData.add(group.get(0));
+            }
+            return mergedData;
+        }
+    }
+
+    /**
+     * Read a report.
+     */
+    private static class ReadTask extends RecursiveTask<JscovCoverageData> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The report directory.
+         */
+        private final File reportDir;
+
+        /**
+         * Create the read task.
+         *
+         * @param reportDir the report directory
+         */
+        ReadTask(File reportDir) {
+            this.reportDir = reportDir;
+        }
+
+        @Override
+        protected JscovCoverageData compute() {
+            return JscovCoverageData.readReport(this.reportDir);
+        }
+    }
+
+    /**
+     * Merge the coverage groups of a range of JS-files (each group into its
+     * first coverage), splitting the range until it is small.
+     */
+    private static class FileMergeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The coverage group of each JS-file.
+         */
+        private final List<List<JscovFileCoverage>> groupList;
+
+        /**
+         * The report directories having each JS-file, latest first (the
+         * original source is copied from the first having it).
+         */
+        private final List<List<File>> groupReportDirList;
+
+        /**
+         * The archives of the archived report directories, opened.
+         */
+        private final Map<File, ZipFile> archiveMap;
+
+        /**
+         * The merged report directory, null for no copy of the sources.
+         */
+        private final File targetReportDir;
+
+        /**
+         * The range of JS-files (from inclusive, to exclusive).
+         */
+        private final int fromIndex;
+        private final int toIndex;
+
+        /**
+         * Create the merge task of a range.
+         *
+         * @param groupList the coverage group of each JS-file
+         * @param groupReportDirList the report directories having each
+         * JS-file, latest first
+         * @param archiveMap the archives of the archived report directories
+         * @param targetReportDir the merged report directory, null for none
+         * @param fromIndex the first JS-file
+         * @param toIndex the JS-file after the last
+         */
+        FileMergeTask(List<List<JscovFileCoverage>> groupList, List<List<File>> groupReportDirList,
+                Map<File, ZipFile> archiveMap, File targetReportDir, int fromIndex, int toIndex) {
+
+            this.groupList = groupList;
+            this.groupReportDirList = groupReportDirList;
+            this.archiveMap = archiveMap;
+            this.targetReportDir = targetReportDir;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toIndex - this.fromIndex > MERGE_FILES_PER_TASK) {
+                int midIndex = (this.fromIndex + this.toIndex) >>> 1;
+
+                invokeAll(new FileMergeTask(groupList, groupReportDirList, archiveMap, targetReportDir,
+                        this.fromIndex, midIndex),
+                        new FileMergeTask(groupList, groupReportDirList, archiveMap, targetReportDir,
+                                midIndex, this.toIndex));
+                return;
+            }
+            for (int i = this.fromIndex; i < this.toIndex; i++) {
+                List<JscovFileCoverage> group = this.groupList.get(i);
+                JscovFileCoverage mergedCoverage = group.get(0);
+
+                for (int g = 1; g < group.size(); g++) {
+                    mergedCoverage.merge(group.get(g));
+                }
+                if (this.targetReportDir == null) {
+                    continue;
+                }
+                for (File sourceReportDir : this.groupReportDirList.get(i)) {
+                    if (copyOriginalSource(mergedCoverage.getUri(), sourceReportDir,
+                            this.archiveMap.get(sourceReportDir), this.targetReportDir)) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the original JS-file of a URI between report directories, if the
+     * source report has it.
+     *
+     * @param uri the URI of the JS-file
+     * @param sourceReportDir the report directory having the file
+     * @param sourceArchive the archive of the report directory, null if not
+     * archived
+     * @param targetReportDir the merged report directory
+     *
+     * @return true if the merged report has the file (copied, or the source
+     * report is the merged report), false if the source report does not
+     * have it
+     *
+     * @exception RuntimeException if the file cannot be copied
+     */
+    private static boolean copyOriginalSource(String uri, File sourceReportDir, ZipFile sourceArchive,
+            File targetReportDir) {
+        String uriPath = uri.startsWith("/") ? uri.substring(1) : uri;
+        File sourceFile = new File(new File(sourceReportDir, ORIGINAL_SRC_DIR_NAME), uriPath);
+        String entryName = ORIGINAL_SRC_DIR_NAME + "/" + uriPath;
+
+        if (sourceArchive != null ? sourceArchive.getEntry(entryName) == null : !sourceFile.isFile()) {
+            return false;
+        }
+        if (sourceReportDir.equals(targetReportDir)) {
+            return true;
+        }
+        File targetFile = new File(new File(targetReportDir, ORIGINAL_SRC_DIR_NAME), uriPath);
+        try {
+            Files.createDirectories(targetFile.getParentFile().toPath());
+
+            if (sourceArchive != null) {
+                copyArchiveEntry(sourceArchive, entryName, targetFile);
+            } else {
+                Files.copy(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover original JS-file cannot be copied: %s\n%s",
+                    targetFile.getPath(), ex.getMessage()));
+        }
+    }
+
+    /**
+     * Copy the viewer files (the files of the report directory other than
+     * 'jscoverage.json' and its binary) of the latest report having them into the merged
+     * report, if it has none.
+     *
+     * @param targetReportDir the merged report directory
+     *
+     * @exception RuntimeException if the files cannot be copied
+     */
+    private void copyViewerFiles(File targetReportDir) {
+        if (new File(targetReportDir, "jscoverage.html").isFile()) {
+            return;
+        }
+        for (int i = this.reportDirList.size() - 1; i >= 0; i--) {
+            ZipFile archive = this.archiveMap.get(this.reportDirList.get(i));
+
+            if (archive != null) {
+                if (copyArchiveViewerFiles(archive, targetReportDir)) {
+                    return;
+                }
+                continue;
+            }
+            File[] viewerFiles = this.reportDirList.get(i).listFiles((file) -> file.isFile()
+                    && !file.getName().startsWith(JscovCoverageData.REPORT_JSON_FILE_NAME)
+                    && !file.getName().startsWith(JscovCoverageBinary.REPORT_BINARY_FILE_NAME));
+
+            if (viewerFiles == null || viewerFiles.length == 0) {
+                continue;
+            }
+            try {
+                for (File viewerFile : viewerFiles) {
+                    Files.copy(viewerFile.toPath(),
+                            new File(targetReportDir, viewerFile.getName()).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException(String.format(
+                        "JSCover viewer files cannot be copied: %s\n%s",
+                        targetReportDir.getPath(), ex.getMessage()));
+            }
+            return;
+        }
+    }
+
+    /**
+     * Copy the viewer files (the top level files other than
+     * 'jscoverage.json' and its binary) of an archived report into the
+     * merged report.
+     *
+     * @param archive the archive of the report
+     * @param targetReportDir the merged report directory
+     *
+     * @return true if it has viewer files
+     *
+     * @exception RuntimeException if the files cannot be copied
+     */
+    private static boolean copyArchiveViewerFiles(ZipFile archive, File targetReportDir) {
+        boolean isAnyCopied = false;
+        try {
+            for (ZipEntry entry : Collections.list(archive.entries())) {
+                String entryName = entry.getName();
+
+                if (entry.isDirectory() || entryName.indexOf('/') >= 0
+                        || entryName.startsWith(JscovCoverageData.REPORT_JSON_FILE_NAME)
+                        || entryName.startsWith(JscovCoverageBinary.REPORT_BINARY_FILE_NAME)) {
+                    continue;
+                }
+                copyArchiveEntry(archive, entryName, new File(targetReportDir, entryName));
+                isAnyCopied = true;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover viewer files cannot be copied: %s\n%s",
+                    targetReportDir.getPath(), ex.getMessage()));
+        }
+        return isAnyCopied;
+    }
+
+    /**
+     * Copy a file of an archived report to a file (replaced).
+     *
+     * @param archive the archive of the report
+     * @param entryName the file within the report
+     * @param targetFile the file
+     *
+     * @throws IOException if the file cannot be copied
+     */
+    private static void copyArchiveEntry(ZipFile archive, String entryName, File targetFile)
+            throws IOException {
+        try (OutputStream targetOut = Files.newOutputStream(targetFile.toPath())) {
+            JscovReportArchive.writeEntry(archive, entryName, targetOut);
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The background writer of the reports of one JscovTestUtil (see
+ * <code>setOnAsyncReport</code>)&#46; A store takes the code-coverage of the
+ * web-page on the test thread and submits the write of the report (merge,
+ * write, viewer files, original JS-files) to run here, so the test thread
+ * does not wait on report I/O.
+ * <p>
+ * The writes run one at a time in the order submitted (a later store merges
+ * into the report an earlier one wrote), on a daemon thread that ends when
+ * idle&#46; At most maxPending writes are queued or running, a submit
+ * beyond that blocks until one completes (back-pressure, the coverage held
+ * in memory is bounded)&#46; A write failure is held and thrown by the
+ * next <code>flush</code>.
+ * <p>
+ * The writes submitted (and the storage management run after them:
+ * retention, compaction, archive, source de-duplication and the manifest)
+ * are complete, with their results visible, only after a
+ * <code>flush</code>&#46; At JVM exit a shutdown hook waits, for a bounded
+ * time (see SHUTDOWN_DRAIN_SECS), on the writes of the writers not yet
+ * drained, the daemon writer thread continues to run while the hook waits.
+ */
+final class JscovReportWriter {
+
+    /**
+     * The time (seconds) the idle writer thread is kept.
+     */
+    private final static int IDLE_THREAD_SECS = 30;
+
+    /**
+     * Thread number of the writer threads, for their names.
+     */
+    private final static AtomicInteger THREAD_NO = new AtomicInteger();
+
+    /**
+     * The total time (seconds) the shutdown hook waits on the writes of all
+     * the writers.
+     */
+    private final static int SHUTDOWN_DRAIN_SECS = 60;
+
+    /**
+     * The writers created (held weakly, a writer no longer referenced has
+     * no JscovTestUtil to flush it and is dropped with its executor).
+     */
+    private final static Set<JscovReportWriter> WRITERS
+            = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * The shutdown hook that drains the writers, registered with the first
+     * writer, null until then.
+     */
+    private static Thread drainHook = null;
+
+    /**
+     * The maximum number of writes queued or running.
+     */
+    private final int maxPending;
+
+    /**
+     * A permit for each write that may be submitted.
+     */
+    private final Semaphore pendingPermits;
+
+    /**
+     * The executor of the writes (one thread).
+     */
+    private final ThreadPoolExecutor writerExecutor;
+
+    /**
+     * The first write failure not yet thrown by flush, null if none.
+     */
+    private RuntimeException writeFailure = null;
+
+    /**
+     * Create a background writer.
+     *
+     * @param maxPending the maximum number of writes queued or running
+     */
+    JscovReportWriter(int maxPending) {
+        this.maxPending = maxPending;
+        this.pendingPermits = new Semaphore(maxPending);
+
+        this.writerExecutor = new ThreadPoolExecutor(1, 1,
+                IDLE_THREAD_SECS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                (runnable) -> {
+                    Thread writerThread = new Thread(runnable,
+                            "JscovReportWriter-" + THREAD_NO.incrementAndGet());
+                    writerThread.setDaemon(true);
+                    return writerThread;
+                });
+        this.writerExecutor.allowCoreThreadTimeOut(true);
+
+        register(this);
+    }
+
+    /**
+     * Register a writer to be drained at JVM exit, registering the shutdown
+     * hook with the first writer.
+     *
+     * @param reportWriter the writer
+     */
+    private static void register(JscovReportWriter reportWriter) {
+        synchronized (WRITERS) {
+            WRITERS.add(reportWriter);
+
+            if (drainHook == null) {
+                drainHook = new Thread(JscovReportWriter::drainAtShutdown,
+                        "JscovReportWriter-shutdown");
+                try {
+                    Runtime.getRuntime().addShutdownHook(drainHook);
+
+                } catch (IllegalStateException ex) {
+                    // the JVM is already shutting down, nothing to hook
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait on the writes of each writer registered, in a total of
+     * SHUTDOWN_DRAIN_SECS, providing an INFO message for a writer not
+     * drained in the time or a write failure not thrown by a flush.
+     */
+    private static void drainAtShutdown() {
+        List<JscovReportWriter> reportWriters;
+        synchronized (WRITERS) {
+            reportWriters = new ArrayList<>(WRITERS);
+        }
+        long drainEndMsecs = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(SHUTDOWN_DRAIN_SECS);
+
+        for (JscovReportWriter reportWriter : reportWriters) {
+            long remainingMsecs = Math.max(0, drainEndMsecs - System.currentTimeMillis());
+            boolean drained;
+            try {
+                drained = reportWriter.pendingPermits.tryAcquire(reportWriter.maxPending,
+                        remainingMsecs, TimeUnit.MILLISECONDS);
+
+            } catch (InterruptedException ex) {
+                drained = false;
+            }
+            if (drained) {
+                reportWriter.pendingPermits.release(reportWriter.maxPending);
+            } else {
+                System.err.println(String.format(
+                        "INFO: JscovTestUtil: %d background report write(s) not complete at exit",
+                        reportWriter.getPendingCount()));
+            }
+            RuntimeException failure;
+            synchronized (reportWriter) {
+                failure = reportWriter.writeFailure;
+            }
+            if (failure != null) {
+                System.err.println(String.format(
+                        "INFO: JscovTestUtil: background report write failed: %s",
+                        failure.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Get the maximum number of writes queued or running.
+     *
+     * @return the count
+     */
+    int getMaxPending() {
+        return this.maxPending;
+    }
+
+    /**
+     * Get the number of writes queued or running.
+     *
+     * @return the count
+     */
+    int getPendingCount() {
+        return this.maxPending - this.pendingPermits.availablePermits();
+    }
+
+    /**
+     * Submit a write, blocking while maxPending writes are queued or
+     * running.
+     *
+     * @param reportWrite the write
+     *
+     * @exception RuntimeException if interrupted while blocked
+     */
+    void submit(Runnable reportWrite) {
+        try {
+            this.pendingPermits.acquire();
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting to submit a background report write.");
+        }
+        try {
+            this.writerExecutor.execute(() -> {
+                try {
+                    reportWrite.run();
+
+                } catch (RuntimeException ex) {
+                    synchronized (this) {
+                        if (this.writeFailure == null) {
+                            this.writeFailure = ex;
+                        }
+                    }
+                } finally {
+                    this.pendingPermits.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            this.pendingPermits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Wait for the writes submitted to complete, a write failure is left
+     * for the next flush.
+     *
+     * @exception RuntimeException if interrupted while waiting
+     */
+    void await() {
+        try {
+            this.pendingPermits.acquire(this.maxPending);
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting on the background report writes.");
+        }
+        this.pendingPermits.release(this.maxPending);
+    }
+
+    /**
+     * Wait for the writes submitted to complete, and throw the first write
+     * failure since the last flush.
+     *
+     * @exception RuntimeException of the failed write, or if interrupted
+     * while waiting
+     */
+    void flush() {
+        await();
+
+        RuntimeException failure;
+        synchronized (this) {
+            failure = this.writeFailure;
+            this.writeFailure = null;
+        }
+        if (failure != null) {
+            throw new RuntimeException(String.format(
+                    "JSCover background report write failed: %s", failure.getMessage()), failure);
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The retention policy of the time-stamp reports of a reports directory:
+ * the newest reports are retained while within the count, total size and
+ * age limits (0 for no limit of each), the current report always&#46; The
+ * age of a report is from its last store, the reports, their stores and
+ * sizes are those of the manifest of the reports directory (a size not
+ * known is read from the disk), an archived report is its archive file.
+ * <p>
+ * A report not retained is renamed into the trash directory of the reports
+ * directory, so it is gone from the time-stamp reports at once, then the
+ * trash is deleted&#46; A trash left by an earlier run (e.g. the JVM ended
+ * part way) is deleted by the next apply.
+ */
+final class JscovRetention {
+
+    /**
+     * The name of the trash directory within the reports directory (not of
+     * the time-stamp form).
+     */
+    final static String TRASH_DIR_NAME = ".jscovtrash";
+
+    /**
+     * The maximum number of reports, 0 for no limit.
+     */
+    private final int maxCount;
+
+    /**
+     * The maximum total size (bytes) of the reports, 0 for no limit.
+     */
+    private final long maxTotalBytes;
+
+    /**
+     * The maximum age (milliseconds) of a report, 0 for no limit.
+     */
+    private final long maxAgeMsecs;
+
+    /**
+     * Create a retention policy.
+     *
+     * @param maxCount the maximum number of reports, 0 for no limit
+     * @param maxTotalBytes the maximum total size (bytes) of the reports, 0
+     * for no limit
+     * @param maxAgeMsecs the maximum age (milliseconds) of a report, 0 for no
+     * limit
+     */
+    JscovRetention(int maxCount, long maxTotalBytes, long maxAgeMsecs) {
+        this.maxCount = maxCount;
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxAgeMsecs = maxAgeMsecs;
+    }
+
+    /**
+     * Is there a limit, else all reports are retained.
+     *
+     * @return true if there is a limit
+     */
+    boolean isAnyLimit() {
+        return this.maxCount > 0 || this.maxTotalBytes > 0 || this.maxAgeMsecs > 0;
+    }
+
+    /**
+     * Select the reports not retained.
+     *
+     * @param reportsDir the reports directory
+     * @param timeStampEntryList the time-stamp reports of the manifest,
+     * oldest first
+     * @param currentDir the name of the current report (retained)
+     *
+     * @return the names of the reports not retained
+     */
+    List<String> selectExpired(File reportsDir, List<JscovReportManifest.RunEntry> timeStampEntryList,
+            String currentDir) {
+        List<String> expiredList = new ArrayList<>();
+        long nowMsecs = System.currentTimeMillis();
+        int retainedCount = 0;
+        long retainedBytes = 0;
+        boolean isFull = false;
+
+        for (int i = timeStampEntryList.size() - 1; i >= 0; i--) {
+            JscovReportManifest.RunEntry timeStampEntry = timeStampEntryList.get(i);
+            String timeStampDir = timeStampEntry.runName;
+            long reportBytes = 0;
+
+            if (this.maxTotalBytes > 0) {
+                reportBytes = timeStampEntry.bytes >= 0 && timeStampEntry.endMsecs >= timeStampEntry.lastMsecs
+                        ? timeStampEntry.bytes : sizeOfReport(new File(reportsDir, timeStampDir));
+            }
+
+            if (timeStampDir.equals(currentDir)) {
+                retainedCount++;
+                retainedBytes += reportBytes;
+                continue;
+            }
+            isFull = isFull
+                    || (this.maxCount > 0 && retainedCount >= this.maxCount)
+                    || (this.maxTotalBytes > 0 && retainedBytes + reportBytes > this.maxTotalBytes);
+
+            if (isFull || (this.maxAgeMsecs > 0
+                    && nowMsecs - timeStampEntry.lastMsecs > this.maxAgeMsecs)) {
+                expiredList.add(timeStampDir);
+            } else {
+                retainedCount++;
+                retainedBytes += reportBytes;
+            }
+        }
+        return expiredList;
+    }
+
+    /**
+     * Apply the policy, the reports not retained are moved to the trash (and
+     * recorded as removed in the manifest) and the trash deleted.
+     *
+     * @param reportsDir the reports directory
+     * @param manifest the manifest of the reports directory
+     * @param timeStampEntryList the time-stamp reports of the manifest,
+     * oldest first
+     * @param currentDir the name of the current report (retained)
+     */
+    void apply(File reportsDir, JscovReportManifest manifest,
+            List<JscovReportManifest.RunEntry> timeStampEntryList, String currentDir) {
+        List<String> expiredList = selectExpired(reportsDir, timeStampEntryList, currentDir);
+
+        for (String timeStampDir : expiredList) {
+            File reportDir = new File(reportsDir, timeStampDir);
+
+            // an archived report is its archive file
+            JscovReportArchive.archiveFileOf(reportDir).delete();
+
+            moveToTrash(reportsDir, reportDir);
+        }
+        manifest.recordRemoved(expiredList);
+        emptyTrash(reportsDir);
+    }
+
+    /**
+     * Move a report directory to the trash of the reports directory (at
+     * once, atomically, so it is not left part deleted), none if it does
+     * not exist&#46; A directory that cannot be moved is deleted in place.
+     *
+     * @param reportsDir the reports directory
+     * @param reportDir the report directory
+     */
+    static void moveToTrash(File reportsDir, File reportDir) {
+        if (!reportDir.exists()) {
+            return;
+        }
+        File trashDir = new File(reportsDir, TRASH_DIR_NAME);
+        try {
+            Files.createDirectories(trashDir.toPath());
+            Files.move(reportDir.toPath(),
+                    new File(trashDir, reportDir.getName() + "_" + System.nanoTime()).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException ex) {
+            // not movable (e.g. a file held open), delete in place
+            reportNotDeleted(new JscovFileDeleter().delete(reportDir));
+        }
+    }
+
+    /**
+     * Delete the trash directory of a reports directory, if any.
+     *
+     * @param reportsDir the reports directory
+     */
+    static void emptyTrash(File reportsDir) {
+        File trashDir = new File(reportsDir, TRASH_DIR_NAME);
+
+        if (trashDir.isDirectory()) {
+            reportNotDeleted(new JscovFileDeleter().delete(trashDir));
+        }
+    }
+
+    /**
+     * Report the paths not deleted by an INFO message, if any.
+     *
+     * @param notDeletedList the paths not deleted
+     */
+    static void reportNotDeleted(List<Path> notDeletedList) {
+        if (!notDeletedList.isEmpty()) {
+            System.err.printf("\nINFO: JscovTestUtil: %d file(s) of the reports not deleted, e.g. %s\n",
+                    notDeletedList.size(), notDeletedList.get(0));
+        }
+    }
+
+    /**
+     * Get the size of a report, of its archive if archived.
+     *
+     * @param reportDir the report directory
+     *
+     * @return the size (bytes)
+     */
+    static long sizeOfReport(File reportDir) {
+        return JscovReportArchive.isArchived(reportDir)
+                ? JscovReportArchive.archiveFileOf(reportDir).length() : sizeOf(reportDir);
+    }
+
+    /**
+     * Get the total size of the files of a directory tree.
+     *
+     * @param dir the directory
+     *
+     * @return the size (bytes), of the files that could be read
+     */
+    static long sizeOf(File dir) {
+        long[] totalBytes = {0};
+        try {
+            Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    totalBytes[0] += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            // a size of what was read
+        }
+        return totalBytes[0];
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
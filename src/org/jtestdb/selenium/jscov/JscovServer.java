@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+/**
+ * A JSCover server started by JscovTestUtil, either as a separate process
+ * (JscovServerProcess) or on threads within the test JVM
+ * (JscovInJvmServer)&#46; JscovTestUtil waits on, stops and reports the
+ * failure of the server through this interface no matter how it was
+ * started.
+ */
+interface JscovServer {
+
+    /**
+     * Is the server still running.
+     *
+     * @return true if running
+     */
+    boolean isAlive();
+
+    /**
+     * Get the exit value of the server.
+     *
+     * @return the exit value, or null if the server is still running
+     */
+    Integer exitValue();
+
+    /**
+     * Get the name of the server as used in messages.
+     *
+     * @return string of the description
+     */
+    String getDescription();
+
+    /**
+     * Get the last lines of output of the server for failure messages.
+     *
+     * @return string of the captured output tail, lines separated by '\n'
+     */
+    String getOutputTail();
+
+    /**
+     * Wait for the server to end.
+     *
+     * @param timeoutMsecs time (milliseconds) to wait
+     *
+     * @return true if the server has ended
+     */
+    boolean waitForExit(long timeoutMsecs);
+
+    /**
+     * Stop the server, allowing it a time to end by itself before it is
+     * forced to end.
+     *
+     * @param gracefulTimeoutMsecs time (milliseconds) allowed for the server
+     * to end by itself
+     *
+     * @return the exit value, or null if the server could not be terminated
+     */
+    Integer stop(long gracefulTimeoutMsecs);
+
+    /**
+     * Is the server running within the test JVM&#46; Such a server must never
+     * be sent the JSCover '/stop' message, JSCover ends the JVM on '/stop'.
+     *
+     * @return true if within the test JVM
+     */
+    boolean isInJvm();
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
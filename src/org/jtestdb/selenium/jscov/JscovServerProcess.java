@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JSCover server process (proxy-server or simple-server) launched by
+ * JscovTestUtil&#46; The process handle is retained so the server can be
+ * waited on, stopped and its exit status known, rather than launched and
+ * forgotten.
+ * <p>
+ * The standard-output and standard-error of the process are drained on a
+ * daemon thread into a bounded ring-buffer of lines. Undrained output would
+ * eventually fill the OS pipe buffer and stall the JSCover JVM (heavy
+ * instrumentation logging); the ring-buffer keeps the tail of the output for
+ * failure messages without growing memory.
+ * <p>
+ * A process that is to outlive the JVM (a shared proxy-server) has its
+ * output appended to a log file instead, as a pipe to an ended JVM cannot be
+ * drained; the output tail is then read from the log file.
+ */
+class JscovServerProcess implements JscovServer {
+
+    /**
+     * The number of output lines retained in the ring-buffer.
+     */
+    private final static int OUTPUT_TAIL_LINES = 200;
+
+    /**
+     * The time (milliseconds) to wait after each destroy escalation step for
+     * the process to exit.
+     */
+    private final static long DESTROY_WAIT_MSECS = 3000;
+
+    /**
+     * The OS process of the JSCover server.
+     */
+    private final Process process;
+
+    /**
+     * A name of the server for messages (e.g. 'proxy-server port 3128').
+     */
+    private final String description;
+
+    /**
+     * Ring-buffer of the last OUTPUT_TAIL_LINES lines of output.
+     */
+    private final String[] outputTailRing = new String[OUTPUT_TAIL_LINES];
+
+    /**
+     * The index in outputTailRing the next line is to be placed.
+     */
+    private int outputTailNext = 0;
+
+    /**
+     * The number of lines held in outputTailRing.
+     */
+    private int outputTailCount = 0;
+
+    /**
+     * Shutdown hook that destroys the process if the JVM exits with the
+     * process still running, null if the process is allowed to outlive the
+     * JVM.
+     */
+    private Thread destroyOnJvmExitHook = null;
+
+    /**
+     * The log file the output is appended to, null if the output is drained
+     * into the ring-buffer.
+     */
+    private File outputLogFile = null;
+
+    /**
+     * Create the server process object for a started process and begin
+     * draining its output.
+     *
+     * @param process the started process
+     * @param description name of the server for messages
+     * @param destroyOnJvmExit true if the process is to be destroyed when the
+     * JVM exits (avoids orphaned proxy-servers holding ports)
+     */
+    private JscovServerProcess(Process process, String description, boolean destroyOnJvmExit) {
+        this.process = process;
+        this.description = description;
+
+        Thread drainThread = new Thread(this::drainOutput,
+                "JscovTestUtil-drain " + description);
+        drainThread.setDaemon(true);
+        drainThread.start();
+
+        if (destroyOnJvmExit) {
+            this.destroyOnJvmExitHook = new Thread(() -> {
+                if (JscovServerProcess.this.process.isAlive()) {
+                    JscovServerProcess.this.process.destroyForcibly();
+                }
+            }, "JscovTestUtil-destroy " + description);
+
+            Runtime.getRuntime().addShutdownHook(this.destroyOnJvmExitHook);
+        }
+    }
+
+    /**
+     * Start a JSCover server process with output merged and drained.
+     *
+     * @param processBuilder the process builder with command and working
+     * directory in place
+     * @param description name of the server for messages
+     * @param destroyOnJvmExit true if the process is to be destroyed when the
+     * JVM exits
+     *
+     * @return the server process object
+     *
+     * @throws IOException if the process could not be started
+     */
+    static JscovServerProcess start(ProcessBuilder processBuilder,
+            String description, boolean destroyOnJvmExit) throws IOException {
+
+        processBuilder.redirectErrorStream(true);
+        return new JscovServerProcess(processBuilder.start(), description, destroyOnJvmExit);
+    }
+
+    /**
+     * Start a JSCover server process that may outlive the JVM, with output
+     * merged and appended to a log file.
+     *
+     * @param processBuilder the process builder with command and working
+     * directory in place
+     * @param description name of the server for messages
+     * @param outputLogFile the log file the output is appended to
+     *
+     * @return the server process object
+     *
+     * @throws IOException if the process could not be started
+     */
+    static JscovServerProcess startToLogFile(ProcessBuilder processBuilder,
+            String description, File outputLogFile) throws IOException {
+
+        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.appendTo(outputLogFile));
+
+        // the output stream of the process is empty, the drain thread ends
+        JscovServerProcess serverProcess
+                = new JscovServerProcess(processBuilder.start(), description, false);
+        serverProcess.outputLogFile = outputLogFile;
+
+        return serverProcess;
+    }
+
+    /**
+     * Is the process still running.
+     *
+     * @return true if running
+     */
+    @Override
+    public boolean isAlive() {
+        return this.process.isAlive();
+    }
+
+    /**
+     * Get the exit value of the process.
+     *
+     * @return the exit value, or null if the process is still running
+     */
+    @Override
+    public Integer exitValue() {
+        if (this.process.isAlive()) {
+            return null;
+        }
+        return this.process.exitValue();
+    }
+
+    /**
+     * Get the name of the server as used in messages.
+     *
+     * @return string of the description
+     */
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * Get the last lines of output (standard-output and standard-error) of
+     * the process.
+     *
+     * @return string of the captured output tail, lines separated by '\n'
+     */
+    @Override
+    public synchronized String getOutputTail() {
+        if (this.outputLogFile != null) {
+            return getLogFileTail();
+        }
+        StringBuilder tailBuilder = new StringBuilder();
+
+        int firstIndex = (this.outputTailNext - this.outputTailCount + OUTPUT_TAIL_LINES)
+                % OUTPUT_TAIL_LINES;
+
+        for (int i = 0; i < this.outputTailCount; i++) {
+            tailBuilder.append(this.outputTailRing[(firstIndex + i) % OUTPUT_TAIL_LINES])
+                    .append('\n');
+        }
+        return tailBuilder.toString();
+    }
+
+    /**
+     * Wait for the process to exit.
+     *
+     * @param timeoutMsecs time (milliseconds) to wait
+     *
+     * @return true if the process has exited
+     */
+    @Override
+    public boolean waitForExit(long timeoutMsecs) {
+        try {
+            return this.process.waitFor(timeoutMsecs, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return !this.process.isAlive();
+        }
+    }
+
+    /**
+     * Wait for the process to exit (as it has been asked to stop), escalating
+     * to <code>destroy</code> and then <code>destroyForcibly</code> if it does
+     * not exit in time.
+     *
+     * @param gracefulTimeoutMsecs time (milliseconds) allowed for the process
+     * to exit by itself
+     *
+     * @return the exit value, or null if the process could not be terminated
+     */
+    @Override
+    public Integer stop(long gracefulTimeoutMsecs) {
+        if (!waitForExit(gracefulTimeoutMsecs)) {
+            this.process.destroy();
+
+            if (!waitForExit(DESTROY_WAIT_MSECS)) {
+                this.process.destroyForcibly();
+                waitForExit(DESTROY_WAIT_MSECS);
+            }
+        }
+        releaseShutdownHook();
+
+        return exitValue();
+    }
+
+    @Override
+    public boolean isInJvm() {
+        return false;
+    }
+
+    /**
+     * Remove the destroy-on-JVM-exit hook as the process has ended.
+     */
+    private void releaseShutdownHook() {
+        if (this.destroyOnJvmExitHook == null || this.process.isAlive()) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.destroyOnJvmExitHook);
+
+        } catch (IllegalStateException ex) {
+            // the JVM is already shutting down
+        }
+        this.destroyOnJvmExitHook = null;
+    }
+
+    /**
+     * Get the last lines of the log file (up to OUTPUT_TAIL_LINES lines of
+     * its last 32K bytes, the log file is appended to by each launch).
+     *
+     * @return string of the log file tail, lines separated by '\n'
+     */
+    private String getLogFileTail() {
+        try (RandomAccessFile logAccess = new RandomAccessFile(this.outputLogFile, "r")) {
+            long tailStart = Math.max(0, logAccess.length() - 32768);
+            byte[] tailBytes = new byte[(int) (logAccess.length() - tailStart)];
+
+            logAccess.seek(tailStart);
+            logAccess.readFully(tailBytes);
+
+            String[] tailLines = new String(tailBytes, StandardCharsets.UTF_8).split("\r?\n");
+            StringBuilder tailBuilder = new StringBuilder();
+
+            for (int i = Math.max(0, tailLines.length - OUTPUT_TAIL_LINES); i < tailLines.length; i++) {
+                tailBuilder.append(tailLines[i]).append('\n');
+            }
+            return tailBuilder.toString();
+
+        } catch (IOException ex) {
+            return String.format("(log file %s not readable: %s)\n",
+                    this.outputLogFile.getPath(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Drain the output of the process into the ring-buffer until the process
+     * closes its output (runs on the drain thread).
+     */
+    private void drainOutput() {
+        try (BufferedReader outputReader = new BufferedReader(
+                new InputStreamReader(this.process.getInputStream()))) {
+
+            String line;
+            while ((line = outputReader.readLine()) != null) {
+                addOutputLine(line);
+            }
+        } catch (IOException ex) {
+            // the stream is closed when the process is destroyed, nothing
+            // more to drain
+        }
+    }
+
+    /**
+     * Add a line of output to the ring-buffer, overwriting the oldest line
+     * once full.
+     *
+     * @param line the output line
+     */
+    private synchronized void addOutputLine(String line) {
+        this.outputTailRing[this.outputTailNext] = line;
+        this.outputTailNext = (this.outputTailNext + 1) % OUTPUT_TAIL_LINES;
+
+        if (this.outputTailCount < OUTPUT_TAIL_LINES) {
+            this.outputTailCount++;
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
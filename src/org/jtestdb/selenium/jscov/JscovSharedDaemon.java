@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A proxy-server shared by the JscovTestUtil objects of all the JVMs on the
+ * host using the same JSCover directory (e.g. parallel test forks)&#46; The
+ * first object to start launches the proxy-server and records it in the
+ * daemon file 'jscovtestutil-daemon.properties' of the JSCover directory;
+ * later objects attach to it (after a health check) counting references,
+ * and the last to detach stops it.
+ * <p>
+ * The daemon file is read and written under a file lock
+ * ('jscovtestutil-daemon.lock', held across JVMs) and a JVM lock (a file
+ * lock cannot be held twice by a JVM), so an attach, detach or stop is not
+ * overlapped by another&#46; A launch is not made under the locks (it waits
+ * on the proxy-server being ready): the launching object records a claim
+ * in the daemon file, the others wait on the claim (the locks released)
+ * until the launch is recorded, or the claim is older than the launch is
+ * allowed and is replaced.
+ * <p>
+ * A daemon file whose proxy-server does not answer (e.g. the host was
+ * restarted) is stale and is replaced by the next attach.
+ */
+class JscovSharedDaemon {
+
+    /**
+     * The name of the daemon file in the JSCover directory.
+     */
+    final static String DAEMON_FILE_NAME = "jscovtestutil-daemon.properties";
+
+    /**
+     * The name of the log file of the daemon proxy-server process in the
+     * JSCover directory.
+     */
+    final static String DAEMON_LOG_FILE_NAME = "jscovtestutil-daemon.log";
+
+    /**
+     * The name of the lock file in the JSCover directory.
+     */
+    private final static String LOCK_FILE_NAME = "jscovtestutil-daemon.lock";
+
+    /**
+     * Daemon file property names.
+     */
+    private final static String PROP_PORT_NO = "portNo";
+    private final static String PROP_REF_COUNT = "refCount";
+    private final static String PROP_REPORT_DIR = "reportDir";
+    private final static String PROP_OPTIONS = "options";
+    private final static String PROP_LAUNCHING = "launching";
+    private final static String PROP_LAUNCHED = "launched";
+
+    /**
+     * The time (milliseconds) a launch claim is waited on, after which it is
+     * taken to have failed (the launching JVM ended part way).
+     */
+    private final static long LAUNCH_CLAIM_MSECS = 120000;
+
+    /**
+     * The time (milliseconds) between checks of a launch claim.
+     */
+    private final static long LAUNCH_WAIT_POLL_MSECS = 200;
+
+    /**
+     * The outcome of an attach step under the locks: attached (the port
+     * number), launch (this object claimed the launch) or wait (another is
+     * launching).
+     */
+    private final static int ATTACH_LAUNCH = -1;
+    private final static int ATTACH_WAIT = -2;
+
+    /**
+     * The JVM lock, the file lock is per JVM.
+     */
+    private final static Object JVM_LOCK = new Object();
+
+    /**
+     * The JSCover directory.
+     */
+    private final File jscoverDir;
+
+    /**
+     * Create the shared daemon object for a JSCover directory.
+     *
+     * @param jscoverDir the JSCover directory
+     */
+    JscovSharedDaemon(File jscoverDir) {
+        this.jscoverDir = jscoverDir;
+    }
+
+    /**
+     * Attach to the shared proxy-server, launching it if there is none (or
+     * the recorded one does not answer).
+     *
+     * @param requestedPortNo the port number requested (ANY_FREE_PORT for
+     * any)
+     * @param reportDirBase the report directory the proxy-server reports to
+     * @param options the JSCover options of the proxy-server
+     * @param isHealthy tests if a proxy-server answers on a port number
+     * @param launcher launches the proxy-server on the requested port number
+     * and returns the port number used
+     *
+     * @return the port number of the shared proxy-server
+     *
+     * @exception RuntimeException if the shared proxy-server is of a
+     * different port, report directory or options, or the daemon file
+     * cannot be used
+     */
+    int attach(int requestedPortNo, String reportDirBase, String options,
+            IntPredicate isHealthy, IntUnaryOperator launcher) {
+
+        String claim = Long.toString(System.currentTimeMillis());
+
+        while (true) {
+            int attachStep = withLock((daemonProps) -> {
+                if (daemonProps.containsKey(PROP_PORT_NO)) {
+                    int daemonPortNo = Integer.parseInt(daemonProps.getProperty(PROP_PORT_NO));
+
+                    if (isHealthy.test(daemonPortNo)) {
+                        checkSameDaemon(daemonProps, requestedPortNo, reportDirBase, options);
+
+                        int refCount = Integer.parseInt(daemonProps.getProperty(PROP_REF_COUNT, "0"));
+                        daemonProps.setProperty(PROP_REF_COUNT, Integer.toString(refCount + 1));
+
+                        return daemonPortNo;
+                    }
+                    // stale, the proxy-server has gone
+                    daemonProps.clear();
+                }
+                if (daemonProps.containsKey(PROP_LAUNCHING)
+                        && System.currentTimeMillis() - Long.parseLong(daemonProps.getProperty(PROP_LAUNCHING))
+                        < LAUNCH_CLAIM_MSECS) {
+                    return ATTACH_WAIT;
+                }
+                daemonProps.clear();
+                daemonProps.setProperty(PROP_LAUNCHING, claim);
+
+                return ATTACH_LAUNCH;
+            });
+            if (attachStep >= 0) {
+                return attachStep;
+            }
+            if (attachStep == ATTACH_WAIT) {
+                try {
+                    Thread.sleep(LAUNCH_WAIT_POLL_MSECS);
+
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted waiting on the shared proxy-server launch.");
+                }
+                continue;
+            }
+            return launchClaimed(claim, requestedPortNo, reportDirBase, options, launcher);
+        }
+    }
+
+    /**
+     * Launch the proxy-server of the launch claimed (not under the locks),
+     * then record it; the claim is removed if the launch fails.
+     *
+     * @param claim the launch claim of this object
+     * @param requestedPortNo the port number requested
+     * @param reportDirBase the report directory the proxy-server reports to
+     * @param options the JSCover options of the proxy-server
+     * @param launcher launches the proxy-server
+     *
+     * @return the port number of the proxy-server
+     */
+    private int launchClaimed(String claim, int requestedPortNo, String reportDirBase,
+            String options, IntUnaryOperator launcher) {
+        int launchedPortNo;
+        try {
+            launchedPortNo = launcher.applyAsInt(requestedPortNo);
+
+        } catch (RuntimeException ex) {
+            withLock((daemonProps) -> {
+                if (claim.equals(daemonProps.getProperty(PROP_LAUNCHING))) {
+                    daemonProps.clear();
+                }
+                return null;
+            });
+            throw ex;
+        }
+        return withLock((daemonProps) -> {
+            daemonProps.clear();
+            daemonProps.setProperty(PROP_PORT_NO, Integer.toString(launchedPortNo));
+            daemonProps.setProperty(PROP_REF_COUNT, "1");
+            daemonProps.setProperty(PROP_REPORT_DIR, reportDirBase);
+            daemonProps.setProperty(PROP_OPTIONS, options);
+            daemonProps.setProperty(PROP_LAUNCHED, Long.toString(System.currentTimeMillis()));
+
+            return launchedPortNo;
+        });
+    }
+
+    /**
+     * Detach from the shared proxy-server, stopping it if this is the last
+     * reference.
+     *
+     * @param portNo the port number attached to
+     * @param stopper stops the proxy-server on the port number (invoked
+     * under the lock)
+     *
+     * @return true if the proxy-server was stopped
+     */
+    boolean detach(int portNo, IntConsumer stopper) {
+        return withLock((daemonProps) -> {
+            if (!daemonProps.containsKey(PROP_PORT_NO)
+                    || Integer.parseInt(daemonProps.getProperty(PROP_PORT_NO)) != portNo) {
+                // replaced by another daemon, nothing of this one to detach
+                return false;
+            }
+            int refCount = Integer.parseInt(daemonProps.getProperty(PROP_REF_COUNT, "1")) - 1;
+
+            if (refCount > 0) {
+                daemonProps.setProperty(PROP_REF_COUNT, Integer.toString(refCount));
+                return false;
+            }
+            daemonProps.clear();
+            stopper.accept(portNo);
+
+            return true;
+        });
+    }
+
+    /**
+     * Is the port number that of a shared proxy-server that is answering
+     * (so it is not to be sent a stop message by a tear-down).
+     *
+     * @param portNo the port number
+     * @param isHealthy tests if a proxy-server answers on a port number
+     *
+     * @return true if the shared proxy-server is on the port number
+     */
+    boolean isSharedPortNo(int portNo, IntPredicate isHealthy) {
+        Properties daemonProps = readDaemonFile();
+
+        return daemonProps.containsKey(PROP_PORT_NO)
+                && Integer.parseInt(daemonProps.getProperty(PROP_PORT_NO)) == portNo
+                && isHealthy.test(portNo);
+    }
+
+    /**
+     * Get the log file of the shared proxy-server process.
+     *
+     * @return the log file
+     */
+    File getLogFile() {
+        return new File(this.jscoverDir, DAEMON_LOG_FILE_NAME);
+    }
+
+    /**
+     * Check an attach is to a shared proxy-server of the same configuration,
+     * the proxy-server cannot be changed while others use it.
+     *
+     * @param daemonProps the daemon file properties
+     * @param requestedPortNo the port number requested
+     * @param reportDirBase the report directory requested
+     * @param options the JSCover options requested
+     */
+    private static void checkSameDaemon(Properties daemonProps, int requestedPortNo,
+            String reportDirBase, String options) {
+
+        String daemonPortNo = daemonProps.getProperty(PROP_PORT_NO);
+
+        if (requestedPortNo != JscovTestUtil.ANY_FREE_PORT
+                && !daemonPortNo.equals(Integer.toString(requestedPortNo))) {
+            throw new RuntimeException(String.format(
+                    "Shared proxy-server is on portNo %s, not portNo %d.",
+                    daemonPortNo, requestedPortNo));
+        }
+        if (!reportDirBase.equals(daemonProps.getProperty(PROP_REPORT_DIR))
+                || !options.equals(daemonProps.getProperty(PROP_OPTIONS))) {
+            throw new RuntimeException(String.format(
+                    "Shared proxy-server (portNo %s) has a different configuration.\n"
+                    + "  shared:    report-dir '%s' options '%s'\n"
+                    + "  requested: report-dir '%s' options '%s'",
+                    daemonPortNo,
+                    daemonProps.getProperty(PROP_REPORT_DIR), daemonProps.getProperty(PROP_OPTIONS),
+                    reportDirBase, options));
+        }
+    }
+
+    /**
+     * An action on the daemon file properties made under the lock.
+     *
+     * @param <T> the result type
+     */
+    private interface DaemonAction<T> {
+
+        /**
+         * Perform the action, changes to the properties are written to the
+         * daemon file (empty properties delete it).
+         *
+         * @param daemonProps the daemon file properties, empty if there is
+         * no daemon file
+         *
+         * @return the result
+         */
+        T perform(Properties daemonProps);
+    }
+
+    /**
+     * Perform an action on the daemon file under the JVM and file locks.
+     *
+     * @param <T> the result type
+     * @param daemonAction the action
+     *
+     * @return the result of the action
+     */
+    private <T> T withLock(DaemonAction<T> daemonAction) {
+        synchronized (JVM_LOCK) {
+            File lockFile = new File(this.jscoverDir, LOCK_FILE_NAME);
+
+            try (RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw");
+                    FileChannel lockChannel = lockAccess.getChannel()) {
+
+                FileLock fileLock = lockChannel.lock();
+                try {
+                    Properties daemonProps = readDaemonFile();
+                    T result = daemonAction.perform(daemonProps);
+
+                    writeDaemonFile(daemonProps);
+                    return result;
+
+                } finally {
+                    fileLock.release();
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException(String.format(
+                        "Shared proxy-server daemon file cannot be used: %s\n%s",
+                        lockFile.getParent(), ex.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Read the daemon file.
+     *
+     * @return the properties, empty if there is no daemon file
+     */
+    private Properties readDaemonFile() {
+        Properties daemonProps = new Properties();
+        File daemonFile = new File(this.jscoverDir, DAEMON_FILE_NAME);
+
+        if (daemonFile.isFile()) {
+            try (InputStream daemonStream = new FileInputStream(daemonFile)) {
+                daemonProps.load(daemonStream);
+
+            } catch (IOException | IllegalArgumentException ex) {
+                // unreadable, treated as stale
+                daemonProps.clear();
+            }
+        }
+        if (!daemonProps.containsKey(PROP_PORT_NO) && !daemonProps.containsKey(PROP_LAUNCHING)) {
+            daemonProps.clear();
+        }
+        return daemonProps;
+    }
+
+    /**
+     * Write (or delete if empty) the daemon file.
+     *
+     * @param daemonProps the properties
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void writeDaemonFile(Properties daemonProps) throws IOException {
+        File daemonFile = new File(this.jscoverDir, DAEMON_FILE_NAME);
+
+        if (daemonProps.isEmpty()) {
+            daemonFile.delete();
+            return;
+        }
+        try (OutputStream daemonStream = new FileOutputStream(daemonFile)) {
+            daemonProps.store(daemonStream, "JscovTestUtil shared proxy-server");
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
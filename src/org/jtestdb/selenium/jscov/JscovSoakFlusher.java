@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The scheduled flush of one JscovTestUtil in soak mode (see
+ * <code>setOnSoakFlush</code>)&#46; The flush runs on one daemon thread
+ * with a fixed delay between the end of a flush and the start of the next,
+ * so there is never more than one flush in flight and a slow flush does not
+ * pile up flushes behind it.
+ * <p>
+ * A flush that fails (e.g. the browser has crashed) is counted and reported
+ * by an INFO message, the schedule continues; a flush that has nothing to
+ * do (e.g. there is no WebDriver yet) is not counted.
+ */
+final class JscovSoakFlusher {
+
+    /**
+     * Thread number of the flusher threads, for their names.
+     */
+    private final static AtomicInteger THREAD_NO = new AtomicInteger();
+
+    /**
+     * The scheduler of the flushes (one thread).
+     */
+    private final ScheduledExecutorService flushScheduler;
+
+    /**
+     * The number of flushes completed.
+     */
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /**
+     * The number of flushes failed.
+     */
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /**
+     * Start the scheduled flushes, the first is a period from now.
+     *
+     * @param flushAction the flush, false if it had nothing to do (a
+     * RuntimeException is a failure)
+     * @param periodSecs time (seconds) from the end of a flush to the start
+     * of the next
+     */
+    JscovSoakFlusher(BooleanSupplier flushAction, int periodSecs) {
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread flusherThread = new Thread(runnable,
+                    "JscovSoakFlusher-" + THREAD_NO.incrementAndGet());
+            flusherThread.setDaemon(true);
+            return flusherThread;
+        });
+        this.flushScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (flushAction.getAsBoolean()) {
+                    this.flushCount.incrementAndGet();
+                }
+
+            } catch (RuntimeException ex) {
+                this.failureCount.incrementAndGet();
+                System.err.printf("\nINFO: JscovTestUtil: soak flush failed, the next is in %d seconds: %s\n",
+                        periodSecs, ex.getMessage());
+            }
+        }, periodSecs, periodSecs, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the number of flushes completed.
+     *
+     * @return the count
+     */
+    long getFlushCount() {
+        return this.flushCount.get();
+    }
+
+    /**
+     * Get the number of flushes failed.
+     *
+     * @return the count
+     */
+    long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    /**
+     * Are the scheduled flushes stopped.
+     *
+     * @return true if stopped
+     */
+    boolean isStopped() {
+        return this.flushScheduler.isShutdown();
+    }
+
+    /**
+     * Stop the scheduled flushes, waiting for a flush in flight to
+     * complete.
+     *
+     * @param waitMsecs time (milliseconds) to wait for the flush in flight
+     */
+    void stop(long waitMsecs) {
+        this.flushScheduler.shutdown();
+        try {
+            this.flushScheduler.awaitTermination(waitMsecs, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
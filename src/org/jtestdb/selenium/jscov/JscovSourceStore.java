@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The content-addressed store of the original JS-files ('original-src') of
+ * the reports of a reports directory&#46; A report de-duplicated has each of
+ * its original JS-files hard linked to the store file of the same content
+ * (SHA-256 named), so the JS-files unchanged across time-stamp reports are
+ * on the disk once:
+ * <pre>
+ *   reports/.jscovsrcstore/3f/3fa2...e1
+ *   reports/jscov20260101_000000_000/original-src/js/app.js  (link)
+ * </pre>
+ * Where a hard link cannot be made (e.g. a file-system without them) the
+ * report keeps its copy&#46; A store file no longer linked by a report is
+ * deleted by a purge, known by its link count ('unix:nlink'); where the
+ * link count cannot be read (e.g. Windows/NTFS) there is no de-duplication,
+ * as the store could not be purged.
+ * <p>
+ * A report with shared (linked) JS-files is marked, and is to be un-shared
+ * (each linked JS-file replaced by a copy) before it is stored into again,
+ * as a JS-file written in place would otherwise change the store and every
+ * report linking it.
+ */
+final class JscovSourceStore {
+
+    /**
+     * The name of the store directory within the reports directory (not of
+     * the time-stamp form).
+     */
+    final static String STORE_DIR_NAME = ".jscovsrcstore";
+
+    /**
+     * The name of the mark file of a report with shared JS-files.
+     */
+    final static String SHARED_MARK_FILE_NAME = ".jscovsrcshared";
+
+    /**
+     * The name of the original JS-files directory of a report.
+     */
+    private final static String ORIGINAL_SRC_DIR_NAME = "original-src";
+
+    /**
+     * The store directory.
+     */
+    private final File storeDir;
+
+    /**
+     * Create the store of a reports directory.
+     *
+     * @param reportsDir the reports directory
+     */
+    JscovSourceStore(File reportsDir) {
+        this.storeDir = new File(reportsDir, STORE_DIR_NAME);
+    }
+
+    /**
+     * De-duplicate the original JS-files of a report into the store&#46; A
+     * JS-file that cannot be read or linked is left as it is&#46; None are
+     * de-duplicated, with an INFO message, where the link count cannot be
+     * read (the store files would never be purged).
+     *
+     * @param reportDir the report directory
+     *
+     * @return the number of JS-files linked to the store (already linked
+     * included)
+     */
+    int dedup(File reportDir) {
+        File originalSrcDir = new File(reportDir, ORIGINAL_SRC_DIR_NAME);
+
+        if (!originalSrcDir.isDirectory()) {
+            return 0;
+        }
+        if (linkCountOf(originalSrcDir.toPath()) == 0) {
+            System.err.printf("\nINFO: JscovTestUtil: original JS-files not de-duplicated, "
+                    + "the file-system link count is not known: %s\n", reportDir.getPath());
+            return 0;
+        }
+        int[] linkedCount = {0};
+        try {
+            // marked first, a JS-file is not shared unmarked (if the JVM
+            // ends part way)
+            Files.write(new File(reportDir, SHARED_MARK_FILE_NAME).toPath(), new byte[0]);
+
+            Files.walkFileTree(originalSrcDir.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && linkToStore(file)) {
+                        linkedCount[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            System.err.printf("\nINFO: JscovTestUtil: original JS-files not de-duplicated: %s\n%s\n",
+                    reportDir.getPath(), ex.getMessage());
+        }
+        return linkedCount[0];
+    }
+
+    /**
+     * Link a JS-file to the store file of its content, the JS-file itself
+     * becoming the store file if there is none.
+     *
+     * @param file the JS-file
+     *
+     * @return true if linked
+     */
+    private boolean linkToStore(Path file) {
+        Path tmpLink = null;
+        try {
+            String digest = digestOf(file);
+            Path storeFile = this.storeDir.toPath().resolve(digest.substring(0, 2)).resolve(digest);
+
+            Files.createDirectories(storeFile.getParent());
+
+            if (!Files.exists(storeFile)) {
+                Files.createLink(storeFile, file);
+                return true;
+            }
+            if (Files.isSameFile(storeFile, file)) {
+                return true;
+            }
+            // linked aside and moved over, the JS-file is always whole
+            tmpLink = file.resolveSibling(file.getFileName() + ".jscovlink");
+            Files.deleteIfExists(tmpLink);
+            Files.createLink(tmpLink, storeFile);
+            Files.move(tmpLink, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+
+        } catch (IOException | UnsupportedOperationException ex) {
+            // no hard link (e.g. another file-system), the copy is kept
+            if (tmpLink != null) {
+                tmpLink.toFile().delete();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Un-share the original JS-files of a report, if marked: each JS-file
+     * linked is replaced by a copy, then the mark removed.
+     *
+     * @param reportDir the report directory
+     *
+     * @exception RuntimeException if a JS-file cannot be un-shared
+     */
+    static void unshare(File reportDir) {
+        File markFile = new File(reportDir, SHARED_MARK_FILE_NAME);
+
+        if (!markFile.isFile()) {
+            return;
+        }
+        try {
+            Files.walkFileTree(new File(reportDir, ORIGINAL_SRC_DIR_NAME).toPath(),
+                    new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && linkCountOf(file) != 1) {
+                        Path tmpCopy = file.resolveSibling(file.getFileName() + ".jscovcopy");
+
+                        Files.copy(file, tmpCopy, StandardCopyOption.REPLACE_EXISTING);
+                        Files.move(tmpCopy, file,
+                                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            Files.delete(markFile.toPath());
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "The original JS-files of the report '%s' are not un-shared from the store.",
+                    reportDir.getPath()), ex);
+        }
+    }
+
+    /**
+     * Delete the store files no longer linked by a report (a link count of
+     * one)&#46; No purge where the link count is not known.
+     *
+     * @return the number of store files deleted
+     */
+    int purge() {
+        int[] deletedCount = {0};
+
+        if (!this.storeDir.isDirectory()) {
+            return 0;
+        }
+        try {
+            Files.walkFileTree(this.storeDir.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (linkCountOf(file) == 1) {
+                        Files.delete(file);
+                        deletedCount[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            // purged what could be, the rest by the next purge
+        }
+        return deletedCount[0];
+    }
+
+    /**
+     * Get the number of hard links of a file.
+     *
+     * @param file the file
+     *
+     * @return the count, 0 if not known
+     */
+    private static int linkCountOf(Path file) {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Get the SHA-256 of the content of a file.
+     *
+     * @param file the file
+     *
+     * @return the digest, in hexadecimal
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private static String digestOf(Path file) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        byte[] buffer = new byte[8192];
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int readCount;
+            while ((readCount = inputStream.read(buffer)) > 0) {
+                messageDigest.update(buffer, 0, readCount);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : messageDigest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -28,29 +28,41 @@ import java.awt.Desktop;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import static org.jtestdb.selenium.jscov.JscovBrowserKind.CHROME;
 import static org.jtestdb.selenium.jscov.JscovBrowserKind.FIREFOX;
 import static org.jtestdb.selenium.jscov.JscovBrowserKind.getTypeForWebDriver;
-import org.openqa.selenium.By;
 import org.openqa.selenium.Dimension;
 import org.openqa.selenium.JavascriptException;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Proxy;
+import org.openqa.selenium.ScriptTimeoutException;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
@@ -59,8 +71,6 @@ import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.remote.RemoteWebDriver;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import static org.jtestdb.selenium.jscov.JscovTestUtil.ProcessingState.*;
 
 /**
@@ -224,12 +234,49 @@ import static org.jtestdb.selenium.jscov.JscovTestUtil.ProcessingState.*;
  */
 public class JscovTestUtil {
 
+    /**
+     * Port number value that has JscovTestUtil pick a free port itself for
+     * the proxy-server (constructors) or the simple-server
+     * (<code>viewReportDo</code>)&#46; This allows many proxy-servers to be
+     * launched on a single machine without coordinating port numbers.
+     */
+    public final static int ANY_FREE_PORT = 0;
+
+    /**
+     * The number of times a proxy-server start on a free port is attempted,
+     * as another program may take the free port before JSCover binds to it.
+     */
+    private final static int ANY_FREE_PORT_START_ATTEMPTS = 3;
+
+    /**
+     * Executor of the asynchronous start/stop/view-report methods (daemon
+     * threads, so pending work does not hold the JVM from exiting).
+     */
+    private final static ExecutorService ASYNC_EXECUTOR;
+
+    static {
+        AtomicInteger asyncThreadNo = new AtomicInteger();
+
+        ASYNC_EXECUTOR = Executors.newCachedThreadPool((runnable) -> {
+            Thread asyncThread = new Thread(runnable,
+                    "JscovTestUtil-async-" + asyncThreadNo.incrementAndGet());
+            asyncThread.setDaemon(true);
+            return asyncThread;
+        });
+    }
+
+    /**
+     * The number of synthetic JS-file requests of a warm-up set on by
+     * <code>setOnWarmUp</code>.
+     */
+    private final static int WARM_UP_DEFAULT_REQUESTS = 10;
+
     /**
      * An additional script provided for the viewReport method so that the
      * jscover.simple.server can be stopped. This script allows the report to be
      * changed to reflect this needed action to stop the server.
      */
-    final private static String JSCOV_TEST_UTIL_REPORT_SCRIPT
+    final static String JSCOV_TEST_UTIL_REPORT_SCRIPT
             = "function stopServer(){\n"
             + "var protocol = window.location.protocol;\n"
             + "\n"
@@ -265,13 +312,6 @@ public class JscovTestUtil {
             + " var h1JSCoverEle = document.getElementsByTagName('h1')[0];\n"
             + " h1JSCoverEle.parentNode.insertBefore(divele, h1JSCoverEle.nextSibling);\n"
             + "}\n";
-    /**
-     * When JscovTestUtil detects that jscoverage_report(...) has completed ( by
-     * the DOM element with ID STOPELEID_STR being appended) the trigger is
-     * removed from DOM automatically within this time period.
-     */
-    private final static String STOPELEID_MSECOND_REMOVE_TIMER = "3000";
-
     /**
      * The prefix string used in the timestamp report name.
      * <pre>
@@ -289,39 +329,68 @@ public class JscovTestUtil {
     private final static int REP_TIMERSTAMP_LENGTH = 19 + REP_TIMESTAMP_PREFIX.length();
 
     /**
-     * ID of a DOM element that will cause JscovTestUtil to know that the
-     * jscoverage_report(...) has completed.
+     * Javascript request for report create, run by executeAsyncScript which
+     * returns once the on complete callback of jscoverage_report is invoked
+     * with the HTTP status of the store (200 when JSCover has stored the
+     * report)&#46; A web-page without jscoverage_report (not instrumented)
+     * causes a JavascriptException.
      */
-    private final static String STOPELEID_STR = "stopEleId";
+    private final static String REPORT_COMPLETE_ASYNC_SCRIPT
+            = "var reportComplete = arguments[arguments.length - 1];"
+            + "jscoverage_report('%s', function (request) { reportComplete(request.status); });";
+
     /**
-     * Javascript request for report create with on complete callback function
-     * which will append a 'stopEleId' to the DOM. The presence of the
-     * stop-element will cause the stopping of the JSCover proxy server.
+     * The WebDriver script time-out (seconds) by default.
      */
-    final private static String REPORT_COMPLETE_AND_CALLBACK_SCRIPT
-            = "return jscoverage_report('%s', function(){"
-            // callback actions
-            // 1) once report is complete, append to DOM stopEleId element
-            // 2) remove the element from DOM after N milliseconds
-            // - - - by doing this ensures the DOM has no lagging element
-            // - - - in the event JscovTestUtil is interrupted.
-            //
-            + "var bodyEle = document.getElementsByTagName('body')[0];"
-            + "var doStopEle = document.createElement('p');"
-            + "doStopEle.setAttribute('id', '" + STOPELEID_STR + "');"
-            + "bodyEle.appendChild(doStopEle);"
-            + ""
-            // 2) remove element action
-            //
-            // setTimeout( 
-            //  function(){document.getElementById('stopEleId').remove(); },
-            //  1000);
-            //
-            + "setTimeout("
-            + " function(){document.getElementById('" + STOPELEID_STR + "').remove(); },"
-            + STOPELEID_MSECOND_REMOVE_TIMER
-            + ");"
-            + "});";
+    private final static int DEFAULT_DRIVER_SCRIPT_TIMEOUT_SECS = 30;
+
+    /**
+     * Javascript part zeroing the JSCover in-page coverage counters and
+     * removing the coverage kept in local-storage.
+     */
+    private final static String ZERO_COVERAGE_SCRIPT_PART
+            = "var zeroCounts = function (counts) {"
+            + "  if (!counts) { return; }"
+            + "  for (var i = 0; i < counts.length; i++) {"
+            + "    if (counts[i] !== undefined && counts[i] !== null) { counts[i] = 0; }"
+            + "  }"
+            + "};"
+            + "for (var file in _$jscoverage) {"
+            + "  if (!_$jscoverage.hasOwnProperty(file)) { continue; }"
+            + "  var fileCov = _$jscoverage[file];"
+            + "  zeroCounts(fileCov.lineData);"
+            + "  zeroCounts(fileCov.functionData);"
+            + "  for (var line in fileCov.branchData) {"
+            + "    var conds = fileCov.branchData[line];"
+            + "    for (var c = 0; conds && c < conds.length; c++) {"
+            + "      if (conds[c]) { conds[c].evalTrue = 0; conds[c].evalFalse = 0; }"
+            + "    }"
+            + "  }"
+            + "}"
+            + "try { localStorage.removeItem('jscover'); } catch (e) {}";
+
+    /**
+     * Javascript to reset the JSCover in-page coverage counters to zero
+     * (lines, functions and branch conditions) and remove the coverage kept
+     * in local-storage between page loads ('--local-storage' option)&#46;
+     * Returns false if the web-page is not instrumented.
+     */
+    private final static String RESET_COVERAGE_SCRIPT
+            = "if (typeof _$jscoverage === 'undefined') { return false; }"
+            + ZERO_COVERAGE_SCRIPT_PART
+            + "return true;";
+
+    /**
+     * Javascript to take the JSCover in-page coverage and reset it, in one
+     * turn of the web-page so no coverage is executed between the two (see
+     * RESET_COVERAGE_SCRIPT)&#46; Returns [origin, coverage JSON] of the
+     * web-page, null if the web-page is not instrumented.
+     */
+    private final static String TAKE_COVERAGE_SCRIPT
+            = "if (typeof _$jscoverage === 'undefined') { return null; }"
+            + "var coverageJson = jscoverage_serializeCoverageToJSON();"
+            + ZERO_COVERAGE_SCRIPT_PART
+            + "return [window.location.protocol + '//' + window.location.host, coverageJson];";
 
     /**
      * The WebDriver executable location is provided within the project (IDE).
@@ -355,6 +424,167 @@ public class JscovTestUtil {
      */
     private int jscoverLocalPortNo;
 
+    /**
+     * The port number requested via the constructor, ANY_FREE_PORT has the
+     * jscoverLocalPortNo picked on each start.
+     */
+    private final int requestedPortNo;
+
+    /**
+     * True to store reports directly (the coverage is read from the web-page
+     * and the report written by this JVM) rather than by jscoverage_report
+     * and the proxy-server.
+     */
+    private boolean directReport = false;
+
+    /**
+     * True to store only the code-coverage gained since the last store.
+     */
+    private boolean incrementalReport = false;
+
+    /**
+     * The number of JS-files the last incremental store sent, -1 if none.
+     */
+    private long lastStoreFileCount = -1;
+
+    /**
+     * The time (milliseconds) the last store took, -1 if none.
+     */
+    private long lastStoreMsecs = -1;
+
+    /**
+     * The WebDriver script time-out (seconds) restored after a store.
+     */
+    private int driverScriptTimeoutSecs = DEFAULT_DRIVER_SCRIPT_TIMEOUT_SECS;
+
+    /**
+     * True to write the binary of the report ('jscoverage.jscb') beside
+     * 'jscoverage.json' on each store.
+     */
+    private boolean binaryReport = false;
+
+    /**
+     * True to replace the 'jscoverage.json' of the time-stamp reports other
+     * than the current by the binary.
+     */
+    private boolean binaryReportOnly = false;
+
+    /**
+     * True to de-duplicate the original JS-files of a report into the
+     * source store of the reports directory as it is stopped.
+     */
+    private boolean sourceDedup = false;
+
+    /**
+     * True to archive the time-stamp reports once not the latest.
+     */
+    private boolean archiveReport = false;
+
+    /**
+     * The default maximum number of background report writes queued or
+     * running.
+     */
+    private final static int DEFAULT_ASYNC_REPORT_MAX_PENDING = 4;
+
+    /**
+     * True to write the reports of stores in the background.
+     */
+    private boolean asyncReport = false;
+
+    /**
+     * The maximum number of background report writes queued or running.
+     */
+    private int asyncReportMaxPending = DEFAULT_ASYNC_REPORT_MAX_PENDING;
+
+    /**
+     * The background report writer of this object, null until a store in
+     * the background.
+     */
+    private JscovReportWriter reportWriter = null;
+
+    /**
+     * The default maximum number of stores held in a batch.
+     */
+    private final static int DEFAULT_BATCH_REPORT_MAX_CALLS = 50;
+
+    /**
+     * The default time (milliseconds) a store is held in a batch.
+     */
+    private final static int DEFAULT_BATCH_REPORT_WINDOW_MSECS = 60000;
+
+    /**
+     * True to hold the stores in a batch, written once per batch.
+     */
+    private boolean batchReport = false;
+
+    /**
+     * The maximum number of stores held in a batch, 0 for no limit.
+     */
+    private int batchReportMaxCalls = DEFAULT_BATCH_REPORT_MAX_CALLS;
+
+    /**
+     * The time (milliseconds) a store is held in a batch, 0 for no limit.
+     */
+    private int batchReportWindowMsecs = DEFAULT_BATCH_REPORT_WINDOW_MSECS;
+
+    /**
+     * The batch of stores not yet written, null if none has been held.
+     */
+    private JscovReportBatch reportBatch = null;
+
+    /**
+     * The default time (seconds) between soak flushes.
+     */
+    private final static int DEFAULT_SOAK_FLUSH_PERIOD_SECS = 300;
+
+    /**
+     * The default time (seconds) allowed a soak flush to store the report.
+     */
+    private final static int DEFAULT_SOAK_FLUSH_REPORT_SECS = 60;
+
+    /**
+     * True to flush the code-coverage on a schedule while started.
+     */
+    private boolean soakFlush = false;
+
+    /**
+     * The time (seconds) between soak flushes.
+     */
+    private int soakFlushPeriodSecs = DEFAULT_SOAK_FLUSH_PERIOD_SECS;
+
+    /**
+     * The time (seconds) allowed a soak flush to store the report.
+     */
+    private int soakFlushReportSecs = DEFAULT_SOAK_FLUSH_REPORT_SECS;
+
+    /**
+     * The scheduled soak flusher, null if none has run.
+     */
+    private JscovSoakFlusher soakFlusher = null;
+
+    /**
+     * The code-coverage taken by soak flushes whose write failed, written
+     * by the next soak flush (guarded by itself, the write is on the
+     * background report writer).
+     */
+    private final JscovReportBatch soakRetryBatch = new JscovReportBatch(0, 0);
+
+    /**
+     * Lock of the stores, resets and report writes, as the soak flush runs
+     * them on its own thread.
+     */
+    private final Object storeLock = new Object();
+
+    /**
+     * The direct report reader/writer of this object.
+     */
+    private final JscovDirectReport directReportWriter = new JscovDirectReport();
+
+    /**
+     * The snapshots of the incremental report of this object.
+     */
+    private final JscovIncrementalReport incrementalSnapshot = new JscovIncrementalReport();
+
     /**
      * The local proxy-server and port required for processing via browser
      * interfaces and settings in string format.
@@ -409,6 +639,24 @@ public class JscovTestUtil {
      * The number of time-stamp reports to retain in the "reports' directory.
      */
     private int retainNTimestampReports = 0;
+
+    /**
+     * The maximum total size (bytes) of the time-stamp reports retained, 0
+     * for no limit.
+     */
+    private long retainMaxTotalBytes = 0;
+
+    /**
+     * The maximum age (milliseconds) of a time-stamp report retained, 0 for
+     * no limit.
+     */
+    private long retainMaxAgeMsecs = 0;
+
+    /**
+     * The manifest of the reports directory, null if not yet used.
+     */
+    private JscovReportManifest reportManifest = null;
+
     /**
      * The state of launching the view-report capability once the testing is
      * stopped. Default is off.
@@ -420,6 +668,105 @@ public class JscovTestUtil {
      */
     private final ArrayList<String> additionalOptionsArr = new ArrayList<>();
 
+    /**
+     * True to share the proxy-server with the other JscovTestUtil objects
+     * (of any JVM) using the same JSCover directory.
+     */
+    private boolean sharedProxyServer = false;
+
+    /**
+     * True if startProxyServerAsync resolved the port number in advance of
+     * the start (the port number is not to change).
+     */
+    private volatile boolean proxyPortNoPreResolved = false;
+
+    /**
+     * The shared proxy-server daemon attached to, null if not attached.
+     */
+    private JscovSharedDaemon attachedSharedDaemon = null;
+
+    /**
+     * Shutdown hook that detaches from the shared proxy-server if the JVM
+     * ends while attached, null if not attached.
+     */
+    private Thread sharedDetachHook = null;
+
+    /**
+     * The number of synthetic JS-file requests to warm-up a started
+     * proxy-server with, 0 for no warm-up.
+     */
+    private int warmUpRequestCount = 0;
+
+    /**
+     * URLs to warm-up a started proxy-server with, in place of the synthetic
+     * JS-files.
+     */
+    private final ArrayList<String> warmUpUrlsArr = new ArrayList<>();
+
+    /**
+     * The time (milliseconds) the last warm-up took, -1 if none.
+     */
+    private long warmUpMsecs = -1;
+
+    /**
+     * JVM options for the proxy-server process (heap, GC,...).
+     */
+    private final ArrayList<String> proxyJvmOptionsArr = new ArrayList<>();
+
+    /**
+     * JVM options for the simple-server process of viewReportDo.
+     */
+    private final ArrayList<String> viewServerJvmOptionsArr = new ArrayList<>();
+
+    /**
+     * True to use a class-data-sharing archive of JSCover-all.jar for the
+     * JSCover processes.
+     */
+    private boolean classDataSharing = false;
+
+    /**
+     * The CDS archive of the proxy-server process launched, null if none.
+     */
+    private JscovCdsArchive proxyCdsArchive = null;
+
+    /**
+     * The time (milliseconds) a started proxy-server is allowed to begin
+     * accepting connections before the start is considered to have failed.
+     */
+    private int proxyReadyTimeoutMsecs = 20000;
+
+    /**
+     * The time (milliseconds) a stopped proxy-server process is allowed to
+     * exit by itself before it is destroyed.
+     */
+    private int proxyStopTimeoutMsecs = 10000;
+
+    /**
+     * The proxy-server launched by this object (process or in-JVM), null if
+     * not started. Used to detect the proxy-server terminating while
+     * JscovTestUtil is waiting on it to become ready, and to wait on its exit
+     * when stopped.
+     */
+    private JscovServer proxyServer = null;
+
+    /**
+     * True to run the proxy-server within the test JVM rather than as a
+     * separate JSCover process.
+     */
+    private boolean inJvmProxyServer = false;
+
+    /**
+     * The process of the simple-server launched by viewReportDo, null if not
+     * launched. The simple-server is allowed to outlive the JVM (the user
+     * stops it from the report page).
+     */
+    private JscovServerProcess viewServerProcess = null;
+
+    /**
+     * The port number of the simple-server launched by viewReportDo.
+     */
+    private int viewServerPortNo = ANY_FREE_PORT;
+
     /**
      * Create a JscovTestUtil object where the JSCover-directory is contained
      * within the "user-dir" of the current running environment (an IDE may
@@ -437,7 +784,8 @@ public class JscovTestUtil {
      * &lt;user-dir&gt;/jscoverInst/target/dist '
      * <br>directory, which JscovTestUtil will assume to be the case.
      *
-     * @param portNo the port number of the JScover proxy-server
+     * @param portNo the port number of the JScover proxy-server, or
+     * ANY_FREE_PORT to have a free port picked on each start
      *
      * @param reportDirectory string that is a sub-directory to use for storing
      * reports into (as per JSCover 'local-storage' option) [this directory will
@@ -447,11 +795,13 @@ public class JscovTestUtil {
      * "ignored" by GIT/HG/SVN/... source code management on their IDE project.
      */
     public JscovTestUtil(int portNo, String reportDirectory) {
-        this.jscoverLocalPortNo = portNo;
+        if (portNo < 0) {
+            throw new RuntimeException("The portNo is negative (?).");
+        }
+        this.requestedPortNo = portNo;
         this.reportDir = reportDirectory;
 
-        this.jscoverLocalProxyAndPortString
-                = String.format("localhost-proxy:%d", jscoverLocalPortNo);
+        setProxyPortNo(portNo);
     }
 
     /**
@@ -463,7 +813,8 @@ public class JscovTestUtil {
      * user to manage multiple test environments using the same
      * JSCover-structures.
      *
-     * @param portNo the port number of the JSCover proxy-server
+     * @param portNo the port number of the JSCover proxy-server, or
+     * ANY_FREE_PORT to have a free port picked on each start
      *
      * @param reportDirectory string that is a sub-directory to use for storing
      * reports into (as per JSCover 'local-storage' option) [this directory will
@@ -481,6 +832,9 @@ public class JscovTestUtil {
 
     /**
      * Get the proxy-server as a string ('http://localhost-proxy:nnnn').
+     * <p>
+     * When constructed with ANY_FREE_PORT the port is the one picked by the
+     * last <code>startProxyServer</code>.
      *
      * @return string of the proxy-server URL
      */
@@ -488,6 +842,17 @@ public class JscovTestUtil {
         return this.jscoverLocalProxyAndPortString;
     }
 
+    /**
+     * Get the port number of the proxy-server&#46; When constructed with
+     * ANY_FREE_PORT this is the port picked by the last
+     * <code>startProxyServer</code> (ANY_FREE_PORT if not started yet).
+     *
+     * @return the proxy-server port number
+     */
+    public int getProxyServerPortNo() {
+        return this.jscoverLocalPortNo;
+    }
+
     /**
      * Allocate a WebDriver for the JscovTestUtil kind of browser that is not a
      * JscovTestUtil JSCover configured browser.
@@ -569,23 +934,13 @@ public class JscovTestUtil {
 
     /**
      * Delete the files within a directory, its sub-directories and finally the
-     * top level directory.
+     * top level directory (in parallel, see <code>JscovFileDeleter</code>)&#46;
+     * Files that could not be deleted are reported by an INFO message.
      *
      * @param fileOrDir FIle object for directory or file to delete
      */
     private static void deleteDir(File fileOrDir) {
-        File[] listOfFileDir = fileOrDir.listFiles();
-        if (listOfFileDir != null) {
-            // have items in the list
-            for (File childFile : listOfFileDir) {
-                if (childFile.isDirectory()) {
-                    deleteDir(childFile);
-                } else {
-                    childFile.delete();
-                }
-            }
-        }
-        fileOrDir.delete();
+        JscovRetention.reportNotDeleted(new JscovFileDeleter().delete(fileOrDir));
     }
 
     /**
@@ -595,7 +950,33 @@ public class JscovTestUtil {
      * :WARNING</span>
      */
     public void removeAllReports() {
-        deleteDir(new File(this.locationOfJscoverDir, getreportDirBase()));
+        removeAllReports(false);
+    }
+
+    /**
+     * Clean the reports directory of all sub-directories, as
+     * <code>removeAllReports()</code>&#46; Detached, the reports directory is
+     * renamed aside at once and deleted in the background (see
+     * <code>JscovFileDeleter</code>), so the caller does not wait on the
+     * deletion of a large reports tree; files that could not be deleted are
+     * reported by an INFO message.
+     * <p>
+     * Reports being written in the background are waited on first
+     * (<code>flush</code>).
+     *
+     * @param detach true to delete the reports in the background
+     */
+    public void removeAllReports(boolean detach) {
+        flush();
+
+        File reportsDirFile = new File(this.locationOfJscoverDir, getreportDirBase());
+
+        if (detach) {
+            new JscovFileDeleter().detach(reportsDirFile)
+                    .thenAccept(JscovRetention::reportNotDeleted);
+        } else {
+            deleteDir(reportsDirFile);
+        }
     }
 
     /**
@@ -606,14 +987,55 @@ public class JscovTestUtil {
      * directory, or null if on is not found
      */
     public String getLastTimeStampReport() {
-        List<String> arrListDirs = getTimestampDirList();
+        File reportsDirFile = new File(this.locationOfJscoverDir, getreportDirBase());
+        JscovReportManifest manifest = getReportManifest();
+
+        // the last of the manifest, unless the reports directory was
+        // modified or a miss (none, or removed other than by this, e.g. by
+        // hand) so the manifest is reconciled with the reports directory
+        // listed
+        String lastTimeStampDir = manifest.getLastRunName(JscovTestUtil::isTimestampDirName);
+
+        if (manifest.isReconcileDue() || lastTimeStampDir == null
+                || !isTimestampRun(reportsDirFile, lastTimeStampDir)) {
+            reconcileManifest(reportsDirFile, manifest, JscovTestUtil::isTimestampDirName);
+            lastTimeStampDir = manifest.getLastRunName(JscovTestUtil::isTimestampDirName);
+        }
+        return lastTimeStampDir;
+    }
 
-        int siz = arrListDirs.size();
-        if (siz == 0) {
-            return null;
+    /**
+     * Merge the time-stamped reports of the reports directory into one
+     * report, a sub-directory of the reports directory (see
+     * <code>JscovReportMerger</code>, the reports are merged in parallel in
+     * this JVM)&#46; The merged report is viewed as any other, e.g. by
+     * <code>reportIntoReuseDir</code> of its name before
+     * <code>viewReportDo</code>.
+     * <p>
+     * The name is not to be of the time-stamp form, or a clean up of the
+     * time-stamped reports would delete the merged report (and a later
+     * merge merge it in).
+     *
+     * @param mergedSubDir name of the sub-directory of the merged report
+     *
+     * @return the merged code-coverage
+     *
+     * @exception RuntimeException if mergedSubDir is null or an empty
+     * string, or a report cannot be read or the merged report written
+     */
+    public JscovCoverageData mergeTimeStampReports(String mergedSubDir) {
+        if (mergedSubDir == null || mergedSubDir.isEmpty()) {
+            throw new RuntimeException("The merged report sub-directory is null or empty.");
+        }
+        flush();
+
+        File reportsDirFile = new File(this.locationOfJscoverDir, getreportDirBase());
+        JscovReportMerger reportMerger = new JscovReportMerger();
+
+        for (String timeStampDir : getTimestampDirList()) {
+            reportMerger.addReportDir(new File(reportsDirFile, timeStampDir));
         }
-        // 
-        return arrListDirs.get(siz - 1);
+        return reportMerger.mergeInto(new File(reportsDirFile, mergedSubDir));
     }
 
     /**
@@ -715,87 +1137,1018 @@ public class JscovTestUtil {
         if (this.processingState == NOT_STARTED
                 || this.processingState == STARTED_AND_STOPPED) {
 
-            this.retainNTimestampReports = retainNTimestampReports;
-
-            LocalDateTime nowDateTime = LocalDateTime.now();
-            DateTimeFormatter dateFmtr = DateTimeFormatter.ofPattern("YYYYMMdd_HHmmss_SSS");
-
-            this.reportFurtherSubDirOrTimeStamp
-                    = String.format("%s%s",
-                            REP_TIMESTAMP_PREFIX, nowDateTime.format(dateFmtr));
+            setReportTargetInternal(retainNTimestampReports, newTimeStampDirName());
         }
         return this;
     }
 
     /**
-     * Set the JscovTestUtil object to a not-active mode so that actual
-     * code-coverage does not happen&#46; HOWEVER, the test case script do not
-     * need to be changed in their use of start, store-report and stop method
-     * calls.
+     * Create a time-stamp report directory name for now.
+     *
+     * @return string 'jscovYYYYMMdd_HHmmss_SSS'
+     */
+    static String newTimeStampDirName() {
+        LocalDateTime nowDateTime = LocalDateTime.now();
+        DateTimeFormatter dateFmtr = DateTimeFormatter.ofPattern("YYYYMMdd_HHmmss_SSS");
+
+        return String.format("%s%s",
+                REP_TIMESTAMP_PREFIX, nowDateTime.format(dateFmtr));
+    }
+
+    /**
+     * Set the size and age limits of the time-stamp reports retained, beside
+     * the count of <code>reportIntoTimeStampDir</code> (or
+     * <code>reportIntoReuseDir</code>)&#46; The newest time-stamp reports
+     * are retained while within all the limits, the current report always;
+     * the age of a report is from the last store into it.
      * <p>
-     * Test-case code may be written with the JscovTestUtil start, stop and
-     * store-report calls remaining in place. The
-     * 'setOnCodeCoverage/setOffCodeCoverage' methods are used to cause the on
-     * or off state of code-coverage-capture. Implying, in the test environment
-     * the user only needs to explicitly code the setOnCodeCoverage or
-     * setOffCodeCoverage methods.
+     * The clean up (at a stop, reset or store of the reports) runs in the
+     * background after the report writes, the reports not retained are
+     * renamed into a trash directory of the reports directory, then deleted;
+     * the stop does not wait on it&#46; <code>flush</code> waits for it.
+     *
+     * @param maxTotalBytes the maximum total size (bytes) of the time-stamp
+     * reports, 0 for no limit
+     * @param maxAgeSecs the maximum age (seconds) of a time-stamp report, 0
+     * for no limit
      *
      * @return this object so as to cascade settings
      *
-     * @exception RuntimeException if the object is in a started proxy-server
-     * state already.
+     * @exception RuntimeException if maxTotalBytes or maxAgeSecs is negative
      */
-    public JscovTestUtil setOffCodeCoverage() {
-        setNotActiveStateInternal(true);
+    public JscovTestUtil setTimestampRetention(long maxTotalBytes, long maxAgeSecs) {
+        if (maxTotalBytes < 0 || maxAgeSecs < 0) {
+            throw new RuntimeException("The retention maxTotalBytes and maxAgeSecs cannot be negative.");
+        }
+        this.retainMaxTotalBytes = maxTotalBytes;
+        this.retainMaxAgeMsecs = maxAgeSecs * 1000;
         return this;
     }
 
     /**
-     * Set the view-report state to OFF when the <code>viewReportDo</code>
-     * method is invoked within the test-scripts&#46; The view-report will not
-     * popup.
+     * Set the report target (sub-directory or time-stamp directory and its
+     * retain value) without regard to the processing state&#46; Used by
+     * JscovProxyPool to re-target an already started proxy-server, JSCover is
+     * told the directory on each store-report so it may change while the
+     * proxy-server runs.
      *
-     * @return this object so as to cascade settings
+     * @param retainNTimestampReports the number of time-stamp report
+     * directories to retain (0 means retain all)
+     * @param furtherSubDirOrTimeStamp the sub-directory to report into, empty
+     * string for the report directory itself
      */
-    public JscovTestUtil setOffViewReport() {
-        this.viewReportLaunchOff = true;
-        return this;
+    void setReportTargetInternal(int retainNTimestampReports, String furtherSubDirOrTimeStamp) {
+        checkRetainNMakesSense(retainNTimestampReports);
+
+        this.retainNTimestampReports = retainNTimestampReports;
+        this.reportFurtherSubDirOrTimeStamp = furtherSubDirOrTimeStamp;
     }
 
     /**
-     * Set the JscovTestUtil object to an active mode so that code-coverage
+     * Is this object usable for a JscovProxyPool lease: its proxy-server is
+     * started and (if launched by this object) its process still running, or
+     * code-coverage is off (nothing is run).
+     *
+     * @return true if usable
+     */
+    boolean isReadyForLease() {
+        if (this.offCodeCoverage) {
+            return true;
+        }
+        if (this.processingState != STARTED) {
+            return false;
+        }
+        return this.proxyServer == null || this.proxyServer.isAlive();
+    }
+
+    /**
+     * Store the report and do any time-stamp storage management, leaving the
+     * proxy-server running, then return the object to its report directory
+     * with no WebDriver&#46; Used by JscovProxyPool when a leased
+     * proxy-server is returned.
+     *
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     */
+    void storeAndResetForReuse(int timerForJscoverReport2Complete) {
+        try {
+            storeJscoverReportToDirInternal(timerForJscoverReport2Complete);
+            writeReportBatch();
+            recordReportStop();
+            dedupReportSources();
+            cleanTimestampDirs();
+
+        } finally {
+            setReportTargetInternal(0, "");
+            this.jscoverDriverWithProxySet = null;
+            this.incrementalSnapshot.clear();
+        }
+    }
+
+    /**
+     * Set the JscovTestUtil object to a not-active mode so that actual
+     * code-coverage does not happen&#46; HOWEVER, the test case script do not
+     * need to be changed in their use of start, store-report and stop method
+     * calls.
+     * <p>
+     * Test-case code may be written with the JscovTestUtil start, stop and
+     * store-report calls remaining in place. The
+     * 'setOnCodeCoverage/setOffCodeCoverage' methods are used to cause the on
+     * or off state of code-coverage-capture. Implying, in the test environment
+     * the user only needs to explicitly code the setOnCodeCoverage or
+     * setOffCodeCoverage methods.
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if the object is in a started proxy-server
+     * state already.
+     */
+    public JscovTestUtil setOffCodeCoverage() {
+        setNotActiveStateInternal(true);
+        return this;
+    }
+
+    /**
+     * Set the view-report state to OFF when the <code>viewReportDo</code>
+     * method is invoked within the test-scripts&#46; The view-report will not
+     * popup.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffViewReport() {
+        this.viewReportLaunchOff = true;
+        return this;
+    }
+
+    /**
+     * Set the JscovTestUtil object to an active mode so that code-coverage
      * capture will happen as the start, store-report and stop methods are
      * invoked.
      * <p>
-     * Test-case code may be written with the JscovTestUtil start, stop and
-     * store-report calls remaining in place. The
-     * 'setOnCodeCoverage/setOffCodeCoverage' methods are used to cause the on
-     * or off state of code-coverage-capture. Implying, in the test environment
-     * the user only needs to explicitly code the setOnCodeCoverage or
-     * setOffCodeCoverage methods.
+     * Test-case code may be written with the JscovTestUtil start, stop and
+     * store-report calls remaining in place. The
+     * 'setOnCodeCoverage/setOffCodeCoverage' methods are used to cause the on
+     * or off state of code-coverage-capture. Implying, in the test environment
+     * the user only needs to explicitly code the setOnCodeCoverage or
+     * setOffCodeCoverage methods.
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if the object is in a started proxy-server
+     * state already.
+     */
+    public JscovTestUtil setOnCodeCoverage() {
+
+        if (this.offCodeCoverage) {
+            if (this.startProxyServerInvoked) {
+                throw new RuntimeException("\nERROR: setOnCodeCoverage() needs to be invoked prior to startProxyServer().");
+            }
+        }
+
+        if (this.processingState == NOT_STARTED
+                || this.processingState == STARTED_AND_STOPPED) {
+            setNotActiveStateInternal(false);
+        } else {
+            throw new RuntimeException("\nCRITICAL: proxy-server already running.");
+        }
+        return this;
+    }
+
+    /**
+     * Set the proxy-server to run within the test JVM&#46; JSCover-all.jar
+     * (found as for a process start) is loaded by an isolated class-loader
+     * and the proxy-server runs on threads of the test JVM, rather than a
+     * separate 'java -jar JSCover-all.jar' process&#46; Each start avoids a
+     * JVM start-up, and the JSCover classes stay loaded (and JIT compiled)
+     * across restarts.
+     * <p>
+     * The in-JVM proxy-server is stopped directly, not by the JSCover stop
+     * message (JSCover ends the JVM on '/stop'). It shares the test JVM heap
+     * and its java.util.logging (JSCover logs to 'jscover.log' in the report
+     * directory while running).
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if the object is in a started proxy-server
+     * state already.
+     */
+    public JscovTestUtil setOnInJvmProxyServer() {
+        checkNotStartedForProxyMode("setOnInJvmProxyServer");
+
+        this.inJvmProxyServer = true;
+        return this;
+    }
+
+    /**
+     * Set the proxy-server to run as a separate JSCover process (the
+     * default).
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if the object is in a started proxy-server
+     * state already.
+     */
+    public JscovTestUtil setOffInJvmProxyServer() {
+        checkNotStartedForProxyMode("setOffInJvmProxyServer");
+
+        this.inJvmProxyServer = false;
+        return this;
+    }
+
+    /**
+     * Check the proxy-server is not started, as how it is run cannot change
+     * while it is running.
+     *
+     * @param methodName the name of the method invoked for the message
+     *
+     * @exception RuntimeException if the proxy-server is started
+     */
+    private void checkNotStartedForProxyMode(String methodName) {
+        if (this.processingState == STARTED) {
+            throw new RuntimeException(String.format(
+                    "\nERROR: %s() needs to be invoked prior to startProxyServer().",
+                    methodName));
+        }
+    }
+
+    /**
+     * Set the proxy-server to be shared by the JscovTestUtil objects, of this
+     * and other JVMs on the host, that use the same JSCover directory (e.g.
+     * parallel Surefire/TestNG forks)&#46; The first object to start launches
+     * the proxy-server and records it in the file
+     * 'jscovtestutil-daemon.properties' of the JSCover directory; later
+     * objects attach to it (after checking it answers), and the last object
+     * to stop (or tear-down) stops it.
+     * <p>
+     * The objects sharing must have the same report directory and JSCover
+     * options, and a port number of ANY_FREE_PORT or that of the shared
+     * proxy-server; otherwise the start fails&#46; The shared proxy-server
+     * process outlives the JVM that launched it, its output goes to
+     * 'jscovtestutil-daemon.log' of the JSCover directory.
+     * <p>
+     * A JVM that ends while attached detaches (shutdown hook)&#46; A JVM
+     * that is killed cannot, so the proxy-server is then left running; a
+     * non-shared <code>tearDownProxyServer(true)</code> on its port stops it.
+     * <p>
+     * Not with an in-JVM proxy-server (<code>setOnInJvmProxyServer</code>).
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if the object is in a started proxy-server
+     * state already.
+     */
+    public JscovTestUtil setOnSharedProxyServer() {
+        checkNotStartedForProxyMode("setOnSharedProxyServer");
+
+        this.sharedProxyServer = true;
+        return this;
+    }
+
+    /**
+     * Set the proxy-server to be used by this object only (the default).
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if the object is in a started proxy-server
+     * state already.
+     */
+    public JscovTestUtil setOffSharedProxyServer() {
+        checkNotStartedForProxyMode("setOffSharedProxyServer");
+
+        this.sharedProxyServer = false;
+        return this;
+    }
+
+    /**
+     * Set the proxy-server to be warmed-up by <code>startProxyServer</code>
+     * before it returns&#46; JavaScript is requested through the started
+     * proxy-server so the JSCover instrumenter is exercised (and JIT
+     * compiled); otherwise the first JS-file of the first web-page pays this
+     * cost, which may show as a slow page load or a WebDriver page-load
+     * time-out.
+     * <p>
+     * By default 10 synthetic JS-files (about 80K bytes each, served from
+     * within the test JVM) are requested; see
+     * <code>setWarmUpRequestCount</code> and <code>setWarmUpUrls</code>. The
+     * time the warm-up took is given by <code>getWarmUpMsecs</code>.
+     * <p>
+     * The synthetic JS-files are instrumented as any other, so may appear in
+     * the report 'original-src' directory (path '/jscovtestutil-warmup/').
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnWarmUp() {
+        if (this.warmUpRequestCount == 0) {
+            this.warmUpRequestCount = WARM_UP_DEFAULT_REQUESTS;
+        }
+        return this;
+    }
+
+    /**
+     * Set the proxy-server not to be warmed-up on start (the default), any
+     * warm-up URLs are cleared.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffWarmUp() {
+        this.warmUpRequestCount = 0;
+        this.warmUpUrlsArr.clear();
+        return this;
+    }
+
+    /**
+     * Set the number of synthetic JS-file requests a warm-up makes (sets the
+     * warm-up ON).
+     *
+     * @param requestCount the number of requests
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if requestCount is not positive
+     */
+    public JscovTestUtil setWarmUpRequestCount(int requestCount) {
+        if (requestCount <= 0) {
+            throw new RuntimeException("The warm-up request count needs to be positive.");
+        }
+        this.warmUpRequestCount = requestCount;
+        return this;
+    }
+
+    /**
+     * Set URLs (typically the JS-files of the web-pages under test) to
+     * warm-up the proxy-server with in place of the synthetic JS-files (sets
+     * the warm-up ON)&#46; The URLs are fetched through the proxy-server
+     * in the order given, replacing any set previously.
+     *
+     * @param warmUpUrls the URLs to fetch
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setWarmUpUrls(String... warmUpUrls) {
+        this.warmUpUrlsArr.clear();
+
+        for (String warmUpUrl : warmUpUrls) {
+            this.warmUpUrlsArr.add(warmUpUrl);
+        }
+        return this;
+    }
+
+    /**
+     * Get the time the warm-up of the last proxy-server start took.
+     *
+     * @return time (milliseconds), -1 if there was no warm-up or it failed
+     */
+    public long getWarmUpMsecs() {
+        return this.warmUpMsecs;
+    }
+
+    /**
+     * Set the JSCover processes to use an application class-data-sharing
+     * (AppCDS) archive of JSCover-all.jar&#46; The first proxy-server launch
+     * creates the archive 'JSCover-all.jsa' beside the jar (the classes it
+     * loads are dumped as it exits), later proxy-server and simple-server
+     * launches map the archive so start faster and share the class data
+     * between processes.
+     * <p>
+     * The archive is created afresh when the jar is newer&#46; The 'java' of
+     * the JSCover processes needs to be Java 13 or later, otherwise no
+     * archive is used (an INFO message is given).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnClassDataSharing() {
+        this.classDataSharing = true;
+        return this;
+    }
+
+    /**
+     * Set the JSCover processes not to use a class-data-sharing archive (the
+     * default).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffClassDataSharing() {
+        this.classDataSharing = false;
+        return this;
+    }
+
+    /**
+     * Set reports to be stored directly: <code>storeJscoverReport</code>
+     * (and stop/reset) reads the JSCover coverage of the web-page into this
+     * JVM through the WebDriver and writes the JSCover report files itself,
+     * rather than the web-page posting its coverage to the proxy-server
+     * (jscoverage_report) for JSCover to merge and write&#46; A store does
+     * not wait on the proxy-server (which may be busy instrumenting), and the
+     * coverage crosses the WebDriver packed rather than as JSON.
+     * <p>
+     * The report is that of JSCover ('jscoverage.json' merged into, the
+     * viewer files and 'original-src'), except that the original JS-files
+     * are fetched from the web-page origin (not through the proxy-server),
+     * so a JS-file of another origin has no source in the viewer; and the
+     * JSCover '--include-unloaded-js' option does not apply.
+     * <p>
+     * May be set at any time, the next store uses it.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnDirectReport() {
+        this.directReport = true;
+        return this;
+    }
+
+    /**
+     * Set reports to be stored by jscoverage_report and the proxy-server
+     * (the default).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffDirectReport() {
+        this.directReport = false;
+        return this;
+    }
+
+    /**
+     * Set stores to be incremental: a store sends only the code-coverage
+     * gained since the last store (the JS-files that are new or have a
+     * counter changed, with the counts gained) and is skipped when there is
+     * none, so calling <code>storeJscoverReport</code> after each test-case
+     * costs in proportion to what the test-case exercised, rather than to
+     * the cumulative coverage of the web-page&#46; For either report mode
+     * (jscoverage_report or <code>setOnDirectReport</code>).
+     * <p>
+     * The coverage of the web-page is read through the WebDriver (as for
+     * <code>setOnDirectReport</code>) and the delta computed by this object,
+     * which keeps a snapshot of the counters as last stored per web-page
+     * origin, taken as a store is made; a store that fails (its background
+     * write too, <code>setOnAsyncReport</code>) is rolled back, its delta is
+     * included in the next store&#46; A counter found lower than its snapshot (the coverage
+     * was reset, e.g. the local-storage cleared) has the whole coverage of
+     * its JS-file sent&#46; The snapshots are removed when the coverage is
+     * reset or the WebDriver changes.
+     * <p>
+     * May be set at any time, the next store uses it.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnIncrementalReport() {
+        this.incrementalReport = true;
+        return this;
+    }
+
+    /**
+     * Set stores to send the cumulative code-coverage of the web-page (the
+     * default).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffIncrementalReport() {
+        this.incrementalReport = false;
+        this.lastStoreFileCount = -1;
+        this.incrementalSnapshot.clear();
+        return this;
+    }
+
+    /**
+     * Get the number of JS-files the last incremental store sent.
+     *
+     * @return the count, 0 if the store was skipped (no code-coverage gained)
+     * or -1 if there has been no incremental store
+     */
+    public long getLastStoreFileCount() {
+        return this.lastStoreFileCount;
+    }
+
+    /**
+     * Get the time the last store of the report took.
+     *
+     * @return time (milliseconds), 0 if the store made no report (e.g.
+     * code-coverage is not active or there is no WebDriver) or -1 if there
+     * has been no store
+     */
+    public long getLastStoreMsecs() {
+        return this.lastStoreMsecs;
+    }
+
+    /**
+     * Set the WebDriver script time-out a store of the report restores once
+     * done (a store sets the script time-out to its own time-out)&#46; The
+     * WebDriver does not provide the script time-out set, so a test-case
+     * using a script time-out other than the WebDriver default (30 seconds)
+     * sets it here.
+     *
+     * @param seconds the script time-out (seconds)
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if seconds is not positive
+     */
+    public JscovTestUtil setDriverScriptTimeout(int seconds) {
+        if (seconds <= 0) {
+            throw new RuntimeException("The WebDriver script time-out needs to be positive.");
+        }
+        this.driverScriptTimeoutSecs = seconds;
+        return this;
+    }
+
+    /**
+     * Set the size budget of each WebDriver call reading the coverage of the
+     * web-page for a direct report (<code>setOnDirectReport</code>)&#46; The
+     * coverage is read in chunks of JS-files (a JS-file larger than the
+     * budget is split by lines), so a web-page of many megabytes of
+     * instrumented JavaScript is not returned by one call, which the
+     * WebDriver would need to hold (and may time-out on) whole&#46; The
+     * default is 1,000,000 characters.
+     *
+     * @param chunkChars the budget (characters) of a call
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if chunkChars is not positive
+     */
+    public JscovTestUtil setDirectReportChunkSize(int chunkChars) {
+        if (chunkChars <= 0) {
+            throw new RuntimeException("The direct report chunk size needs to be positive.");
+        }
+        this.directReportWriter.setChunkChars(chunkChars);
+        return this;
+    }
+
+    /**
+     * Set each store to also write the report's code-coverage in the compact
+     * binary form (see <code>JscovCoverageBinary</code>), 'jscoverage.jscb'
+     * beside 'jscoverage.json'&#46; The binary is a fraction of the size of
+     * the JSON and read several times faster, reading a report (e.g.
+     * <code>mergeTimeStampReports</code>) uses it when it is current.
+     * <p>
+     * May be set at any time, the next store uses it.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnBinaryReport() {
+        this.binaryReport = true;
+        this.binaryReportOnly = false;
+        return this;
+    }
+
+    /**
+     * Set each store to write the binary of the report, as
+     * <code>setOnBinaryReport</code>, and the retained time-stamp reports
+     * other than the current to keep only the binary (their
+     * 'jscoverage.json' is deleted as the time-stamp reports are cleaned
+     * up), so the history retained takes a fraction of the disk&#46; The
+     * 'jscoverage.json' of a report is restored from its binary when it is
+     * viewed (<code>viewReportDo</code>) or stored into
+     * (<code>reportIntoReuseDir</code>).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnBinaryReportOnly() {
+        this.binaryReport = true;
+        this.binaryReportOnly = true;
+        return this;
+    }
+
+    /**
+     * Set stores to write only 'jscoverage.json' (the default)&#46; A binary
+     * already written is left, and is not read once the JSON is stored into.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffBinaryReport() {
+        this.binaryReport = false;
+        this.binaryReportOnly = false;
+        return this;
+    }
+
+    /**
+     * Set the original JS-files of a report ('original-src') to be
+     * de-duplicated as the report is stopped (see
+     * <code>JscovSourceStore</code>): each is hard linked to the file of the
+     * same content in the source store of the reports directory, so a
+     * JS-file unchanged across the time-stamp reports retained is on the
+     * disk once (a JS-file that cannot be linked is kept as a copy)&#46;
+     * There is no de-duplication, with an INFO message, on a file-system of
+     * which the link count cannot be read (e.g. Windows/NTFS), the store
+     * files could not be purged&#46; The de-duplication runs on the background report writer, the store files
+     * no longer linked are deleted as the time-stamp reports are cleaned up.
+     * <p>
+     * A report de-duplicated is un-shared (its JS-files copied back) before
+     * it is stored into again (<code>reportIntoReuseDir</code>).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnSourceDedup() {
+        this.sourceDedup = true;
+        return this;
+    }
+
+    /**
+     * Set the original JS-files of a report to be kept as copies (the
+     * default)&#46; The reports already de-duplicated are left.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffSourceDedup() {
+        this.sourceDedup = false;
+        return this;
+    }
+
+    /**
+     * Set the time-stamp reports to be archived once not the latest (see
+     * <code>JscovReportArchive</code>): as the time-stamp reports are cleaned
+     * up, each retained other than the current and the last is packed into
+     * one compressed file beside it ('jscov...zip') and its directory
+     * deleted, on the background report writer&#46; The reports retained
+     * are then a file each, to copy off or keep.
+     * <p>
+     * An archived report is read from its archive, not unpacked:
+     * <code>mergeTimeStampReports</code> merges it and
+     * <code>viewReportDo</code> (after <code>reportIntoReuseDir</code> of its
+     * name) views it, served from the archive by a view server process
+     * (which, as the simple-server, outlives the JVM until the viewer is
+     * stopped)&#46; It is unpacked if stored into again.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnArchiveReport() {
+        this.archiveReport = true;
+        return this;
+    }
+
+    /**
+     * Set the time-stamp reports to be kept as directories (the default)&#46;
+     * The reports already archived are left.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffArchiveReport() {
+        this.archiveReport = false;
+        return this;
+    }
+
+    /**
+     * Set stores to write their report in the background: the store takes
+     * the code-coverage of the web-page (as <code>setOnDirectReport</code>,
+     * through the WebDriver) on the calling thread and returns, the merge
+     * and write of the report run on a JscovTestUtil thread&#46; A store
+     * in an <code>@AfterMethod</code> then costs the test only the reading
+     * of the coverage, not the report I/O.
+     * <p>
+     * The writes run in the order stored&#46; At most the maximum pending
+     * (<code>setAsyncReportMaxPending</code>) are queued, a store beyond
+     * that waits for one to complete, so a slow disk holds back the tests
+     * rather than the coverage piling up in memory&#46;
+     * <code>stopProxyServer</code> waits on the writes (<code>flush</code>),
+     * as does <code>mergeTimeStampReports</code>, and the time-stamp report
+     * clean up runs after them; a write failure is thrown by the next wait.
+     * <p>
+     * With <code>setOnIncrementalReport</code> the snapshot is
+     * taken once the coverage is read, a write that then fails has its delta
+     * rolled back and included in the next store.
+     * <p>
+     * May be set at any time, the next store uses it.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnAsyncReport() {
+        this.asyncReport = true;
+        return this;
+    }
+
+    /**
+     * Set stores to write their report before returning (the default)&#46;
+     * Writes already in the background complete as before.
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffAsyncReport() {
+        this.asyncReport = false;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of background report writes queued or running
+     * (<code>setOnAsyncReport</code>), a store beyond that waits&#46; The
+     * default is 4&#46; Writes in the background are waited on first.
+     *
+     * @param maxPending the maximum number of writes
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if maxPending is not positive, or a write
+     * in the background failed
+     */
+    public JscovTestUtil setAsyncReportMaxPending(int maxPending) {
+        if (maxPending <= 0) {
+            throw new RuntimeException("The async report maximum pending needs to be positive.");
+        }
+        flush();
+        this.asyncReportMaxPending = maxPending;
+        this.reportWriter = null;
+        return this;
+    }
+
+    /**
+     * Set stores to be held in a batch that is written once (see
+     * <code>setBatchReportPolicy</code>), rather than each store writing the
+     * report&#46; A store reads the code-coverage of the web-page (as
+     * <code>setOnDirectReport</code>) and sums it into the batch in memory,
+     * so calling <code>storeJscoverReport</code> before each navigation
+     * costs a report write only once per batch; the report written is that
+     * of the stores one at a time.
+     * <p>
+     * The batch is written by <code>stopProxyServer</code> and
+     * <code>flush</code> (and so <code>mergeTimeStampReports</code> and the
+     * time-stamp report clean up), and in the background if
+     * <code>setOnAsyncReport</code>&#46; The coverage held is lost if the
+     * JVM ends without a stop or flush.
+     * <p>
+     * May be set at any time, the next store uses it.
      *
      * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnBatchReport() {
+        this.batchReport = true;
+        return this;
+    }
+
+    /**
+     * Set each store to write the report (the default), a batch held is
+     * written.
      *
-     * @exception RuntimeException if the object is in a started proxy-server
-     * state already.
+     * @return this object so as to cascade settings
      */
-    public JscovTestUtil setOnCodeCoverage() {
+    public JscovTestUtil setOffBatchReport() {
+        this.batchReport = false;
+        writeReportBatch();
+        return this;
+    }
 
-        if (this.offCodeCoverage) {
-            if (this.startProxyServerInvoked) {
-                throw new RuntimeException("\nERROR: setOnCodeCoverage() needs to be invoked prior to startProxyServer().");
-            }
+    /**
+     * Set when a batch of stores (<code>setOnBatchReport</code>) is written:
+     * once maxCalls stores are held, or windowMsecs has elapsed since the
+     * first store held (as a store is made, there is no timer), whichever
+     * is first&#46; A value of 0 is no limit, both 0 writes the batch only
+     * on stop or flush&#46; The default is 50 stores or 60 seconds&#46; A
+     * batch held is written.
+     *
+     * @param maxCalls the maximum number of stores held, 0 for no limit
+     * @param windowMsecs the time (milliseconds) a store is held, 0 for no
+     * limit
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if maxCalls or windowMsecs is negative
+     */
+    public JscovTestUtil setBatchReportPolicy(int maxCalls, int windowMsecs) {
+        if (maxCalls < 0 || windowMsecs < 0) {
+            throw new RuntimeException("The batch report maxCalls and windowMsecs cannot be negative.");
         }
+        writeReportBatch();
+        this.batchReportMaxCalls = maxCalls;
+        this.batchReportWindowMsecs = windowMsecs;
+        this.reportBatch = null;
+        return this;
+    }
 
-        if (this.processingState == NOT_STARTED
-                || this.processingState == STARTED_AND_STOPPED) {
-            setNotActiveStateInternal(false);
-        } else {
-            throw new RuntimeException("\nCRITICAL: proxy-server already running.");
+    /**
+     * Set soak mode: while the proxy-server is started the code-coverage is
+     * flushed on a schedule (<code>setSoakFlushSchedule</code>), for a long
+     * run with one web-page open&#46; A flush takes the code-coverage of
+     * the web-page and resets its counters (<code>resetCoverage</code>) in
+     * one script, so no coverage executed between is lost, then writes the
+     * report from this JVM (as <code>setOnDirectReport</code>), so the
+     * report on disk is at most a period behind (a browser crash loses no
+     * more) and the browser memory of the coverage does not grow with the
+     * run.
+     * <p>
+     * The flush runs on a JscovTestUtil thread through the WebDriver, one
+     * at a time with the period between the end of one and the start of the
+     * next; a store or reset of the test thread waits for a flush in flight
+     * (and a flush for it)&#46; A store by the proxy-server waits for the
+     * report write of a flush too (JSCover re-writes the same report), a
+     * direct store is written after it on the background report writer&#46; A
+     * failed flush is reported by an INFO message and the schedule
+     * continues, the coverage of a failed write being kept and written by
+     * the next flush&#46;
+     * A stop (or teardown) ends the schedule, waiting for a flush in flight,
+     * before the final store.
+     * <p>
+     * May be set at any time, the schedule starts now if the proxy-server
+     * is started (else when started).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOnSoakFlush() {
+        this.soakFlush = true;
+
+        if (this.processingState == STARTED) {
+            startSoakFlusher();
+        }
+        return this;
+    }
+
+    /**
+     * Set no scheduled flush (the default), a schedule running is ended
+     * (waiting for a flush in flight).
+     *
+     * @return this object so as to cascade settings
+     */
+    public JscovTestUtil setOffSoakFlush() {
+        this.soakFlush = false;
+        stopSoakFlusher();
+        return this;
+    }
+
+    /**
+     * Set the schedule of the soak flush (<code>setOnSoakFlush</code>)&#46;
+     * The default is every 300 seconds, allowing 60 seconds to store the
+     * report&#46; A schedule running is re-started with the new period.
+     *
+     * @param periodSecs time (seconds) from the end of a flush to the start
+     * of the next
+     * @param timerForJscoverReport2Complete time (seconds) allowed a flush to
+     * store the report
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if periodSecs or
+     * timerForJscoverReport2Complete is not positive
+     */
+    public JscovTestUtil setSoakFlushSchedule(int periodSecs, int timerForJscoverReport2Complete) {
+        if (periodSecs <= 0 || timerForJscoverReport2Complete <= 0) {
+            throw new RuntimeException("The soak flush period and report time-out need to be positive.");
+        }
+        this.soakFlushPeriodSecs = periodSecs;
+        this.soakFlushReportSecs = timerForJscoverReport2Complete;
+
+        if (this.soakFlusher != null && !this.soakFlusher.isStopped()) {
+            stopSoakFlusher();
+            startSoakFlusher();
         }
         return this;
     }
 
+    /**
+     * Get the number of soak flushes completed by the last schedule.
+     *
+     * @return the count, 0 if there has been no schedule
+     */
+    public long getSoakFlushCount() {
+        return this.soakFlusher == null ? 0 : this.soakFlusher.getFlushCount();
+    }
+
+    /**
+     * Get the number of soak flushes failed by the last schedule.
+     *
+     * @return the count, 0 if there has been no schedule
+     */
+    public long getSoakFlushFailureCount() {
+        return this.soakFlusher == null ? 0 : this.soakFlusher.getFailureCount();
+    }
+
+    /**
+     * Start the soak flush schedule, unless running.
+     */
+    private void startSoakFlusher() {
+        if (this.soakFlusher == null || this.soakFlusher.isStopped()) {
+            this.soakFlusher = new JscovSoakFlusher(this::soakFlushOnce, this.soakFlushPeriodSecs);
+        }
+    }
+
+    /**
+     * End the soak flush schedule, waiting for a flush in flight.
+     */
+    private void stopSoakFlusher() {
+        if (this.soakFlusher != null) {
+            this.soakFlusher.stop((this.soakFlushReportSecs + 10) * 1000L);
+        }
+    }
+
+    /**
+     * A soak flush: take the code-coverage of the web-page and reset its
+     * counters (in one script, so none is lost between), then write the
+     * report on the background report writer and wait for that write (not
+     * holding the store lock, so a store or reset of the test thread is not
+     * held by the writes queued before it)&#46; With
+     * <code>setOnIncrementalReport</code> the coverage already stored since
+     * the last reset is left out&#46; The coverage of a failed write is
+     * kept, and written by the next flush.
+     *
+     * @return true if flushed, false if there is no web-page to flush
+     *
+     * @exception RuntimeException if the write failed or is not complete
+     * within the soak flush report time-out (it is then completed in the
+     * background)
+     */
+    private boolean soakFlushOnce() {
+        CompletableFuture<Void> soakWrite = new CompletableFuture<>();
+
+        synchronized (this.storeLock) {
+            if (this.processingState != STARTED || this.jscoverDriverWithProxySet == null) {
+                return false;
+            }
+            try {
+                if (((RemoteWebDriver) jscoverDriverWithProxySet).getSessionId() == null) {
+                    return false;
+                }
+            } catch (ClassCastException cce) {
+                // an overridden driver, attempt the flush
+            }
+            Object takenCoverage = ((JavascriptExecutor) jscoverDriverWithProxySet)
+                    .executeScript(TAKE_COVERAGE_SCRIPT);
+
+            if (!(takenCoverage instanceof List)) {
+                throw new JavascriptException(
+                        "JSCover coverage (_$jscoverage) is not in the web-page, "
+                        + "the web-page is not instrumented.");
+            }
+            String pageOrigin = String.valueOf(((List<?>) takenCoverage).get(0));
+            JscovCoverageData pageCoverage = JscovCoverageData.readJSON(
+                    new StringReader(String.valueOf(((List<?>) takenCoverage).get(1))));
+
+            if (this.incrementalReport) {
+                pageCoverage = this.incrementalSnapshot.delta(pageOrigin, pageCoverage);
+            }
+            this.incrementalSnapshot.clear();
+            writeReportBatch();
+
+            List<JscovReportBatch.Entry> soakEntryList;
+            synchronized (this.soakRetryBatch) {
+                this.soakRetryBatch.add(pageCoverage, pageOrigin,
+                        getStoreReportDir(this.reportFurtherSubDirOrTimeStamp));
+                soakEntryList = this.soakRetryBatch.drain();
+            }
+            List<Runnable> soakWriteList = new ArrayList<>();
+
+            for (JscovReportBatch.Entry soakEntry : soakEntryList) {
+                soakWriteList.add(directReportWrite(
+                        soakEntry.coverageData, soakEntry.pageOrigin, soakEntry.reportDir));
+            }
+            getReportWriter().submit(() -> {
+                for (int i = 0; i < soakWriteList.size(); i++) {
+                    try {
+                        soakWriteList.get(i).run();
+
+                    } catch (RuntimeException ex) {
+                        // kept for the next flush
+                        synchronized (this.soakRetryBatch) {
+                            for (JscovReportBatch.Entry soakEntry
+                                    : soakEntryList.subList(i, soakEntryList.size())) {
+                                this.soakRetryBatch.add(soakEntry.coverageData,
+                                        soakEntry.pageOrigin, soakEntry.reportDir);
+                            }
+                        }
+                        soakWrite.completeExceptionally(ex);
+                        return;
+                    }
+                }
+                soakWrite.complete(null);
+            });
+        }
+        try {
+            soakWrite.get(this.soakFlushReportSecs, TimeUnit.SECONDS);
+
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+
+        } catch (java.util.concurrent.TimeoutException ex) {
+            throw new RuntimeException(String.format(
+                    "JSCover soak flush report not written within %d seconds, "
+                    + "it is written in the background.",
+                    this.soakFlushReportSecs));
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting on the soak flush report write.");
+        }
+        return true;
+    }
+
+    /**
+     * Write the batch of stores held (<code>setOnBatchReport</code>) and
+     * wait for the reports being written in the background
+     * (<code>setOnAsyncReport</code>) to be complete&#46; Returns at once if
+     * there are none.
+     * <p>
+     * The storage management (retention, compaction, archive, source
+     * de-duplication and the manifest) runs on the background writer after
+     * the report writes, its results are visible only after this flush&#46;
+     * At JVM exit the writes not flushed are waited on for a bounded time.
+     *
+     * @exception RuntimeException if a report write failed (in the
+     * background, since the last wait)
+     */
+    public void flush() {
+        synchronized (this.storeLock) {
+            writeReportBatch();
+
+            if (this.reportWriter != null) {
+                this.reportWriter.flush();
+            }
+        }
+    }
+
     /**
      * Set the view-report state to ON when the <code>viewReportDo</code> method
      * is invoked within the test-scripts&#46; This will result in an
@@ -808,15 +2161,95 @@ public class JscovTestUtil {
         return this;
     }
 
+    /**
+     * Set the time allowed for the proxy-server to become ready (accepting
+     * connections and responding as a JSCover server) once started&#46; The
+     * default is 20 seconds.
+     * <p>
+     * <code>startProxyServer</code> returns as soon as the proxy-server
+     * answers, so this value only matters on a slow or overloaded system. If
+     * the proxy-server process terminates while waiting, the start fails
+     * immediately rather than waiting out the time period.
+     *
+     * @param readyTimeoutMsecs time (milliseconds) to wait for the
+     * proxy-server to become ready
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if readyTimeoutMsecs is not positive
+     */
+    public JscovTestUtil setProxyReadyTimeout(int readyTimeoutMsecs) {
+        if (readyTimeoutMsecs <= 0) {
+            throw new RuntimeException("The proxy-server ready time-out needs to be positive.");
+        }
+        this.proxyReadyTimeoutMsecs = readyTimeoutMsecs;
+        return this;
+    }
+
+    /**
+     * Set the time allowed for the proxy-server process to exit once it has
+     * been sent the stop message&#46; The default is 10 seconds.
+     * <p>
+     * The stop returns as soon as the process exits; if the time elapses the
+     * process is destroyed (and forcibly destroyed if that fails).
+     *
+     * @param stopTimeoutMsecs time (milliseconds) to wait for the
+     * proxy-server process to exit
+     *
+     * @return this object so as to cascade settings
+     *
+     * @exception RuntimeException if stopTimeoutMsecs is negative
+     */
+    public JscovTestUtil setProxyStopTimeout(int stopTimeoutMsecs) {
+        if (stopTimeoutMsecs < 0) {
+            throw new RuntimeException("The proxy-server stop time-out is negative (?).");
+        }
+        this.proxyStopTimeoutMsecs = stopTimeoutMsecs;
+        return this;
+    }
+
+    /**
+     * Get the exit value of the last proxy-server process launched by this
+     * object.
+     *
+     * @return the exit value, or null if the proxy-server is running or has
+     * not been launched
+     */
+    public Integer getProxyServerExitValue() {
+        if (this.proxyServer == null) {
+            return null;
+        }
+        return this.proxyServer.exitValue();
+    }
+
+    /**
+     * Get the last lines of output (standard-output and standard-error) of
+     * the last proxy-server process launched by this object&#46; This is
+     * useful for diagnosing a proxy-server that failed to start or stopped
+     * unexpectedly.
+     *
+     * @return string of the captured output tail, empty if the proxy-server
+     * has not been launched
+     */
+    public String getProxyServerOutputTail() {
+        if (this.proxyServer == null) {
+            return "";
+        }
+        return this.proxyServer.getOutputTail();
+    }
+
     /**
      * Start the proxy-server, checking that resources are in place&#46; Start
      * may be called many times, only the first one will do the actual start.
      * <p>
-     * The start will pause for 2 seconds to allow processes to actually start.
+     * The start will wait until the proxy-server is accepting connections,
+     * polling its port, up to the ready time-out (see
+     * <code>setProxyReadyTimeout</code>).
      *
      * @exception RuntimeException 1) location issues for the 'jscover'
      * directory, or 2) 'target/dist/JSCover-all.jar' is not found as expected.
-     * 3) Failed to start the proxy-server.
+     * 3) Failed to start the proxy-server. 4) The proxy-server terminated or
+     * did not become ready within the ready time-out.
      */
     public void startProxyServer() {
         this.startProxyServerInvoked = true;
@@ -855,14 +2288,276 @@ public class JscovTestUtil {
             }
         }
         // have the location of the JScover-all.jar file
-        //
-        // a start of the proxy-server may still fail due to port-no being in use
-        //
+        if (this.sharedProxyServer) {
+            if (attachSharedProxyServer()) {
+                warmUpProxyServer();
+            }
+        } else {
+            launchProxyServer();
+
+            warmUpProxyServer();
+        }
+        if (this.soakFlush) {
+            startSoakFlusher();
+        }
+    }
+
+    /**
+     * Launch the proxy-server, re-trying on another free port if the port
+     * collided (constructed with ANY_FREE_PORT).
+     *
+     * @exception RuntimeException the proxy-server failed to start
+     */
+    private void launchProxyServer() {
+        if (this.proxyPortNoPreResolved) {
+            // startProxyServerAsync gave out the port (a browser may be using
+            // it) so it cannot change by a re-try
+            this.proxyPortNoPreResolved = false;
+
+            startOnResolvedPortNo(true);
+            return;
+        }
+        // a start of the proxy-server may still fail due to port-no being in
+        // use, a free port may be taken by another program before JSCover
+        // binds to it so is re-tried with another free port
+        int attemptsLeft = this.requestedPortNo == ANY_FREE_PORT
+                ? ANY_FREE_PORT_START_ATTEMPTS : 1;
+
+        do {
+            attemptsLeft--;
+            resolveProxyPortNo();
+
+        } while (!startOnResolvedPortNo(attemptsLeft == 0));
+    }
+
+    /**
+     * Attach to the shared proxy-server of the JSCover directory, launching
+     * it if there is none running.
+     *
+     * @return true if the proxy-server was launched by this object
+     *
+     * @exception RuntimeException the proxy-server failed to start, or the
+     * shared proxy-server has a different configuration
+     */
+    private boolean attachSharedProxyServer() {
+        if (this.inJvmProxyServer) {
+            this.startProxyServerInvoked = false;
+            throw new RuntimeException("An in-JVM proxy-server cannot be shared "
+                    + "(it ends with the JVM), see setOffInJvmProxyServer.");
+        }
+        JscovSharedDaemon daemon = new JscovSharedDaemon(new File(locationOfJscoverDir));
+
+        boolean[] launched = {false};
+        int daemonPortNo;
+        try {
+            daemonPortNo = daemon.attach(this.requestedPortNo, getreportDirBase(),
+                    String.join(" ", this.additionalOptionsArr),
+                    JscovTestUtil::isJscoverServerResponding,
+                    (portNo) -> {
+                        launchProxyServer();
+                        launched[0] = true;
+
+                        return this.jscoverLocalPortNo;
+                    });
+        } catch (RuntimeException rte) {
+            this.startProxyServerInvoked = false;
+            throw rte;
+        }
+        if (!launched[0]) {
+            setProxyPortNo(daemonPortNo);
+            this.proxyServer = null;
+        }
+        this.attachedSharedDaemon = daemon;
+        this.processingState = STARTED;
+
+        // a JVM ending without a stop still detaches (not so if killed, the
+        // daemon file then over-counts until a stop is forced)
+        this.sharedDetachHook = new Thread(() -> {
+            synchronized (JscovTestUtil.this) {
+                if (JscovTestUtil.this.attachedSharedDaemon != null) {
+                    detachSharedProxyServer();
+                }
+            }
+        }, "JscovTestUtil-detach port " + daemonPortNo);
+
+        Runtime.getRuntime().addShutdownHook(this.sharedDetachHook);
+
+        return launched[0];
+    }
+
+    /**
+     * Detach from the shared proxy-server, stopping it if this is the last
+     * object attached.
+     */
+    private synchronized void detachSharedProxyServer() {
+        JscovSharedDaemon daemon = this.attachedSharedDaemon;
+        this.attachedSharedDaemon = null;
+
+        if (this.sharedDetachHook != null
+                && Thread.currentThread() != this.sharedDetachHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(this.sharedDetachHook);
+
+            } catch (IllegalStateException ex) {
+                // the JVM is already shutting down
+            }
+        }
+        this.sharedDetachHook = null;
+
+        boolean stopped = daemon.detach(this.jscoverLocalPortNo, (portNo) -> {
+            stopAJscoverServer(portNo, true);
+
+            if (this.proxyServer != null) {
+                stopProxyServerInternal();
+            } else {
+                waitForServerDown(portNo, this.proxyStopTimeoutMsecs);
+            }
+        });
+        if (!stopped) {
+            // the proxy-server continues for the other objects attached
+            this.proxyServer = null;
+        }
+    }
+
+    /**
+     * Stop the proxy-server, or detach from it if shared.
+     *
+     * @param ignoreConnectException ignore a failure to connect to send the
+     * stop message
+     */
+    private void stopOrDetachProxyServer(boolean ignoreConnectException) {
+        if (this.attachedSharedDaemon != null) {
+            detachSharedProxyServer();
+            return;
+        }
+        stopAJscoverServer(this.jscoverLocalPortNo, ignoreConnectException);
+        stopProxyServerInternal();
+    }
+
+    /**
+     * Warm-up the started proxy-server (if set on) by requesting JavaScript
+     * through it, recording the time taken&#46; A warm-up failure does not
+     * fail the start (an INFO message is given).
+     */
+    private void warmUpProxyServer() {
+        this.warmUpMsecs = -1;
+
+        if (this.warmUpRequestCount == 0 && this.warmUpUrlsArr.isEmpty()) {
+            return;
+        }
+        long warmUpStart = System.currentTimeMillis();
+        try {
+            if (this.warmUpUrlsArr.isEmpty()) {
+                JscovWarmUp.warmUpSynthetic(this.jscoverLocalPortNo, this.warmUpRequestCount);
+            } else {
+                JscovWarmUp.warmUpUrls(this.jscoverLocalPortNo, this.warmUpUrlsArr);
+            }
+            this.warmUpMsecs = System.currentTimeMillis() - warmUpStart;
+
+            System.err.printf("\nINFO: JscovTestUtil: proxy-server port %d warm-up took %d msecs.\n",
+                    this.jscoverLocalPortNo, this.warmUpMsecs);
+
+        } catch (IOException ex) {
+            System.err.printf("\nINFO: JscovTestUtil: proxy-server port %d warm-up failed "
+                    + "(not critical): %s\n",
+                    this.jscoverLocalPortNo, ex.getMessage());
+        }
+    }
+
+    /**
+     * Start the proxy-server on the port already resolved and wait for it to
+     * be ready.
+     *
+     * @param lastAttempt true if a port collision is to be thrown as an
+     * exception, false to return so another port may be tried
+     *
+     * @return true if started, false if the port collided (in use or the
+     * proxy-server terminated during start-up)
+     *
+     * @exception RuntimeException the port is in use, or the proxy-server
+     * terminated or did not become ready within the ready time-out
+     */
+    private boolean startOnResolvedPortNo(boolean lastAttempt) {
+        this.startProxyServerInvoked = true;
+
+        // a server already on the port would answer the ready probe in place
+        // of the proxy-server about to be launched (which will then fail)
+        if (isServerAccepting(this.jscoverLocalPortNo)) {
+            this.startProxyServerInvoked = false;
+
+            if (!lastAttempt) {
+                return false;
+            }
+            throw new RuntimeException(String.format(
+                    "portNo %d is in use, the proxy-server cannot be started.\n"
+                    + "A previous proxy-server may still be running (see tearDownProxyServer).",
+                    this.jscoverLocalPortNo));
+        }
         // however, begin the proxy-server and in the JSCover directory
         actualStart();
 
-        // allow the proxy-server to start-up and begin processing
-        pause(2000);
+        // wait for the proxy-server to start-up and begin processing, rather
+        // than a fixed pause (a port-no collision will cause the process
+        // to terminate which is detected here)
+        try {
+            waitForServerReady(this.jscoverLocalPortNo, this.proxyReadyTimeoutMsecs,
+                    this.proxyServer, true);
+            return true;
+
+        } catch (RuntimeException rte) {
+            boolean proxyTerminated = !this.proxyServer.isAlive();
+
+            this.processingState = NOT_STARTED;
+            this.startProxyServerInvoked = false;
+            this.proxyServer.stop(0);
+            proxyCdsArchiveLaunchEnded();
+
+            if (proxyTerminated && !lastAttempt) {
+                return false;
+            }
+            throw rte;
+        }
+    }
+
+    /**
+     * Resolve the port number the proxy-server is to be started on, picking
+     * a free port if constructed with ANY_FREE_PORT.
+     */
+    private void resolveProxyPortNo() {
+        if (this.requestedPortNo == ANY_FREE_PORT) {
+            setProxyPortNo(findFreePortNo());
+        }
+    }
+
+    /**
+     * Set the proxy-server port number and the proxy string the browser is
+     * configured with.
+     *
+     * @param portNo the port number of the proxy-server
+     */
+    private void setProxyPortNo(int portNo) {
+        this.jscoverLocalPortNo = portNo;
+
+        this.jscoverLocalProxyAndPortString
+                = String.format("localhost-proxy:%d", portNo);
+    }
+
+    /**
+     * Find a free port on this machine by binding to an ephemeral port and
+     * releasing it for the JSCover server to use.
+     *
+     * @return the free port number
+     *
+     * @exception RuntimeException if no port can be bound
+     */
+    private static int findFreePortNo() {
+        try (ServerSocket probeServerSocket = new ServerSocket(0)) {
+            return probeServerSocket.getLocalPort();
+
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format(
+                    "Unable to find a free portNo: %s", ex.getMessage()));
+        }
     }
 
     /**
@@ -875,9 +2570,13 @@ public class JscovTestUtil {
      * will not cause a report to generate and an ERR INFO message provided.
      * <p>
      * Any storage management is performed (applies to time-stamped capability
-     * report capture).
+     * report capture)&#46; The storage management runs on the background
+     * report writer, the stop does not wait on it, its results are visible
+     * only after a <code>flush</code>.
      * <p>
-     * The stop will pause for 2 seconds to allow processes to actually stop.
+     * The stop will wait for the proxy-server process to exit, destroying it
+     * if it does not exit within the stop time-out (see
+     * <code>setProxyStopTimeout</code>).
      * <p>
      * Processing to get reports is done in the browser/WebDriver and is
      * external to this class. The user needs to determine a good time-out value
@@ -912,8 +2611,12 @@ public class JscovTestUtil {
         if (timerForJscoverReport2Complete < 12) {
             timerForJscoverReport2Complete = 12; // seconds, small project
         }
+        stopSoakFlusher();
         actualStop(timerForJscoverReport2Complete);
 
+        flush();
+        recordReportStop();
+        dedupReportSources();
         cleanTimestampDirs();
     }
 
@@ -927,12 +2630,28 @@ public class JscovTestUtil {
      * 'stop' states will impact processing in an undetermined manner.
      * <p>
      * The ON or OFF states will remain as previously set.
+     * <p>
+     * A shared proxy-server (see <code>setOnSharedProxyServer</code>) is
+     * detached from, it is only stopped if this is the last object attached
+     * (force does not stop a shared proxy-server in use by others).
      *
      * @param force true to send a stop message to the proxy-server
      */
     public void tearDownProxyServer(boolean force) {
-        if (this.processingState == STARTED || force) {
-            stopAJscoverServer(jscoverLocalProxyAndPortString, true);
+        stopSoakFlusher();
+
+        if (this.attachedSharedDaemon != null) {
+            detachSharedProxyServer();
+
+        } else if (this.processingState == STARTED || force) {
+            // a shared proxy-server used by others is not forced to stop
+            if (!this.sharedProxyServer
+                    || !new JscovSharedDaemon(new File(locationOfJscoverDir))
+                            .isSharedPortNo(this.jscoverLocalPortNo,
+                                    JscovTestUtil::isJscoverServerResponding)) {
+                stopAJscoverServer(this.jscoverLocalPortNo, true);
+            }
+            stopProxyServerInternal();
         }
         //
         this.startProxyServerInvoked = false;
@@ -954,6 +2673,20 @@ public class JscovTestUtil {
      * <p>
      * Concurrent test-cases doing store-reports is not supported. It may work,
      * but?
+     * <p>
+     * The store waits until JSCover has stored the report, as signalled by
+     * the jscoverage_report on complete callback in the web-page (the
+     * WebDriver script time-out is set to the time-out, and restored after,
+     * see <code>setDriverScriptTimeout</code>), so a stop that follows
+     * cannot cut the report short&#46; The time the store took is given by
+     * <code>getLastStoreMsecs</code>.
+     * <p>
+     * With <code>setOnDirectReport</code> the coverage is read from the
+     * web-page and the report written by this JVM, not by the proxy-server;
+     * with <code>setOnAsyncReport</code> the store returns once the coverage
+     * is read, the report is written in the background; with
+     * <code>setOnBatchReport</code> the coverage is held and the report
+     * written once per batch.
      *
      * @param timerForJscoverReport2Complete time (seconds) allowed to process
      * the code-coverage captured data into a report (small Javascript low
@@ -966,9 +2699,134 @@ public class JscovTestUtil {
      * @exception JavascriptException cannot find jscoverage_report in the
      * web-page being processed (likely web-page not instrumented or page has
      * closed before calling this method)
+     *
+     * @exception RuntimeException if JSCover did not store the report (the
+     * store answered other than HTTP 200)
      */
     public void storeJscoverReport(int timerForJscoverReport2Complete) {
-        storeJscoverReportToDirInternal(timerForJscoverReport2Complete);
+        synchronized (this.storeLock) {
+            storeJscoverReportToDirInternal(timerForJscoverReport2Complete);
+        }
+    }
+
+    /**
+     * Reset the code-coverage counters of the web-page to zero, keeping the
+     * proxy-server and the browser session, so a new phase of code-coverage
+     * starts&#46; The current code-coverage may be stored into the report
+     * first. Unlike <code>restartProxyServer</code> no process is stopped or
+     * started, the reset is a script executed in the web-page.
+     * <p>
+     * The counters of the JSCover in-page coverage object are zeroed (lines,
+     * functions and branches) and the coverage JSCover keeps in the browser
+     * local-storage (between page loads) is removed.
+     * <p>
+     * Attempting a reset without prior use of
+     * 'webDriverForJSCoverProxy()'/'overrideWebDriveForJSCoverProxy' has no
+     * effect (an ERR INFO message is provided if storing).
+     *
+     * @param storeCurrentReport true to store the current code-coverage into
+     * the report before the reset, false to discard it
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     *
+     * @exception TimeoutException if there is a time-out, consider lengthening
+     * the time-out for the web-page report generation
+     *
+     * @exception JavascriptException cannot find jscoverage_report in the
+     * web-page being processed (likely web-page not instrumented or page has
+     * closed before calling this method)
+     */
+    public void resetCoverage(boolean storeCurrentReport, int timerForJscoverReport2Complete) {
+        resetCoverageInternal(storeCurrentReport, timerForJscoverReport2Complete);
+    }
+
+    /**
+     * Reset the code-coverage counters (see <code>resetCoverage</code>) and
+     * report the new phase into a sub-directory of the report directory (as
+     * <code>reportIntoSubDir</code>, which has no effect once started).
+     *
+     * @param furtherSubDir name of the sub-directory to report into after the
+     * reset
+     * @param storeCurrentReport true to store the current code-coverage into
+     * the current report target before the reset, false to discard it
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     *
+     * @exception TimeoutException if there is a time-out, consider lengthening
+     * the time-out for the web-page report generation
+     */
+    public void resetCoverageIntoSubDir(String furtherSubDir,
+            boolean storeCurrentReport, int timerForJscoverReport2Complete) {
+
+        if (resetCoverageInternal(storeCurrentReport, timerForJscoverReport2Complete)) {
+            setReportTargetInternal(0, furtherSubDir);
+        }
+    }
+
+    /**
+     * Reset the code-coverage counters (see <code>resetCoverage</code>) and
+     * report the new phase into a new time-stamped sub-directory (as
+     * <code>reportIntoTimeStampDir</code>, which has no effect once started).
+     *
+     * @param retainNTimestampReports the number of report directories with
+     * time-stamps to be retained in the reporting directory (0 means retain
+     * all)
+     * @param storeCurrentReport true to store the current code-coverage into
+     * the current report target before the reset, false to discard it
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     *
+     * @exception TimeoutException if there is a time-out, consider lengthening
+     * the time-out for the web-page report generation
+     *
+     * @exception RuntimeException if retainNTimestampReports is negative
+     */
+    public void resetCoverageIntoTimeStampDir(int retainNTimestampReports,
+            boolean storeCurrentReport, int timerForJscoverReport2Complete) {
+
+        checkRetainNMakesSense(retainNTimestampReports);
+
+        if (resetCoverageInternal(storeCurrentReport, timerForJscoverReport2Complete)) {
+            setReportTargetInternal(retainNTimestampReports, newTimeStampDirName());
+        }
+    }
+
+    /**
+     * Store (optionally) and reset the code-coverage of the web-page.
+     *
+     * @param storeCurrentReport true to store the current code-coverage
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     *
+     * @return true if the proxy-server is started (the report target may be
+     * changed), false if code-coverage is not active
+     */
+    private boolean resetCoverageInternal(boolean storeCurrentReport,
+            int timerForJscoverReport2Complete) {
+        synchronized (this.storeLock) {
+            if (this.processingState != STARTED) {
+                // JSCover is not active so do no action, as for store-report
+                return false;
+            }
+            if (storeCurrentReport) {
+                // jscoverage_report serializes the coverage as it is invoked, so
+                // the counters may be reset once the script has returned
+                storeJscoverReportToDirInternal(timerForJscoverReport2Complete);
+                cleanTimestampDirs();
+            }
+            if (this.jscoverDriverWithProxySet != null) {
+                try {
+                    if (((RemoteWebDriver) jscoverDriverWithProxySet).getSessionId() == null) {
+                        return true;
+                    }
+                } catch (ClassCastException cce) {
+                    // an overridden driver, attempt the reset
+                }
+                ((JavascriptExecutor) jscoverDriverWithProxySet).executeScript(RESET_COVERAGE_SCRIPT);
+                this.incrementalSnapshot.clear();
+            }
+            return true;
+        }
     }
 
     /**
@@ -994,7 +2852,8 @@ public class JscovTestUtil {
      * <p style="padding-left: 5ch; text-indent: -5ch;">
      * Only HTTP or HTTPS protocols support the stop button.</p>
      *
-     * @param viewingServerPortNo port number for the simpler-server
+     * @param viewingServerPortNo port number for the simpler-server, or
+     * ANY_FREE_PORT to have a free port picked
      */
     public void viewReportDo(int viewingServerPortNo) {
 
@@ -1013,24 +2872,64 @@ public class JscovTestUtil {
         //
         // the server may have been stopped by the user, so ignore connection
         // exception 
-        stopAJscoverServer(String.format("localhost:%d", viewingServerPortNo), true);
-        pause(3000); // give time for the simple-server to shutdown
+        //
+        // a free port will not have a server on it, so only a previous
+        // simple-server of this object is stopped
+        if (viewingServerPortNo == ANY_FREE_PORT) {
+            if (this.viewServerProcess != null && this.viewServerProcess.isAlive()) {
+                stopAJscoverServer(this.viewServerPortNo, true);
+            }
+        } else {
+            stopAJscoverServer(viewingServerPortNo, true);
+        }
+        // give time for the simple-server to shutdown, the process is only
+        // known if launched by this object (otherwise wait on the port)
+        if (this.viewServerProcess != null && this.viewServerProcess.isAlive()) {
+            this.viewServerProcess.stop(this.proxyStopTimeoutMsecs);
+        } else if (viewingServerPortNo != ANY_FREE_PORT) {
+            waitForServerDown(viewingServerPortNo, 3000);
+        }
+        this.viewServerProcess = null;
+        if (viewingServerPortNo == ANY_FREE_PORT) {
+            viewingServerPortNo = findFreePortNo();
+        }
+        this.viewServerPortNo = viewingServerPortNo;
 
         String portNoStr = String.format("%d", viewingServerPortNo);
 
+        // an archived report is served from its archive, by a view server
+        // process
+        File viewReportDir = getStoreReportDir(this.reportFurtherSubDirOrTimeStamp);
+
+        if (JscovReportArchive.isArchived(viewReportDir)) {
+            viewArchivedReport(viewingServerPortNo, viewReportDir);
+            return;
+        }
+
         // start the processing JSCover simple-server so as to create
         // a local server for seeing reports with ( the simple-server requires
         // the working directory to be in position
-        ProcessBuilder procJscovSimpleWebServer = new ProcessBuilder("java",
-                "-cp",
-                pathToJSCoverAllJar,
-                "jscover.server.SimpleWebServer",
-                ".",
-                portNoStr);
+        ArrayList<String> simpleServerCommand = new ArrayList<>();
+        simpleServerCommand.add("java");
+        simpleServerCommand.addAll(this.viewServerJvmOptionsArr);
+
+        if (this.classDataSharing) {
+            // the simple-server only maps an archive created by a proxy-server
+            simpleServerCommand.addAll(new JscovCdsArchive(jscoverAllJarFile)
+                    .jvmOptions(false, portNoStr));
+        }
+        simpleServerCommand.add("-cp");
+        simpleServerCommand.add(pathToJSCoverAllJar);
+        simpleServerCommand.add("jscover.server.SimpleWebServer");
+        simpleServerCommand.add(".");
+        simpleServerCommand.add(portNoStr);
+
+        ProcessBuilder procJscovSimpleWebServer = new ProcessBuilder(simpleServerCommand);
 
         try {
             procJscovSimpleWebServer.directory(new File(locationOfJscoverDir));
-            procJscovSimpleWebServer.start();
+            this.viewServerProcess = JscovServerProcess.start(procJscovSimpleWebServer,
+                    String.format("simple-server port %d", viewingServerPortNo), false);
 
         } catch (IOException ex) {
             System.err.printf("\n*******Unable to launch JSCover simple web server.\n",
@@ -1047,6 +2946,9 @@ public class JscovTestUtil {
         String reportPathAbs = String.format("%s/%s/",
                 this.locationOfJscoverDir, subDirectoryForReport);
 
+        // a compacted report (binary only) is viewed as JSON
+        JscovCoverageBinary.restoreReportJson(new File(reportPathAbs));
+
         String content = "";
         try {
             String jscoverageHtmlFilePath
@@ -1057,20 +2959,7 @@ public class JscovTestUtil {
         } catch (IOException ex) {
             throw new RuntimeException("\n******: critical IOException reading jscoverage.html file.");
         }
-        // add in the jscovtestutil.js file for the report to use for
-        // processing the stop simple-server button to the reports
-        //
-        String replaceWith = String.format(
-                "<script type='text/javascript' "
-                + "src='jscovtestutil.js'></script>\n</head>");
-
-        content = content.replace("</head>", replaceWith);
-
-        // update the onload to do the onloadjscov button for simple-server stop
-        // action function
-        //
-        content = content.replace("<body onload=\"jscoverage_body_load();\"",
-                "<body onload=\"jscoverage_body_load(); onloadjscov();\"");
+        content = modifyReportHtml(content);
 
         // introduce the two newjscovtestutil.html/.js files for the reports
         //
@@ -1108,8 +2997,100 @@ public class JscovTestUtil {
         String urlSimpleSevr = String.format("http://localhost:%s/%s/%s",
                 portNoStr, subDirectoryForReport, jscovTstUtlReportName);
 
+        // the browser should not be pointed at the simple-server before
+        // it is listening
+        try {
+            waitForServerReady(viewingServerPortNo, this.proxyReadyTimeoutMsecs,
+                    this.viewServerProcess, false);
+        } catch (RuntimeException rte) {
+            System.err.printf("\n******* %s\n", rte.getMessage());
+            return;
+        }
+
+        browseReport(urlSimpleSevr);
+    }
+
+    /**
+     * View an archived report, served from its archive by a view server
+     * process (see <code>JscovArchiveViewServer</code>, run on the
+     * class-path of this JVM) in place of the simple-server, with the
+     * 'jscovtestutil.html/.js' of the viewer served from memory&#46; The
+     * process outlives this JVM, as the simple-server does, until the viewer
+     * is stopped.
+     *
+     * @param viewingServerPortNo port number for the view server
+     * @param reportDir the report directory (archived)
+     */
+    private void viewArchivedReport(int viewingServerPortNo, File reportDir) {
+        String subDirectoryForReport = this.getreportDirBase() + "/" + this.reportFurtherSubDirOrTimeStamp;
+        String jscovTstUtlReportName = "jscovtestutil.html";
+
+        ArrayList<String> viewServerCommand = new ArrayList<>();
+        viewServerCommand.add("java");
+        viewServerCommand.addAll(this.viewServerJvmOptionsArr);
+        viewServerCommand.add("-cp");
+        viewServerCommand.add(System.getProperty("java.class.path"));
+        viewServerCommand.add(JscovArchiveViewServer.class.getName());
+        viewServerCommand.add(String.format("%d", viewingServerPortNo));
+        viewServerCommand.add(reportDir.getAbsolutePath());
+        viewServerCommand.add(subDirectoryForReport);
+
+        try {
+            this.viewServerProcess = JscovServerProcess.start(new ProcessBuilder(viewServerCommand),
+                    String.format("archived report view server port %d", viewingServerPortNo), false);
+
+        } catch (IOException ex) {
+            System.err.printf("\n*******Unable to launch the archived report view server: %s\n",
+                    ex.getMessage());
+            return;
+        }
+        // the browser should not be pointed at the view server before it is
+        // listening
+        try {
+            waitForServerReady(viewingServerPortNo, this.proxyReadyTimeoutMsecs,
+                    this.viewServerProcess, false);
+        } catch (RuntimeException rte) {
+            System.err.printf("\n******* %s\n", rte.getMessage());
+            return;
+        }
+        browseReport(String.format("http://localhost:%d/%s/%s",
+                viewingServerPortNo, subDirectoryForReport, jscovTstUtlReportName));
+    }
+
+    /**
+     * Modify the 'jscoverage.html' of a report for JscovTestUtil: the
+     * jscovtestutil.js file is added and its onload invoked, for the stop
+     * simple-server button.
+     *
+     * @param content the content of 'jscoverage.html'
+     *
+     * @return the content of 'jscovtestutil.html'
+     */
+    static String modifyReportHtml(String content) {
+        // add in the jscovtestutil.js file for the report to use for
+        // processing the stop simple-server button to the reports
+        //
+        String replaceWith = String.format(
+                "<script type='text/javascript' "
+                + "src='jscovtestutil.js'></script>\n</head>");
+
+        content = content.replace("</head>", replaceWith);
+
+        // update the onload to do the onloadjscov button for simple-server stop
+        // action function
+        //
+        return content.replace("<body onload=\"jscoverage_body_load();\"",
+                "<body onload=\"jscoverage_body_load(); onloadjscov();\"");
+    }
+
+    /**
+     * Launch the default browser at a report URL.
+     *
+     * @param reportUrl the URL
+     */
+    private static void browseReport(String reportUrl) {
         try {
-            Desktop.getDesktop().browse(new URL(urlSimpleSevr).toURI());
+            Desktop.getDesktop().browse(new URL(reportUrl).toURI());
 
         } catch (MalformedURLException ex) {
             System.err.printf("\n******* MalformedURLException: trying to launch: %s\n",
@@ -1136,6 +3117,7 @@ public class JscovTestUtil {
      */
     public WebDriver overrideWebDriveForJSCoverProxy(WebDriver aProxyConfiguresWebDriver) {
         this.jscoverDriverWithProxySet = aProxyConfiguresWebDriver;
+        this.incrementalSnapshot.clear();
         return aProxyConfiguresWebDriver;
     }
 
@@ -1226,6 +3208,7 @@ public class JscovTestUtil {
         driverL.manage().window().setSize(winDim);
 
         jscoverDriverWithProxySet = driverL;
+        this.incrementalSnapshot.clear();
         return driverL;
     }
 
@@ -1252,9 +3235,6 @@ public class JscovTestUtil {
         // re-build the commands each time some as to treat as a separate
         // item/process each time its used
         ArrayList<String> commandAndParms = new ArrayList<>();
-        commandAndParms.add("java");
-        commandAndParms.add("-jar");
-        commandAndParms.add(pathToJSCoverAllJar);
         commandAndParms.add("-ws");
         commandAndParms.add("--local-storage");
         commandAndParms.add("--proxy");
@@ -1264,17 +3244,45 @@ public class JscovTestUtil {
         this.additionalOptionsArr.forEach((addOpt) -> {
             commandAndParms.add(addOpt);
         });
+        if (this.inJvmProxyServer) {
+            actualStartInJvm(commandAndParms);
+            return;
+        }
+        // the JVM options precede the jar
+        ArrayList<String> javaAndJvmOptions = new ArrayList<>();
+        javaAndJvmOptions.add("java");
+        javaAndJvmOptions.addAll(this.proxyJvmOptionsArr);
+
+        if (this.classDataSharing) {
+            this.proxyCdsArchive = new JscovCdsArchive(jscoverAllJarFile);
+            javaAndJvmOptions.addAll(this.proxyCdsArchive.jvmOptions(true,
+                    String.format("%d", this.jscoverLocalPortNo)));
+        }
+        javaAndJvmOptions.add("-jar");
+        javaAndJvmOptions.add(pathToJSCoverAllJar);
+
+        commandAndParms.addAll(0, javaAndJvmOptions);
+
         // start the proxy-server as an external process
         ProcessBuilder proxySvrProcess = new ProcessBuilder(commandAndParms);
         proxySvrProcess.directory(new File(locationOfJscoverDir));
 
         try {
             // may throw exception which means the proxy-server is not running
-            proxySvrProcess.start();
+            String description = String.format("proxy-server port %d", this.jscoverLocalPortNo);
+
+            if (this.sharedProxyServer) {
+                // a shared proxy-server outlives this JVM (other JVMs use it)
+                this.proxyServer = JscovServerProcess.startToLogFile(proxySvrProcess,
+                        "shared " + description,
+                        new File(locationOfJscoverDir, JscovSharedDaemon.DAEMON_LOG_FILE_NAME));
+            } else {
+                this.proxyServer = JscovServerProcess.start(proxySvrProcess, description, true);
+            }
 
-            // but process may be running but had an input error, there are
-            // complex ways to manage this, but JscovTestUtil will fail
-            // during the testing wil better explanation/exception
+            // but process may be running but had an input error, this is
+            // detected by startProxyServer waiting on the proxy-server to
+            // become ready
         } catch (IOException ex) {
             throw new RuntimeException(
                     String.format("Failed to start proxy-server process.\n"
@@ -1286,6 +3294,36 @@ public class JscovTestUtil {
         this.processingState = STARTED;
     }
 
+    /**
+     * Perform the actual start of the proxy-server within the test JVM&#46;
+     * The JSCover process would run in the JSCover directory, so the report
+     * directory and document-root are given as absolute paths.
+     *
+     * @param jscoverArgs the JSCover arguments (without 'java -jar ...')
+     *
+     * @exception RuntimeException JSCover failed to load or its options are
+     * invalid
+     */
+    private void actualStartInJvm(ArrayList<String> jscoverArgs) {
+        File jscoverDir = new File(locationOfJscoverDir).getAbsoluteFile();
+
+        for (int i = 0; i < jscoverArgs.size(); i++) {
+            String reportDirOption = "--report-dir=";
+
+            if (jscoverArgs.get(i).startsWith(reportDirOption)) {
+                jscoverArgs.set(i, reportDirOption + new File(jscoverDir,
+                        jscoverArgs.get(i).substring(reportDirOption.length())).getPath());
+            }
+        }
+        jscoverArgs.add(String.format("--document-root=%s", jscoverDir.getPath()));
+
+        this.proxyServer = JscovInJvmServer.start(jscoverAllJarFile, jscoverArgs,
+                this.jscoverLocalPortNo,
+                String.format("in-JVM proxy-server port %d", this.jscoverLocalPortNo));
+
+        this.processingState = STARTED;
+    }
+
     /**
      * Stop the proxy-server running, but first get the code-coverage report.
      * Wait for a time-out period to get the report.
@@ -1316,7 +3354,7 @@ public class JscovTestUtil {
         }
         // no matter we wish to clean-up/stop the proxy-server
         //
-        stopAJscoverServer(jscoverLocalProxyAndPortString, false);
+        stopOrDetachProxyServer(false);
         this.processingState = STARTED_AND_STOPPED;
 
         // if we timeed-out waiting for the report to complete, need to
@@ -1325,8 +3363,50 @@ public class JscovTestUtil {
         if (teTrace != null) {
             throw teTrace;
         }
-        // report stored successfully
-        pause(2000);
+    }
+
+    /**
+     * Wait for the proxy-server process launched by this object to exit, as
+     * it has been sent the stop message, destroying it if it does not exit
+     * within the stop time-out&#46; An in-JVM proxy-server is stopped here
+     * (it is not sent the stop message)&#46; The exit value and output tail
+     * remain available after the stop.
+     */
+    private void stopProxyServerInternal() {
+        if (this.proxyServer == null) {
+            return;
+        }
+        // an ended server is still stopped, so an in-JVM server releases its
+        // resources
+        Integer exitValue = this.proxyServer.stop(this.proxyStopTimeoutMsecs);
+
+        if (exitValue == null) {
+            System.err.printf("\nINFO: JscovTestUtil: %s could not be terminated.\n",
+                    this.proxyServer.getDescription());
+        }
+        proxyCdsArchiveLaunchEnded();
+    }
+
+    /**
+     * The proxy-server process has ended, store any CDS archive it created.
+     */
+    private void proxyCdsArchiveLaunchEnded() {
+        if (this.proxyCdsArchive != null) {
+            this.proxyCdsArchive.launchEnded();
+            this.proxyCdsArchive = null;
+        }
+    }
+
+    /**
+     * Get the string of the local server and port used to send control
+     * messages (stop) to a JSCover server launched on this machine.
+     *
+     * @param portNo the port number of the server
+     *
+     * @return string 'localhost:ppppp'
+     */
+    private static String getLocalControlString(int portNo) {
+        return String.format("localhost:%d", portNo);
     }
 
     /**
@@ -1344,77 +3424,255 @@ public class JscovTestUtil {
 
     /**
      * Clean up the timestamp sub-directories that exist in the "reports"
-     * directory so as to manage storage.
+     * directory so as to manage storage (see
+     * <code>setTimestampRetention</code>), compact those retained if the
+     * binary report only is set, archive those not the latest if the archive
+     * is set and purge the source store if the source de-duplication is
+     * set&#46; The clean up runs on the background
+     * report writer, after the report writes submitted (so a report being
+     * written is not removed), the caller does not wait on it, the results
+     * are visible only after a <code>flush</code>.
      */
     private void cleanTimestampDirs() {
-        // 0 means no clean up
-        if (this.retainNTimestampReports <= 0) {
+        JscovRetention retention = new JscovRetention(this.retainNTimestampReports,
+                this.retainMaxTotalBytes, this.retainMaxAgeMsecs);
+
+        // no limit means no clean up
+        if (!retention.isAnyLimit() && !this.binaryReportOnly && !this.sourceDedup
+                && !this.archiveReport) {
             return;
         }
         File reportsDirFile = new File(this.locationOfJscoverDir, getreportDirBase());
+        JscovReportManifest manifest = getReportManifest();
+        String currentDir = this.reportFurtherSubDirOrTimeStamp;
+        boolean isCompact = this.binaryReportOnly;
+        boolean isArchive = this.archiveReport;
+        boolean isPurge = this.sourceDedup;
+
+        synchronized (this.storeLock) {
+            // a batch held is written before, not into a report removed
+            writeReportBatch();
+
+            getReportWriter().submit(() -> {
+                if (!reportsDirFile.isDirectory()) {
+                    return;
+                }
+                // the runs not recorded, or removed other than by this, are
+                // known if the reports directory was modified (the current
+                // run may not be written yet)
+                if (manifest.isReconcileDue()) {
+                    reconcileManifest(reportsDirFile, manifest,
+                            (runName) -> isTimestampDirName(runName) && !runName.equals(currentDir));
+                }
 
-        if (reportsDirFile.isDirectory()) {
-            // need to delete some directories, but need to ID the
-            // latest one to retain
-            List<String> arrListDirs = getTimestampDirList();
-            if (arrListDirs.size() < retainNTimestampReports) {
-                return;
+                if (retention.isAnyLimit()) {
+                    retention.apply(reportsDirFile, manifest,
+                            manifest.getRunEntries(JscovTestUtil::isTimestampDirName), currentDir);
+                }
+                if (isCompact) {
+                    compactTimestampDirs(reportsDirFile,
+                            manifest.getRunNames(JscovTestUtil::isTimestampDirName), currentDir);
+                }
+                if (isArchive) {
+                    archiveTimestampDirs(reportsDirFile, manifest, currentDir);
+                }
+                if (isPurge) {
+                    new JscovSourceStore(reportsDirFile).purge();
+                }
+            });
+        }
+    }
+
+    /**
+     * Compact the time-stamp reports other than the current, their
+     * 'jscoverage.json' is replaced by its binary&#46; A report that cannot
+     * be compacted is left as it is.
+     *
+     * @param reportsDirFile the reports directory
+     * @param timeStampDirList the time-stamp report names
+     * @param currentDir the name of the current report
+     */
+    private static void compactTimestampDirs(File reportsDirFile, List<String> timeStampDirList,
+            String currentDir) {
+        for (String timeStampDir : timeStampDirList) {
+            if (!new File(reportsDirFile, timeStampDir).isDirectory()) {
+                continue;
             }
-            int retainNMinus1 = arrListDirs.size() - retainNTimestampReports;
-            //
-            for (int i = 0; i < retainNMinus1; i++) {
-                File dirToDelete = new File(reportsDirFile, arrListDirs.get(i));
+            if (timeStampDir.equals(currentDir)) {
+                continue;
+            }
+            try {
+                JscovCoverageBinary.compactReport(new File(reportsDirFile, timeStampDir));
 
-                if (dirToDelete.isDirectory()) {
-                    deleteDir(dirToDelete);
+            } catch (RuntimeException ex) {
+                System.err.printf("\nINFO: JscovTestUtil: report not compacted to binary: %s\n",
+                        ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Archive the time-stamp reports other than the current and the last,
+     * those not already archived (of a report already archived the
+     * directory left beside its archive is removed)&#46; A report that
+     * cannot be archived is left as it is.
+     *
+     * @param reportsDirFile the reports directory
+     * @param manifest the manifest of the reports directory
+     * @param currentDir the name of the current report
+     */
+    private static void archiveTimestampDirs(File reportsDirFile, JscovReportManifest manifest,
+            String currentDir) {
+        List<String> timeStampDirList = manifest.getRunNames(JscovTestUtil::isTimestampDirName);
+
+        for (int i = 0; i < timeStampDirList.size() - 1; i++) {
+            File reportDir = new File(reportsDirFile, timeStampDirList.get(i));
+
+            if (timeStampDirList.get(i).equals(currentDir) || !reportDir.isDirectory()) {
+                continue;
+            }
+            boolean isArchived = JscovReportArchive.isArchived(reportDir);
+            try {
+                JscovReportArchive.archive(reportDir);
+
+                if (!isArchived) {
+                    manifest.recordArchived(reportDir);
                 }
+
+            } catch (RuntimeException ex) {
+                System.err.printf("\nINFO: JscovTestUtil: report not archived: %s\n",
+                        ex.getMessage());
             }
         }
     }
 
-    private List<String> getTimestampDirList() {
-        File reportsDirFile = new File(this.locationOfJscoverDir, getreportDirBase());
+    /**
+     * Get the time-stamp reports of the reports directory, of the manifest
+     * (those archived included), reconciled with the reports directory
+     * listed if it was modified since the last reconcile&#46; Without a
+     * manifest (not writable) the reports directory is listed.
+     *
+     * @return the names, oldest first
+     */
+    private List<String> getTimestampDirList() {
+        File reportsDirFile = new File(this.locationOfJscoverDir, getreportDirBase());
+        JscovReportManifest manifest = getReportManifest();
+
+        if (manifest.isReconcileDue()) {
+            reconcileManifest(reportsDirFile, manifest, JscovTestUtil::isTimestampDirName);
+        }
+        if (!manifest.exists()) {
+            return listTimestampDirs(reportsDirFile);
+        }
+        return manifest.getRunNames(JscovTestUtil::isTimestampDirName);
+    }
+
+    /**
+     * Reconcile the manifest with the reports directory listed, as of the
+     * modified time of the reports directory before the listing (a run
+     * created while listed leaves a reconcile due).
+     *
+     * @param reportsDirFile the reports directory
+     * @param manifest the manifest of the reports directory
+     * @param isAccepted the test of the name of a run that may be removed
+     */
+    private static void reconcileManifest(File reportsDirFile, JscovReportManifest manifest,
+            Predicate<String> isAccepted) {
+        long dirMsecs = reportsDirFile.lastModified();
+
+        manifest.reconcile(listTimestampDirs(reportsDirFile), isAccepted, dirMsecs);
+    }
+
+    /**
+     * Is there a time-stamp report of a name in the reports directory, its
+     * directory or its archive.
+     *
+     * @param reportsDirFile the reports directory
+     * @param timeStampDir the name of the report
+     *
+     * @return true if there is
+     */
+    private static boolean isTimestampRun(File reportsDirFile, String timeStampDir) {
+        File reportDir = new File(reportsDirFile, timeStampDir);
+
+        return reportDir.isDirectory() || JscovReportArchive.isArchived(reportDir);
+    }
 
-        // list all 'jscovYYYY....' directories in the reports directory
+    /**
+     * List the time-stamp reports of a reports directory, their
+     * directories and archives.
+     *
+     * @param reportsDirFile the reports directory
+     *
+     * @return the names, oldest first
+     */
+    private static List<String> listTimestampDirs(File reportsDirFile) {
+        // list all 'jscovYYYY....' directories, and 'jscovYYYY.....zip'
+        // archives, in the reports directory
         String[] listOfRepDir = reportsDirFile.list(new FilenameFilter() {
             @Override
             public boolean accept(File dir, String name) {
-                //............1111111111222222
-                //..01234567890123456789012345 index
-                //
-                //..12345
-                //.......1234567890123456789    time-stamp length + REP_TIMESTAMP_PREFIX.length
-                // 'jscovYYYYMMdd_mmhhss_mmm
-                //...............109876543210   minus index
-                //
-                // below code is optimized for speed
-                if (name.length() == REP_TIMERSTAMP_LENGTH) {
-                    if (name.startsWith(REP_TIMESTAMP_PREFIX)) {
-                        // just confirm the underscores
-                        if (name.charAt(name.length() - 4) == '_'
-                                && name.charAt(name.length() - 11) == '_') {
-                            if (new File(dir, name).isDirectory()) {
-                                return true;
-
-                            }
-                        }
-                    }
-                }
-                return false;
+                return isTimestampDirName(name) && new File(dir, name).isDirectory()
+                        || name.endsWith(JscovReportArchive.ARCHIVE_FILE_SUFFIX)
+                        && isTimestampDirName(runNameOfArchive(name));
             }
         }
         );
-        List<String> arrListDirs;
+        List<String> arrListDirs = new ArrayList<>();
         if (listOfRepDir
-                == null) {
-            arrListDirs = new ArrayList<>();
-        } else {
-            arrListDirs = Arrays.asList(listOfRepDir);
+                != null) {
+            for (String repDir : listOfRepDir) {
+                String runName = repDir.endsWith(JscovReportArchive.ARCHIVE_FILE_SUFFIX)
+                        ? runNameOfArchive(repDir) : repDir;
+
+                if (!arrListDirs.contains(runName)) {
+                    arrListDirs.add(runName);
+                }
+            }
             Collections.sort(arrListDirs);
         }
         return arrListDirs;
     }
 
+    /**
+     * Get the name of the report of an archive file name.
+     *
+     * @param archiveName the archive file name
+     *
+     * @return the report name
+     */
+    private static String runNameOfArchive(String archiveName) {
+        return archiveName.substring(0,
+                archiveName.length() - JscovReportArchive.ARCHIVE_FILE_SUFFIX.length());
+    }
+
+    /**
+     * Is a name of the time-stamp report directory form.
+     *
+     * @param name the name
+     *
+     * @return true if of the form
+     */
+    private static boolean isTimestampDirName(String name) {
+        //............1111111111222222
+        //..01234567890123456789012345 index
+        //
+        //..12345
+        //.......1234567890123456789    time-stamp length + REP_TIMESTAMP_PREFIX.length
+        // 'jscovYYYYMMdd_mmhhss_mmm
+        //...............109876543210   minus index
+        //
+        // below code is optimized for speed
+        if (name.length() == REP_TIMERSTAMP_LENGTH) {
+            if (name.startsWith(REP_TIMESTAMP_PREFIX)) {
+                // just confirm the underscores
+                return name.charAt(name.length() - 4) == '_'
+                        && name.charAt(name.length() - 11) == '_';
+            }
+        }
+        return false;
+    }
+
     /**
      * Get the report directory base, where the 'reports' is defined as the
      * lowest base and appended with any user report-directory settings
@@ -1454,6 +3712,119 @@ public class JscovTestUtil {
         this.offCodeCoverage = state;
     }
 
+    /**
+     * Wait for a JSCover server (proxy-server or simple-server) to accept
+     * connections on its port&#46; The port is polled with an increasing
+     * back-off so a fast start returns quickly, while a slow start is allowed
+     * the full time-out.
+     *
+     * @param portNo the port number of the server on 'localhost'
+     * @param timeoutMsecs time (milliseconds) allowed for the server to be
+     * ready
+     * @param serverProcess the process of the server, null if unknown; if the
+     * process terminates the wait fails immediately (with the tail of its
+     * output in the message)
+     * @param probeJscover true to confirm the server answering is JSCover by
+     * a HTTP GET of its 'jscoverage.js' (a server of another program may be
+     * using the port)
+     *
+     * @exception RuntimeException if the process terminates or the server is
+     * not ready within the time-out
+     */
+    private void waitForServerReady(int portNo, int timeoutMsecs,
+            JscovServer serverProcess, boolean probeJscover) {
+        long deadline = System.currentTimeMillis() + timeoutMsecs;
+        int backOffMsecs = 10;
+
+        while (true) {
+            if (serverProcess != null && !serverProcess.isAlive()) {
+                throw new RuntimeException(String.format(
+                        "JSCover server for port %d terminated during start-up "
+                        + "(exit value %d).\n"
+                        + "Possible portNo collision or invalid JSCover option.\n"
+                        + "Output tail:\n%s",
+                        portNo, serverProcess.exitValue(), serverProcess.getOutputTail()));
+            }
+            if (isServerAccepting(portNo)) {
+                if (!probeJscover || isJscoverServerResponding(portNo)) {
+                    return;
+                }
+            }
+            long remainingMsecs = deadline - System.currentTimeMillis();
+            if (remainingMsecs <= 0) {
+                throw new RuntimeException(String.format(
+                        "JSCover server for port %d not ready within %d msecs.\n"
+                        + "Consider lengthening the ready time-out "
+                        + "(setProxyReadyTimeout).",
+                        portNo, timeoutMsecs));
+            }
+            pause((int) Math.min(backOffMsecs, remainingMsecs));
+            backOffMsecs = Math.min(backOffMsecs * 2, 250);
+        }
+    }
+
+    /**
+     * Wait for a server on the 'localhost' port to stop accepting connections
+     * (a server not launched by this object so its process is unknown).
+     *
+     * @param portNo the port number of the server
+     * @param timeoutMsecs time (milliseconds) allowed for the server to go
+     * down
+     */
+    private void waitForServerDown(int portNo, int timeoutMsecs) {
+        long deadline = System.currentTimeMillis() + timeoutMsecs;
+
+        while (isServerAccepting(portNo)
+                && System.currentTimeMillis() < deadline) {
+            pause(50);
+        }
+    }
+
+    /**
+     * Is a server accepting connections on the 'localhost' port.
+     *
+     * @param portNo the port number to connect to
+     *
+     * @return true if a connection was made
+     */
+    static boolean isServerAccepting(int portNo) {
+        try (Socket probeSocket = new Socket()) {
+            probeSocket.connect(new InetSocketAddress("localhost", portNo), 250);
+            return true;
+
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Is the server on the 'localhost' port a JSCover server, determined by a
+     * HTTP GET of 'jscoverage.js' which JSCover serves in all its server
+     * modes.
+     *
+     * @param portNo the port number of the server
+     *
+     * @return true if the server responded with HTTP OK
+     */
+    private static boolean isJscoverServerResponding(int portNo) {
+        HttpURLConnection probeConnection = null;
+        try {
+            URL probeUrl = new URL(String.format("http://localhost:%d/jscoverage.js", portNo));
+            probeConnection = (HttpURLConnection) probeUrl.openConnection(java.net.Proxy.NO_PROXY);
+            probeConnection.setConnectTimeout(1000);
+            probeConnection.setReadTimeout(2000);
+
+            return probeConnection.getResponseCode() == HttpURLConnection.HTTP_OK;
+
+        } catch (IOException ex) {
+            return false;
+        } finally {
+            if (probeConnection != null) {
+                probeConnection.disconnect();
+            }
+        }
+    }
+
     /**
      * Send the stop message to the proxy-server so it closes down internally;
      *
@@ -1501,19 +3872,24 @@ public class JscovTestUtil {
 
     /**
      * Stop the JSCover server whether its the proxy-server or simple-server as
-     * provided by the jscoverLocalServer URL name and port
+     * provided by the 'localhost' port&#46; A server running within the test
+     * JVM is not sent the stop message.
      *
-     * @param jscoverLocalServer String of the JSCover serverJscovTestUtil
-     * driver does not support RemoteWebDriver
+     * @param portNo the port number of the JSCover server
      *
      * @param ignoreConnectException ignore ConnectException as it is possible
      * that the connection is already closed to the server
      */
     @SuppressWarnings("CallToThreadYield")
-    private void stopAJscoverServer(String jscoverLocalServer, boolean ignoreConnectException) {
+    private void stopAJscoverServer(int portNo, boolean ignoreConnectException) {
         this.startProxyServerInvoked = false;
 
-        stopSendToProxyServer(jscoverLocalServer, ignoreConnectException);
+        if (JscovInJvmServer.isServingPort(portNo)) {
+            // JSCover ends the JVM on '/stop', an in-JVM server is stopped
+            // through its object
+            return;
+        }
+        stopSendToProxyServer(getLocalControlString(portNo), ignoreConnectException);
 
         // need to yeild the JVM doing this work so other JVM programs can
         // do some work (the actual stop on the proxy-server is a Java
@@ -1528,26 +3904,35 @@ public class JscovTestUtil {
      * Attempting to get a report from a 'stop' or 'report' action without prior
      * use of 'webDriverForJSCoverProxy()'/'overrideWebDriveForJSCoverProxy'
      * will not cause a report to generate and an ERR INFO message provided.
+     * <p>
+     * Returns once JSCover has stored the report (the jscoverage_report on
+     * complete callback) or the time-out elapses&#46; The script time-out of
+     * the WebDriver is set to the time-out, and restored after.
      *
      * @param timerForJscoverReport2Complete time (seconds) allowed to process
      * the code-coverage captured data into a report (small Javascript low
      * time-out lots-of/large files more time needed [also, CPU speed or file
      * access arrangement considerations].
      *
+     * @return time (milliseconds) the report took, 0 if no report was made
+     *
      * @exception TimeoutException if there is a time-out, consider lengthening
      * the time-out for the web-page report generation
      *
      * @exception JavascriptException cannot find jscoverage_report in the
      * web-page being processed (likely web-page not instrumented or page has
      * closed before calling this method)
+     *
+     * @exception RuntimeException if JSCover did not store the report
      */
-    @SuppressWarnings("CallToThreadYield")
-    private void storeJscoverReportToDirInternal(int timerForJscoverReport2Complete) {
+    private long storeJscoverReportToDirInternal(int timerForJscoverReport2Complete) {
+        this.lastStoreMsecs = 0;
+
         if (this.processingState != STARTED) {
             // JSCover is not active so do no action. This allows invokes
             // of JscovTestUtil methods to remain within test-cases, but
             // not actively be running.
-            return;
+            return 0;
         }
         if (this.jscoverDriverWithProxySet == null) {
             // there is no driver to allocated for this object
@@ -1555,14 +3940,14 @@ public class JscovTestUtil {
                     String.format("\nINFO: JscovTestUtil: Attempting to get a report due to a 'stop' or 'report' action.\n"
                             + "      HOWEVER, no WebDriver has been allocate or provided.\n")
             );
-            return;
+            return 0;
         }
         // the driver may have been closed prior to asking for a report, as
         // this would be impossible (no session so nothing to communicate with)
         // we'll ignore any action
         try {
             if (((RemoteWebDriver) jscoverDriverWithProxySet).getSessionId() == null) {
-                return;
+                return 0;
             }
         } catch (ClassCastException cce) {
             System.err.println("CAUTION: JscovTestUtil overridden driver does not support RemoteWebDriver");
@@ -1574,34 +3959,334 @@ public class JscovTestUtil {
         if (!this.reportFurtherSubDirOrTimeStamp.isEmpty()) {
             subDirectoryForReport = this.reportFurtherSubDirOrTimeStamp;
         }
-        // cause the jscover-report to be created.
+        jscoverDriverWithProxySet.manage().timeouts().setScriptTimeout(
+                Math.max(1, timerForJscoverReport2Complete), TimeUnit.SECONDS);
 
-        // once complete place a element in the DOM (id='stopEleId') to indicate
-        // the report creation has finished
-        //
-        // try {
-        String generateReportScript = String.format(REPORT_COMPLETE_AND_CALLBACK_SCRIPT,
-                subDirectoryForReport);
+        JavascriptExecutor jsExecutor = (JavascriptExecutor) jscoverDriverWithProxySet;
 
-        ((JavascriptExecutor) jscoverDriverWithProxySet).executeScript(generateReportScript);
+        long reportStart = System.currentTimeMillis();
+        try {
+            JscovCoverageData pageCoverage = null;
+            JscovCoverageData deltaCoverage = null;
+            String pageOrigin = null;
 
-        // need to provide time for the JSCover (Java to run, otherwise 
-        // this thread will tend to lock up the JVM)
-        Thread.yield();
-        //
-        // if there is no session the javascript executor will exception, however
-        // for any other issues we wish to ensure reports are provided. So the SessionId
-        // is checked at the begining of this method
-        //
-        // } catch (NoSuchSessionException ee) {
-        //     return;
-        // }
-        // wait on the DOM being updated with the 'stopEleId' element for
-        // the specified time
-        //
-//        (new WebDriverWait(jscoverDriverWithProxySet, timerForJscoverReport2Complete))
-//                .until(ExpectedConditions
-//                        .presenceOfElementLocated(By.id(STOPELEID_STR)));
+            if (this.incrementalReport) {
+                pageCoverage = extractPageCoverage();
+                pageOrigin = this.directReportWriter.getPageOrigin();
+                deltaCoverage = this.incrementalSnapshot.delta(pageOrigin, pageCoverage);
+
+                this.lastStoreFileCount = deltaCoverage.size();
+
+                if (this.lastStoreFileCount == 0) {
+                    // no code-coverage gained since the last store
+                    this.lastStoreMsecs = System.currentTimeMillis() - reportStart;
+                    return this.lastStoreMsecs;
+                }
+                // the snapshot now, a store following before this write
+                // completes (in the background) has only its own delta; a
+                // failed write rolls the delta back into the next
+                this.incrementalSnapshot.commit(pageOrigin, pageCoverage);
+            }
+            if (this.directReport || this.asyncReport || this.batchReport) {
+                if (deltaCoverage == null) {
+                    storeDirectReport(subDirectoryForReport, extractPageCoverage(),
+                            this.directReportWriter.getPageOrigin());
+                } else {
+                    storeDirectReport(subDirectoryForReport, deltaCoverage, pageOrigin);
+                }
+
+            } else {
+                try {
+                    // JSCover re-writes the report a background write (e.g. of a
+                    // soak flush) may be writing, that write is waited on first
+                    if (this.reportWriter != null) {
+                        this.reportWriter.await();
+                    }
+                    // an archived report is unpacked, a de-duplicated report is
+                    // un-shared, a compacted report (binary only) is stored into
+                    // as JSON
+                    JscovReportArchive.unarchive(getStoreReportDir(subDirectoryForReport));
+                    JscovSourceStore.unshare(getStoreReportDir(subDirectoryForReport));
+                    JscovCoverageBinary.restoreReportJson(getStoreReportDir(subDirectoryForReport));
+
+                    // recorded before the store, a store that times out may still
+                    // be written by JSCover
+                    getReportManifest().recordStore(getStoreReportDir(subDirectoryForReport), null);
+
+                    // cause the jscover-report to be created, the async script
+                    // returns when the store answers (jscoverage_report on
+                    // complete callback, or the post of the delta) or the script
+                    // time-out elapses
+                    Object reportStatus = deltaCoverage == null
+                            ? jsExecutor.executeAsyncScript(String.format(
+                                    REPORT_COMPLETE_ASYNC_SCRIPT, subDirectoryForReport))
+                            : jsExecutor.executeAsyncScript(JscovIncrementalReport.POST_DELTA_ASYNC_SCRIPT,
+                                    subDirectoryForReport, deltaCoverage.toJSON());
+
+                    checkReportStatus(reportStatus);
+
+                } catch (RuntimeException ex) {
+                    if (deltaCoverage != null) {
+                        this.incrementalSnapshot.rollback(pageOrigin, deltaCoverage);
+                    }
+                    throw ex;
+                }
+                if (this.binaryReport) {
+                    JscovCoverageBinary.storeReportBinary(getStoreReportDir(subDirectoryForReport));
+                }
+            }
+        } catch (ScriptTimeoutException ste) {
+            throw new TimeoutException(String.format(
+                    "JSCover report not complete within %d seconds, "
+                    + "consider lengthening the time-out.",
+                    timerForJscoverReport2Complete), ste);
+
+        } finally {
+            restoreDriverScriptTimeout();
+        }
+        this.lastStoreMsecs = System.currentTimeMillis() - reportStart;
+        return this.lastStoreMsecs;
+    }
+
+    /**
+     * Restore the WebDriver script time-out after a store; a WebDriver whose
+     * session has gone part way through the store is left as is.
+     */
+    private void restoreDriverScriptTimeout() {
+        try {
+            jscoverDriverWithProxySet.manage().timeouts().setScriptTimeout(
+                    this.driverScriptTimeoutSecs, TimeUnit.SECONDS);
+
+        } catch (WebDriverException ex) {
+            // the session has gone, nothing to restore
+        }
+    }
+
+    /**
+     * Check the HTTP status the jscoverage_report on complete callback
+     * answered with is 200 (JSCover has stored the report).
+     *
+     * @param reportStatus the status answered by the store script
+     *
+     * @exception RuntimeException if the status is not 200
+     */
+    static void checkReportStatus(Object reportStatus) {
+        if (!(reportStatus instanceof Number)
+                || ((Number) reportStatus).intValue() != HttpURLConnection.HTTP_OK) {
+            throw new RuntimeException(String.format(
+                    "JSCover did not store the report (HTTP status %s).", reportStatus));
+        }
+    }
+
+    /**
+     * Store the report directly, the coverage of the web-page is read
+     * through the WebDriver and the report written by this JVM (held in the
+     * batch if <code>setOnBatchReport</code>).
+     *
+     * @param subDirectoryForReport the sub-directory of the report
+     * directory, empty for none
+     * @param pageCoverage the code-coverage to store, of the web-page or the
+     * incremental report delta (merged into the report, so not to be used
+     * afterwards)
+     * @param pageOrigin the origin of the web-page
+     */
+    private void storeDirectReport(String subDirectoryForReport, JscovCoverageData pageCoverage,
+            String pageOrigin) {
+        File reportDir = getStoreReportDir(subDirectoryForReport);
+
+        if (this.batchReport) {
+            if (this.reportBatch == null) {
+                this.reportBatch = new JscovReportBatch(
+                        this.batchReportMaxCalls, this.batchReportWindowMsecs);
+            }
+            if (this.reportBatch.add(pageCoverage, pageOrigin, reportDir)) {
+                writeReportBatch();
+            }
+            return;
+        }
+        writeDirectReport(pageCoverage, pageOrigin, reportDir);
+    }
+
+    /**
+     * Read the code-coverage of the web-page through the WebDriver.
+     *
+     * @return the code-coverage
+     *
+     * @exception JavascriptException if the web-page is not instrumented
+     */
+    private JscovCoverageData extractPageCoverage() {
+        JscovCoverageData pageCoverage = this.directReportWriter.extract(
+                (JavascriptExecutor) jscoverDriverWithProxySet);
+
+        if (pageCoverage == null) {
+            throw new JavascriptException(
+                    "JSCover coverage (_$jscoverage) is not in the web-page, "
+                    + "the web-page is not instrumented.");
+        }
+        return pageCoverage;
+    }
+
+    /**
+     * Write the batch of stores held, if any.
+     */
+    private void writeReportBatch() {
+        synchronized (this.storeLock) {
+            if (this.reportBatch == null) {
+                return;
+            }
+            for (JscovReportBatch.Entry batchEntry : this.reportBatch.drain()) {
+                writeDirectReport(batchEntry.coverageData, batchEntry.pageOrigin, batchEntry.reportDir);
+            }
+        }
+    }
+
+    /**
+     * Write the code-coverage read from the web-page into a report (in the
+     * background if <code>setOnAsyncReport</code>).
+     *
+     * @param pageCoverage the code-coverage (merged into the report, so not
+     * to be used afterwards)
+     * @param pageOrigin the origin of the web-page
+     * @param reportDir the report directory
+     */
+    private void writeDirectReport(JscovCoverageData pageCoverage, String pageOrigin,
+            File reportDir) {
+        Runnable directWrite = directReportWrite(pageCoverage, pageOrigin, reportDir);
+        Runnable reportWrite = directWrite;
+
+        if (this.incrementalReport) {
+            // the coverage is a delta, rolled back into the next if the write
+            // fails (on this thread or the background writer)
+            JscovIncrementalReport snapshot = this.incrementalSnapshot;
+
+            reportWrite = () -> {
+                try {
+                    directWrite.run();
+
+                } catch (RuntimeException ex) {
+                    snapshot.rollback(pageOrigin, pageCoverage);
+                    throw ex;
+                }
+            };
+        }
+        if (this.asyncReport) {
+            getReportWriter().submit(reportWrite);
+        } else {
+            reportWrite.run();
+        }
+    }
+
+    /**
+     * Get the write of the code-coverage read from the web-page into a
+     * report, of the settings now (so it may run later in the background).
+     *
+     * @param pageCoverage the code-coverage (merged into the report, so not
+     * to be used afterwards)
+     * @param pageOrigin the origin of the web-page
+     * @param reportDir the report directory
+     *
+     * @return the write
+     */
+    private Runnable directReportWrite(JscovCoverageData pageCoverage, String pageOrigin,
+            File reportDir) {
+        File jarFile = this.jscoverAllJarFile;
+        boolean isBinaryToo = this.binaryReport;
+        JscovReportManifest manifest = getReportManifest();
+
+        return () -> {
+            // an archived report is unpacked, a de-duplicated report is
+            // un-shared, a compacted report (binary only) is stored into as
+            // JSON
+            JscovReportArchive.unarchive(reportDir);
+            JscovSourceStore.unshare(reportDir);
+            JscovCoverageBinary.restoreReportJson(reportDir);
+
+            JscovCoverageData reportData
+                    = this.directReportWriter.store(pageCoverage, pageOrigin, reportDir, jarFile);
+
+            if (isBinaryToo) {
+                JscovCoverageBinary.storeReportBinary(reportDir);
+            }
+            manifest.recordStore(reportDir, reportData);
+        };
+    }
+
+    /**
+     * Get the background report writer of this object, created if need be.
+     *
+     * @return the writer
+     */
+    private JscovReportWriter getReportWriter() {
+        if (this.reportWriter == null) {
+            this.reportWriter = new JscovReportWriter(this.asyncReportMaxPending);
+        }
+        return this.reportWriter;
+    }
+
+    /**
+     * Get the manifest of the reports directory, created if need be (of
+     * the time-stamp reports found, the reports directory is listed once
+     * for a reports directory without a manifest).
+     *
+     * @return the manifest
+     */
+    private JscovReportManifest getReportManifest() {
+        File reportsDirFile = new File(this.locationOfJscoverDir, getreportDirBase());
+
+        synchronized (this.storeLock) {
+            if (this.reportManifest == null || !this.reportManifest.isOf(reportsDirFile)) {
+                this.reportManifest = new JscovReportManifest(reportsDirFile);
+            }
+            if (!this.reportManifest.exists() && reportsDirFile.isDirectory()) {
+                this.reportManifest.recordFound(listTimestampDirs(reportsDirFile));
+            }
+            return this.reportManifest;
+        }
+    }
+
+    /**
+     * Record the stop of the report in the manifest, with its size and
+     * code-coverage, on the background report writer (the report is read).
+     */
+    private void recordReportStop() {
+        if (this.reportFurtherSubDirOrTimeStamp.isEmpty()) {
+            return;
+        }
+        JscovReportManifest manifest = getReportManifest();
+        File reportDir = getStoreReportDir(this.reportFurtherSubDirOrTimeStamp);
+
+        getReportWriter().submit(() -> manifest.recordStop(reportDir));
+    }
+
+    /**
+     * De-duplicate the original JS-files of the report into the source
+     * store of the reports directory, if set, on the background report
+     * writer.
+     */
+    private void dedupReportSources() {
+        if (!this.sourceDedup || this.reportFurtherSubDirOrTimeStamp.isEmpty()) {
+            return;
+        }
+        JscovSourceStore sourceStore = new JscovSourceStore(
+                new File(this.locationOfJscoverDir, getreportDirBase()));
+        File reportDir = getStoreReportDir(this.reportFurtherSubDirOrTimeStamp);
+
+        getReportWriter().submit(() -> sourceStore.dedup(reportDir));
+    }
+
+    /**
+     * Get the directory a store-report writes into.
+     *
+     * @param subDirectoryForReport the sub-directory of the report
+     * directory, empty for none
+     *
+     * @return the report directory
+     */
+    private File getStoreReportDir(String subDirectoryForReport) {
+        File reportDirBase = new File(this.locationOfJscoverDir, getreportDirBase());
+
+        return subDirectoryForReport.isEmpty()
+                ? reportDirBase : new File(reportDirBase, subDirectoryForReport);
     }
 
     /**
@@ -1612,11 +4297,15 @@ public class JscovTestUtil {
      * continuing tests&#46; Any changes to the "instrumentation" filters should
      * be applied before calling this method&#46;
      * <br><br>
+     * To only start a new phase of code-coverage (filters unchanged) use
+     * <code>resetCoverage</code>, which keeps the proxy-server running.
+     * <br><br>
      * CAUTION: Has the potential to fail to provide full reports (some JS-files
      * missing in report) if the system is slow due to under heavy load. The
      * heavy load may cause the actual <b>stop</b> of JSCover proxy-server to be
-     * slow to shutdown (over 2 seconds), and/or the re-<b>start</b> of JSCover
-     * proxy-server to be ready to accept connections (over another 2 seconds).
+     * slow to shutdown (over the stop time-out), and/or the re-<b>start</b> of
+     * JSCover proxy-server to be ready to accept connections (over the ready
+     * time-out).
      *
      * <p>
      * <B>Why this method</b></p>
@@ -1666,6 +4355,81 @@ public class JscovTestUtil {
         this.startProxyServer();
     }
 
+    /**
+     * Start the proxy-server without blocking the caller (see
+     * <code>startProxyServer</code>)&#46; The start runs on a JscovTestUtil
+     * thread, so the browser (<code>webDriverForJSCoverProxy</code>) and
+     * other fixtures may be started in parallel and joined once before the
+     * first test:
+     * <pre>
+     * CompletableFuture&lt;Void&gt; proxyStarted = jscovObject.startProxyServerAsync();
+     * driver = jscovObject.webDriverForJSCoverProxy(CHROME);
+     * startApplicationServer();
+     *
+     * proxyStarted.join(); // before the first page is loaded
+     * </pre>
+     * <p>
+     * The port number of the proxy-server is decided before this method
+     * returns (a free port is picked now if constructed with ANY_FREE_PORT),
+     * so the browser can be configured with the proxy-server while it
+     * starts; a port taken by another program in the meantime fails the
+     * start rather than re-trying another port&#46; For a shared
+     * proxy-server (<code>setOnSharedProxyServer</code>) the port number is
+     * only known once the start is complete.
+     * <p>
+     * The JscovTestUtil object is not to be otherwise used (other than
+     * <code>webDriverForJSCoverProxy</code>) until the future completes.
+     *
+     * @return future completed when the proxy-server is ready, or completed
+     * exceptionally with the start failure
+     */
+    public CompletableFuture<Void> startProxyServerAsync() {
+        if (!this.sharedProxyServer && !this.offCodeCoverage
+                && (this.processingState == NOT_STARTED
+                || this.processingState == STARTED_AND_STOPPED)) {
+            resolveProxyPortNo();
+            this.proxyPortNoPreResolved = true;
+        }
+        return CompletableFuture.runAsync(() -> {
+            try {
+                startProxyServer();
+            } finally {
+                this.proxyPortNoPreResolved = false;
+            }
+        }, ASYNC_EXECUTOR);
+    }
+
+    /**
+     * Stop the proxy-server without blocking the caller (see
+     * <code>stopProxyServer</code>)&#46; The report is stored through the
+     * WebDriver, which is not to be quit until the future completes.
+     *
+     * @param timerForJscoverReport2Complete time (seconds) allowed to process
+     * the code-coverage captured data into a report
+     *
+     * @return future completed when the proxy-server has stopped, or
+     * completed exceptionally (e.g. a TimeoutException of the report)
+     */
+    public CompletableFuture<Void> stopProxyServerAsync(int timerForJscoverReport2Complete) {
+        return CompletableFuture.runAsync(
+                () -> stopProxyServer(timerForJscoverReport2Complete), ASYNC_EXECUTOR);
+    }
+
+    /**
+     * View the report without blocking the caller (see
+     * <code>viewReportDo</code>).
+     *
+     * @param viewingServerPortNo the port number of the simple-server, or
+     * ANY_FREE_PORT
+     *
+     * @return future completed when the report has been launched in the
+     * default browser
+     */
+    public CompletableFuture<Void> viewReportDoAsync(int viewingServerPortNo) {
+        return CompletableFuture.runAsync(
+                () -> viewReportDo(viewingServerPortNo), ASYNC_EXECUTOR);
+    }
+
     /**
      * Add JSCover options to the proxy-server process executable ("--port" and
      * "--report-dir" are denied as they are set by the constructor)&#46; All
@@ -1702,6 +4466,67 @@ public class JscovTestUtil {
         return this;
     }
 
+    /**
+     * Add JVM options for the proxy-server process (e.g. "-Xmx256m",
+     * "-XX:+UseSerialGC", "-XX:TieredStopAtLevel=1")&#46; The options are
+     * placed between 'java' and '-jar JSCover-all.jar' and are not checked
+     * (an invalid option will cause the proxy-server not to launch, which is
+     * reported by <code>startProxyServer</code>)&#46; An in-JVM proxy-server
+     * (see <code>setOnInJvmProxyServer</code>) ignores these options.
+     * <p>
+     * Duplicate options will be ignored.
+     *
+     * @param jvmOptions list of the JVM options as string
+     *
+     * @return this object
+     */
+    public JscovTestUtil optionJvmProxyServer(String... jvmOptions) {
+        addJvmOptions(this.proxyJvmOptionsArr, jvmOptions);
+        return this;
+    }
+
+    /**
+     * Add JVM options for the simple-server process launched by
+     * <code>viewReportDo</code> (e.g. "-Xmx64m")&#46; The options are not
+     * checked.
+     * <p>
+     * Duplicate options will be ignored.
+     *
+     * @param jvmOptions list of the JVM options as string
+     *
+     * @return this object
+     */
+    public JscovTestUtil optionJvmViewServer(String... jvmOptions) {
+        addJvmOptions(this.viewServerJvmOptionsArr, jvmOptions);
+        return this;
+    }
+
+    /**
+     * Clear any JVM options that were added for the proxy-server and the
+     * simple-server.
+     *
+     * @return this object
+     */
+    public JscovTestUtil optionJvmClearAnyAdded() {
+        this.proxyJvmOptionsArr.clear();
+        this.viewServerJvmOptionsArr.clear();
+        return this;
+    }
+
+    /**
+     * Add JVM options to a list, ignoring duplicates.
+     *
+     * @param jvmOptionsArr the list
+     * @param jvmOptions the JVM options to add
+     */
+    private static void addJvmOptions(ArrayList<String> jvmOptionsArr, String... jvmOptions) {
+        for (String jvmOption : jvmOptions) {
+            if (!jvmOptionsArr.contains(jvmOption)) {
+                jvmOptionsArr.add(jvmOption);
+            }
+        }
+    }
+
     /**
      * Clear any additional JSCover options that were added.
      *
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2019 dbradley. Original author.
+* 
+*  Licensed under MIT
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+*
+ */
+package org.jtestdb.selenium.jscov;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Warm-up of a started proxy-server: JavaScript is requested through the
+ * proxy-server so its instrumenter is exercised (classes loaded, code JIT
+ * compiled) before the first web-page of a test&#46; Otherwise the first
+ * JS-file of the first page pays this cost, which shows as a slow page load
+ * (or a WebDriver page-load time-out).
+ * <p>
+ * The JavaScript is either synthetic (generated functions with branches and
+ * loops of a realistic size, served by a HTTP server within the test JVM on
+ * a free port) or a list of URLs the user provides.
+ */
+class JscovWarmUp {
+
+    /**
+     * The URL path the synthetic JavaScript is served on.
+     */
+    private final static String SYNTHETIC_PATH = "/jscovtestutil-warmup/";
+
+    /**
+     * The number of functions in a synthetic JS-file (about 80K bytes).
+     */
+    private final static int SYNTHETIC_FUNCTIONS = 120;
+
+    /**
+     * The time (milliseconds) allowed for each warm-up request.
+     */
+    private final static int REQUEST_TIMEOUT_MSECS = 20000;
+
+    /**
+     * The synthetic JavaScript, generated once.
+     */
+    private static byte[] syntheticJs = null;
+
+    /**
+     * Not instantiated, static methods only.
+     */
+    private JscovWarmUp() {
+    }
+
+    /**
+     * Request synthetic JavaScript through the proxy-server.
+     *
+     * @param proxyPortNo the 'localhost' port of the proxy-server
+     * @param requestCount the number of requests (each a different URL so
+     * nothing is served from a cache)
+     *
+     * @exception IOException if a request fails
+     */
+    static void warmUpSynthetic(int proxyPortNo, int requestCount) throws IOException {
+        byte[] jsBytes = getSyntheticJs();
+
+        HttpServer jsServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        jsServer.createContext(SYNTHETIC_PATH, (exchange) -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/javascript");
+            exchange.sendResponseHeaders(200, jsBytes.length);
+
+            try (OutputStream responseStream = exchange.getResponseBody()) {
+                responseStream.write(jsBytes);
+            }
+        });
+        jsServer.start();
+        try {
+            int jsPortNo = jsServer.getAddress().getPort();
+
+            for (int i = 0; i < requestCount; i++) {
+                requestThroughProxy(proxyPortNo, String.format(
+                        "http://localhost:%d%swarmup%d.js", jsPortNo, SYNTHETIC_PATH, i));
+            }
+        } finally {
+            jsServer.stop(0);
+        }
+    }
+
+    /**
+     * Request the user's URLs through the proxy-server.
+     *
+     * @param proxyPortNo the 'localhost' port of the proxy-server
+     * @param warmUpUrls the URLs
+     *
+     * @exception IOException if a request fails
+     */
+    static void warmUpUrls(int proxyPortNo, List<String> warmUpUrls) throws IOException {
+        for (String warmUpUrl : warmUpUrls) {
+            requestThroughProxy(proxyPortNo, warmUpUrl);
+        }
+    }
+
+    /**
+     * Request a URL through the proxy-server, reading the whole response.
+     *
+     * @param proxyPortNo the 'localhost' port of the proxy-server
+     * @param url the URL
+     *
+     * @exception IOException if the request fails
+     */
+    private static void requestThroughProxy(int proxyPortNo, String url) throws IOException {
+        Proxy jscoverProxy = new Proxy(Proxy.Type.HTTP,
+                new InetSocketAddress("localhost", proxyPortNo));
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection(jscoverProxy);
+        connection.setConnectTimeout(REQUEST_TIMEOUT_MSECS);
+        connection.setReadTimeout(REQUEST_TIMEOUT_MSECS);
+        try {
+            int responseCode = connection.getResponseCode();
+
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format(
+                        "warm-up request '%s' response %d", url, responseCode));
+            }
+            byte[] readBuffer = new byte[8192];
+
+            try (InputStream responseStream = connection.getInputStream()) {
+                while (responseStream.read(readBuffer) >= 0) {
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Get the synthetic JavaScript: functions with branches, loops and
+     * nested functions, the constructs JSCover instruments.
+     *
+     * @return the JavaScript bytes
+     */
+    private static synchronized byte[] getSyntheticJs() {
+        if (syntheticJs != null) {
+            return syntheticJs;
+        }
+        StringBuilder jsBuilder = new StringBuilder();
+        jsBuilder.append("// JscovTestUtil proxy-server warm-up\n")
+                .append("var jscovWarmUp = {};\n");
+
+        for (int i = 0; i < SYNTHETIC_FUNCTIONS; i++) {
+            jsBuilder.append(String.format(
+                    "jscovWarmUp.fn%1$d = function (values, limit) {\n"
+                    + "    var total = 0, i;\n"
+                    + "    for (i = 0; i < values.length; i++) {\n"
+                    + "        if (values[i] > limit && i %% 2 === 0) {\n"
+                    + "            total += values[i] * %1$d;\n"
+                    + "        } else if (values[i] < 0 || values[i] === limit) {\n"
+                    + "            total -= values[i];\n"
+                    + "        } else {\n"
+                    + "            total = total > %1$d ? total / 2 : total + 1;\n"
+                    + "        }\n"
+                    + "    }\n"
+                    + "    switch (total %% 3) {\n"
+                    + "        case 0:\n"
+                    + "            return function (x) { return x + total; };\n"
+                    + "        case 1:\n"
+                    + "            while (total > limit) { total = total - limit; }\n"
+                    + "            return total;\n"
+                    + "        default:\n"
+                    + "            return values.length && limit ? 'fn%1$d' : null;\n"
+                    + "    }\n"
+                    + "};\n", i));
+        }
+        syntheticJs = jsBuilder.toString().getBytes(StandardCharsets.UTF_8);
+
+        return syntheticJs;
+    }
+}
+
+
+/*
+License:
+- Any use of JscovTestUtil & JscovBrowserKind in source or object 
+  form must retain this copyright and license notice.
+- Use of the "software" implies your agreement with this license as a "licensee".
+
+Terms:
+- "licensee" is a person or entity, non-commercial or commercial.
+- "software" pertains to JscovTestUtil & JscovBrowserKind source-code, 
+  object-form, and/or documentation file(s).
+
+Warranty:
+-  This "software" is provided "as is", with no warranty expressed or 
+   implied, and no guarantee for accuracy or applicability to any purpose. 
+
+Copies:
+- Multiple copies of the "software" are permitted per licensee.
+
+Usage:
+- "software" may be used by a person or entity, non-commercial or commercial
+  royalty free.
+- "software" may be incorporated into commissioned other software as a 
+  as a class-path dependency royalty free and free of charge for distribution.
+
+Modification:
+- "software" source code may be modified for personal use only, but must
+  retain this license and original copyright notice.
+- any modification to the "software" must be clearly marked as such by 
+  by adding modifying-author's own copyright (next to the origin authors copyright).
+  -- i.e. "Copyright (c) <year> <modifying-author>. Modifying author."
+- Documentation may not be modified, the exception being Javadoc comments.
+
+Distribution:
+- The "software" is permitted to be re-distributed as an integrated component
+  for a clients project/package.
+- Copies may be provided to 'clients' "as is" for no fee.
+- "software" may not be re-licensed or sub-licensed.
+
+ */
@@ -0,0 +1,157 @@
+/* Copyright (c) 2019 dbradley.
+ */
+package testcases;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.jtestdb.selenium.jscov.JscovCoverageBinary;
+import org.jtestdb.selenium.jscov.JscovCoverageData;
+import org.jtestdb.selenium.jscov.JscovFileCoverage;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.NOT_CODE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * The lossless round-trip of JscovCoverageBinary (JSON to binary to JSON),
+ * and the report read taking the binary only while it is current.
+ *
+ * @author dbradley
+ */
+public class JscovCoverageBinaryTest {
+
+    @Test
+    public void jsonToBinaryToJson() throws IOException {
+        File reportDir = Files.createTempDirectory("jscovbinary").toFile();
+
+        JscovCoverageData coverageData = coverage(1);
+        coverageData.writeReport(reportDir);
+
+        File jsonFile = new File(reportDir, JscovCoverageData.REPORT_JSON_FILE_NAME);
+        File binaryFile = new File(reportDir, JscovCoverageBinary.REPORT_BINARY_FILE_NAME);
+        File roundTripFile = new File(reportDir, "roundtrip.json");
+
+        JscovCoverageBinary.jsonToBinary(jsonFile, binaryFile);
+        JscovCoverageBinary.binaryToJson(binaryFile, roundTripFile);
+
+        assertEquals(readFile(roundTripFile), readFile(jsonFile));
+        assertEquals(readFile(roundTripFile), coverageData.toJSON());
+        assertTrue(binaryFile.length() < jsonFile.length());
+
+        assertEquals(JscovCoverageBinary.readFile(binaryFile).toJSON(), coverageData.toJSON());
+    }
+
+    @Test
+    public void writeAndReadStream() throws IOException {
+        JscovCoverageData coverageData = coverage(3);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JscovCoverageBinary.write(coverageData, out);
+
+        JscovCoverageData read = JscovCoverageBinary.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(read.toJSON(), coverageData.toJSON());
+
+        JscovFileCoverage nullBranches = read.getFileCoverage("/js/branches.js");
+
+        assertEquals(nullBranches.getBranchData().get(1), new int[]{NOT_CODE, 0, 0, 0, NOT_CODE, 0, 0, 0});
+        assertEquals(nullBranches.getBranchData().get(50000),
+                new int[]{NOT_CODE, 0, 0, 0, 12, 4, 70 + 3, 0});
+    }
+
+    @Test
+    public void readReportTakesCurrentBinaryOnly() throws IOException {
+        File reportDir = Files.createTempDirectory("jscovbinary").toFile();
+
+        File jsonFile = new File(reportDir, JscovCoverageData.REPORT_JSON_FILE_NAME);
+        File binaryFile = new File(reportDir, JscovCoverageBinary.REPORT_BINARY_FILE_NAME);
+
+        JscovCoverageData binaryData = coverage(1);
+        binaryData.writeReport(reportDir);
+        JscovCoverageBinary.jsonToBinary(jsonFile, binaryFile);
+
+        long binaryJsonLength = jsonFile.length();
+        long binaryJsonModified = jsonFile.lastModified();
+
+        assertEquals(JscovCoverageData.readReport(reportDir).toJSON(), binaryData.toJSON());
+
+        // the JSON re-written (as by a JSCover store) within the same second
+        // with counts of the same digits, so of the same length and
+        // last-modified time, the binary is out of date by its hash
+        JscovCoverageData rewrittenData = coverage(2);
+        rewrittenData.writeReport(reportDir);
+        jsonFile.setLastModified(binaryJsonModified);
+
+        assertEquals(jsonFile.length(), binaryJsonLength);
+        assertEquals(jsonFile.lastModified(), binaryJsonModified);
+        assertEquals(JscovCoverageBinary.readFile(binaryFile).toJSON(), binaryData.toJSON());
+        assertEquals(JscovCoverageData.readReport(reportDir).toJSON(), rewrittenData.toJSON());
+
+        // the JSON re-written of another length
+        JscovCoverageData longerData = coverage(1000);
+        longerData.writeReport(reportDir);
+
+        assertEquals(JscovCoverageData.readReport(reportDir).toJSON(), longerData.toJSON());
+
+        // the binary alone (a compacted report) is read
+        JscovCoverageBinary.jsonToBinary(jsonFile, binaryFile);
+        jsonFile.delete();
+
+        assertEquals(JscovCoverageData.readReport(reportDir).toJSON(), longerData.toJSON());
+    }
+
+    /**
+     * Coverage of each kind the binary encodes differently: NOT_CODE
+     * entries (some, none and all), hit-only counters (every count 0 or
+     * 1), large counts and deltas between adjacent counts, null branch
+     * conditions and distant branch lines, and empty arrays.
+     *
+     * @param countOffset added to the (not hit-only) counts, of the same
+     * number of digits for 1 to 9
+     *
+     * @return the coverage
+     */
+    private static JscovCoverageData coverage(int countOffset) {
+        JscovCoverageData coverageData = new JscovCoverageData();
+
+        coverageData.add(new JscovFileCoverage("/js/notcode.js",
+                new int[]{NOT_CODE, 20 + countOffset, NOT_CODE, NOT_CODE, 0, 50 + countOffset, NOT_CODE},
+                new int[]{countOffset, 0}, null));
+
+        coverageData.add(new JscovFileCoverage("/js/allcode.js",
+                new int[]{0, 1, 20 + countOffset, 30 + countOffset, 1000 + countOffset},
+                new int[0], null));
+
+        coverageData.add(new JscovFileCoverage("/js/nocode.js",
+                new int[]{NOT_CODE, NOT_CODE, NOT_CODE}, new int[0], null));
+
+        coverageData.add(new JscovFileCoverage("/js/hitonly.js",
+                new int[]{NOT_CODE, 1, 0, 1, 1, NOT_CODE, 0}, new int[]{1, 0, 1}, null));
+
+        coverageData.add(new JscovFileCoverage("/js/large.js",
+                new int[]{0, Integer.MAX_VALUE, 0, 2000000000, 1, Integer.MAX_VALUE - countOffset, NOT_CODE, 7},
+                new int[]{Integer.MAX_VALUE, 0}, null));
+
+        SortedMap<Integer, int[]> branchData = new TreeMap<>();
+        branchData.put(1, new int[]{NOT_CODE, 0, 0, 0, NOT_CODE, 0, 0, 0});
+        branchData.put(3, new int[]{25, 8, countOffset, 20 + countOffset, NOT_CODE, 0, 0, 0, 40, 2, 0, 0});
+        branchData.put(50000, new int[]{NOT_CODE, 0, 0, 0, 12, 4, 70 + countOffset, 0});
+
+        coverageData.add(new JscovFileCoverage("/js/branches.js",
+                new int[]{NOT_CODE, countOffset, NOT_CODE, 40 + countOffset}, new int[]{countOffset}, branchData));
+
+        coverageData.add(new JscovFileCoverage("/js/empty.js", new int[0], new int[0], null));
+
+        return coverageData;
+    }
+
+    private static String readFile(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
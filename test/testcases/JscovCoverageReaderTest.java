@@ -0,0 +1,113 @@
+/* Copyright (c) 2019 dbradley.
+ */
+package testcases;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.jtestdb.selenium.jscov.JscovCoverageData;
+import org.jtestdb.selenium.jscov.JscovCoverageReader;
+import org.jtestdb.selenium.jscov.JscovFileCoverage;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.NOT_CODE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import org.testng.annotations.Test;
+
+/**
+ * The streaming JscovCoverageReader reads as JscovCoverageData.readJSON
+ * does: escaped strings, '\\u' sequences, unknown fields skipped, and a
+ * value crossing the boundary of the mapped windows.
+ *
+ * @author dbradley
+ */
+public class JscovCoverageReaderTest {
+
+    /**
+     * Coverage JSON with escaped URIs (quote, back-slash, slash, tab, '\\u'
+     * sequences and a raw multi-byte character), unknown fields of each
+     * kind of value (string with JSON syntax characters, number, boolean,
+     * null, nested array and object) at the file and condition level, and
+     * white-space between the tokens.
+     */
+    private final static String COVERAGE_JSON
+            = "{\n"
+            + "  \"/js/q\\\"uote.js\" : {\"lineData\":[null,1,0,12345678],"
+            + "\"src\":\"var s = '}]\\\\\\\"[{';\",\"functionData\":[3]},\n"
+            + "  \"\\/js\\\\back\\tslash.js\":{\"lineData\":[ null , 2 ],"
+            + "\"extra\":{\"a\":[1,{\"b\":null},[true,false]],\"c\":-1.5e3},"
+            + "\"branchData\":{\"3\":[null,{\"position\":7,\"src\":\"x > 0\",\"nodeLength\":5,"
+            + "\"evalFalse\":2,\"evalTrue\":0,\"more\":{\"d\":[]}}],\"10\":[]}},\n"
+            + "  \"/js/\\u00e9t\\u00E9\\u4e2d.js\":{\"lineData\":[]},\n"
+            + "  \"/js/\u00e9\u4e2d-raw.js\":{\"lineData\":[0,null],\"functionData\":[],\"branchData\":{}},\n"
+            + "  \"/js/empty.js\":{}\n"
+            + "}\n";
+
+    @Test
+    public void readerMatchesReadJson() throws IOException {
+        File jsonFile = writeJson(COVERAGE_JSON);
+
+        JscovCoverageData expected = JscovCoverageData.readJSON(new StringReader(COVERAGE_JSON));
+        JscovCoverageData read = JscovCoverageReader.readAll(jsonFile);
+
+        assertEquals(read.size(), 5);
+        assertEquals(read.toJSON(), expected.toJSON());
+
+        JscovFileCoverage quoteCoverage = read.getFileCoverage("/js/q\"uote.js");
+
+        assertNotNull(quoteCoverage);
+        assertEquals(quoteCoverage.getLineData(), new int[]{NOT_CODE, 1, 0, 12345678});
+        assertEquals(quoteCoverage.getFunctionData(), new int[]{3});
+
+        JscovFileCoverage backCoverage = read.getFileCoverage("/js\\back\tslash.js");
+
+        assertNotNull(backCoverage);
+        assertEquals(backCoverage.getBranchData().get(3), new int[]{NOT_CODE, 0, 0, 0, 7, 5, 2, 0});
+        assertEquals(backCoverage.getBranchData().get(10), new int[0]);
+
+        assertNotNull(read.getFileCoverage("/js/\u00e9t\u00e9\u4e2d.js"));
+        assertNotNull(read.getFileCoverage("/js/\u00e9\u4e2d-raw.js"));
+    }
+
+    @Test
+    public void readerMatchesReadJsonAcrossWindows() throws IOException {
+        File jsonFile = writeJson(COVERAGE_JSON);
+        String expectedJson = JscovCoverageData.readJSON(new StringReader(COVERAGE_JSON)).toJSON();
+
+        // every window size up to past the length of the longest token, so
+        // each token (and multi-byte character) crosses a window boundary
+        for (int windowSize = 1; windowSize <= 40; windowSize++) {
+            JscovCoverageData read = new JscovCoverageData();
+
+            try (JscovCoverageReader reader = new JscovCoverageReader(jsonFile, windowSize)) {
+                while (reader.hasNext()) {
+                    read.add(reader.next());
+                }
+            }
+            assertEquals(read.toJSON(), expectedJson, "window size " + windowSize);
+        }
+    }
+
+    @Test
+    public void readerOfEmptyCoverage() throws IOException {
+        File jsonFile = writeJson(" { } ");
+
+        try (JscovCoverageReader reader = new JscovCoverageReader(jsonFile, 2)) {
+            assertEquals(reader.hasNext(), false);
+        }
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void readerOfNotCoverageJson() throws IOException {
+        JscovCoverageReader.readAll(writeJson("{\"/js/a.js\":{\"lineData\":[1,}}"));
+    }
+
+    private static File writeJson(String json) throws IOException {
+        File jsonFile = File.createTempFile("jscoverage", ".json");
+        jsonFile.deleteOnExit();
+
+        Files.write(jsonFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return jsonFile;
+    }
+}
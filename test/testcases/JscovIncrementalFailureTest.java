@@ -0,0 +1,147 @@
+/* Copyright (c) 2019 dbradley.
+ */
+package testcases;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.jtestdb.selenium.jscov.JscovCoverageData;
+import org.jtestdb.selenium.jscov.JscovTestUtil;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+import org.testng.annotations.Test;
+
+/**
+ * The incremental store written in the background (direct and async
+ * report): a write that fails has its delta included in the next store, no
+ * code-coverage of it is lost.
+ * <p>
+ * The web-page is a stand-in WebDriver (of one JS-file, one line counted)
+ * answering the coverage read of JscovTestUtil as an instrumented web-page
+ * does&#46; The write is failed by a directory in place of the report
+ * 'jscoverage.json'.
+ *
+ * @author dbradley
+ */
+public class JscovIncrementalFailureTest {
+
+    private final static int PROXY_PORT = 3132;
+
+    private final static String JS_FILE_URI = "/js/inc.js";
+
+    @Test
+    public void failedAsyncWriteIsInNextStore() throws IOException {
+        JscovTestUtil proxySvr = new JscovTestUtil(PROXY_PORT,
+                "incfail",
+                String.format("%s/test/dpends/jscoverInst",
+                        System.getProperty("user.dir")));
+
+        proxySvr.removeAllReports();
+
+        proxySvr.setOnCodeCoverage()
+                .setOnDirectReport()
+                .setOnIncrementalReport()
+                .setOnAsyncReport()
+                .startProxyServer();
+
+        File reportDir = new File(String.format(
+                "%s/test/dpends/jscoverInst/reports/incfail",
+                System.getProperty("user.dir")));
+        File blockerDir = new File(reportDir, "jscoverage.json");
+
+        StandInPage page = new StandInPage();
+        try {
+            proxySvr.overrideWebDriveForJSCoverProxy(page.webDriver());
+
+            // the write of the store fails in the background
+            assertTrue(new File(blockerDir, "blocker").mkdirs());
+
+            page.execute(7);
+            proxySvr.storeJscoverReport(30);
+
+            expectThrows(RuntimeException.class, proxySvr::flush);
+
+            assertTrue(new File(blockerDir, "blocker").delete());
+            assertTrue(blockerDir.delete());
+
+            // the next store includes the delta of the failed write
+            page.execute(2);
+            proxySvr.storeJscoverReport(30);
+            proxySvr.flush();
+
+        } finally {
+            proxySvr.stopProxyServer(30);
+        }
+        JscovCoverageData reportData = JscovCoverageData.readReport(reportDir);
+
+        assertEquals(reportData.getFileCoverage(JS_FILE_URI).getLineData()[1], 9);
+    }
+
+    /**
+     * An instrumented web-page of one JS-file with one line counted, as a
+     * WebDriver (and JavascriptExecutor) answering the coverage read of
+     * JscovTestUtil (one chunk).
+     */
+    private static final class StandInPage implements InvocationHandler {
+
+        private int lineCount = 0;
+
+        WebDriver webDriver() {
+            return (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, this);
+        }
+
+        synchronized void execute(int times) {
+            this.lineCount += times;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "executeScript":
+                    return ((String) args[0]).contains("_$jscoverage") ? coverageChunk() : null;
+
+                case "manage":
+                    return answerAll(WebDriver.Options.class, answerAll(WebDriver.Timeouts.class, null));
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+
+                case "equals":
+                    return proxy == args[0];
+
+                case "toString":
+                    return "StandInPage";
+
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * The coverage packed as one chunk, [origin, fileCount,
+         * nextFileIndex, nextLineOffset, entry].
+         */
+        private Object coverageChunk() {
+            return Arrays.asList("http://localhost:1", 1L, 1L, 0L,
+                    Arrays.asList(JS_FILE_URI, 0L, 2L, "," + this.lineCount, "0:", ""));
+        }
+
+        /**
+         * A stand-in answering every method with itself (a cascade) or
+         * another.
+         */
+        private static Object answerAll(Class<?> type, Object other) {
+            return Proxy.newProxyInstance(StandInPage.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> other != null && method.getReturnType().isInstance(other)
+                            ? other : method.getReturnType().isInstance(proxy) ? proxy : null);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/* Copyright (c) 2019 dbradley.
+ */
+package testcases;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.jtestdb.selenium.jscov.JscovCoverageData;
+import org.jtestdb.selenium.jscov.JscovTestUtil;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * The manifest of the reports directory: the time-stamp reports are known
+ * from it, the reports directory is listed only once modified since the
+ * manifest was last reconciled with it.
+ *
+ * @author dbradley
+ */
+public class JscovReportManifestTest {
+
+    private final static String JS_FILE_URI = "/js/a.js";
+
+    private final static String RUN_1 = "jscov20190301_101010_100";
+
+    private final static String RUN_2 = "jscov20190302_101010_100";
+
+    private final static String RUN_3 = "jscov20190303_101010_100";
+
+    @Test
+    public void steadyStateDoesNotListReportsDir() throws IOException {
+        File jscoverDir = Files.createTempDirectory("jscovmanifest").toFile();
+        File reportsDir = new File(jscoverDir, "reports/manifest");
+
+        assertTrue(new File(reportsDir, RUN_1).mkdirs());
+        assertTrue(new File(reportsDir, RUN_2).mkdirs());
+
+        JscovTestUtil jscovTestUtil = new JscovTestUtil(3129, "manifest", jscoverDir.getPath());
+
+        // the manifest is started (and reconciled) as of a reports
+        // directory modified a while ago
+        long settledMsecs = System.currentTimeMillis() - 60000;
+
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_2);
+        assertTrue(reportsDir.setLastModified(settledMsecs));
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_2);
+
+        // a run that leaves the reports directory as last reconciled is not
+        // seen, the reports directory is not listed
+        assertTrue(new File(reportsDir, RUN_3).mkdirs());
+        assertTrue(reportsDir.setLastModified(settledMsecs));
+
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_2);
+
+        // modified, it is listed
+        assertTrue(reportsDir.setLastModified(settledMsecs + 1000));
+
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_3);
+    }
+
+    @Test
+    public void steadyStateMergeDoesNotListReportsDir() throws IOException {
+        File jscoverDir = Files.createTempDirectory("jscovmanifest").toFile();
+        File reportsDir = new File(jscoverDir, "reports/manifest");
+
+        writeReport(new File(reportsDir, RUN_1), 1);
+        writeReport(new File(reportsDir, RUN_2), 2);
+
+        JscovTestUtil jscovTestUtil = new JscovTestUtil(3129, "manifest", jscoverDir.getPath());
+
+        long settledMsecs = System.currentTimeMillis() - 60000;
+
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_2);
+        assertTrue(reportsDir.setLastModified(settledMsecs));
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_2);
+
+        // the runs merged are those of the manifest, not listed
+        writeReport(new File(reportsDir, RUN_3), 4);
+        assertTrue(reportsDir.setLastModified(settledMsecs));
+
+        JscovCoverageData merged = jscovTestUtil.mergeTimeStampReports("merged");
+
+        assertEquals(merged.getFileCoverage(JS_FILE_URI).getLineData()[1], 3);
+
+        // the merged report modified the reports directory, it is listed
+        merged = jscovTestUtil.mergeTimeStampReports("merged");
+
+        assertEquals(merged.getFileCoverage(JS_FILE_URI).getLineData()[1], 7);
+    }
+
+    @Test
+    public void removedRunIsReconciled() throws IOException {
+        File jscoverDir = Files.createTempDirectory("jscovmanifest").toFile();
+        File reportsDir = new File(jscoverDir, "reports/manifest");
+
+        assertTrue(new File(reportsDir, RUN_1).mkdirs());
+        assertTrue(new File(reportsDir, RUN_2).mkdirs());
+
+        JscovTestUtil jscovTestUtil = new JscovTestUtil(3129, "manifest", jscoverDir.getPath());
+
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_2);
+
+        // removed by hand, the last run of the manifest misses
+        assertTrue(new File(reportsDir, RUN_2).delete());
+
+        assertEquals(jscovTestUtil.getLastTimeStampReport(), RUN_1);
+    }
+
+    private static void writeReport(File reportDir, int lineCount) throws IOException {
+        assertTrue(reportDir.mkdirs());
+
+        Files.write(new File(reportDir, "jscoverage.json").toPath(), String.format(
+                "{\"%s\":{\"lineData\":[null,%d],\"functionData\":[],\"branchData\":{}}}",
+                JS_FILE_URI, lineCount).getBytes(StandardCharsets.UTF_8));
+    }
+}
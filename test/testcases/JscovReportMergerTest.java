@@ -0,0 +1,148 @@
+/* Copyright (c) 2019 dbradley.
+ */
+package testcases;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.jtestdb.selenium.jscov.JscovCoverageData;
+import org.jtestdb.selenium.jscov.JscovFileCoverage;
+import org.jtestdb.selenium.jscov.JscovReportMerger;
+import static org.jtestdb.selenium.jscov.JscovFileCoverage.NOT_CODE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * The merge of JSCover reports by JscovReportMerger: counters summed,
+ * JS-files present in some of the reports only, and the original JS-files
+ * and viewer files copied, from report directories and archived reports.
+ *
+ * @author dbradley
+ */
+public class JscovReportMergerTest {
+
+    @Test
+    public void mergeSumsCounters() throws IOException {
+        File baseDir = Files.createTempDirectory("jscovmerge").toFile();
+
+        File report1Dir = new File(baseDir, "run1");
+        File report2Dir = new File(baseDir, "run2");
+
+        writeReport(report1Dir, fileCoverage("/js/a.js", new int[]{NOT_CODE, 1, 0}, 2, 1, 0));
+        writeReport(report2Dir, fileCoverage("/js/a.js", new int[]{NOT_CODE, 2, 3}, 1, 0, 4));
+
+        JscovCoverageData merged = new JscovReportMerger()
+                .addReportDirs(Arrays.asList(report1Dir, report2Dir))
+                .merge();
+
+        JscovFileCoverage aCoverage = merged.getFileCoverage("/js/a.js");
+
+        assertNotNull(aCoverage);
+        assertEquals(aCoverage.getLineData(), new int[]{NOT_CODE, 3, 3});
+        assertEquals(aCoverage.getFunctionData(), new int[]{3});
+        assertEquals(aCoverage.getBranchData().get(2), new int[]{5, 3, 1, 4, NOT_CODE, 0, 0, 0});
+    }
+
+    @Test
+    public void mergeFilesOfSomeReports() throws IOException {
+        File baseDir = Files.createTempDirectory("jscovmerge").toFile();
+
+        File report1Dir = new File(baseDir, "run1");
+        File report2Dir = new File(baseDir, "run2");
+        File emptyDir = new File(baseDir, "run3");
+
+        writeReport(report1Dir, fileCoverage("/js/a.js", new int[]{NOT_CODE, 1}, 1, 0, 0));
+        writeReport(report2Dir, fileCoverage("/js/b.js", new int[]{4, NOT_CODE}, 0, 1, 1));
+        emptyDir.mkdirs();
+
+        JscovCoverageData merged = new JscovReportMerger(2)
+                .addReportDirs(Arrays.asList(report1Dir, report2Dir, emptyDir))
+                .merge();
+
+        assertEquals(merged.size(), 2);
+        assertEquals(merged.getFileCoverage("/js/a.js").getLineData(), new int[]{NOT_CODE, 1});
+        assertEquals(merged.getFileCoverage("/js/b.js").getLineData(), new int[]{4, NOT_CODE});
+        assertNull(merged.getFileCoverage("/js/c.js"));
+    }
+
+    @Test
+    public void mergeIntoCopiesSourcesAndViewerFiles() throws IOException {
+        File baseDir = Files.createTempDirectory("jscovmerge").toFile();
+
+        File report1Dir = new File(baseDir, "run1");
+        File report2Dir = new File(baseDir, "run2");
+        File mergedDir = new File(baseDir, "merged");
+
+        // a report directory
+        writeReport(report1Dir, fileCoverage("/js/a.js", new int[]{NOT_CODE, 1}, 1, 1, 0));
+        writeFile(new File(report1Dir, "original-src/js/a.js"), "var a = 1;\n");
+
+        // an archived report, its directory packed into 'run2.zip'
+        JscovCoverageData report2Data = new JscovCoverageData();
+        report2Data.add(fileCoverage("/js/a.js", new int[]{NOT_CODE, 2}, 1, 0, 1));
+        report2Data.add(fileCoverage("/js/b.js", new int[]{1}, 0, 0, 0));
+
+        try (ZipOutputStream zipOut = new ZipOutputStream(
+                Files.newOutputStream(new File(baseDir, "run2.zip").toPath()))) {
+            putEntry(zipOut, JscovCoverageData.REPORT_JSON_FILE_NAME, report2Data.toJSON());
+            putEntry(zipOut, "jscoverage.html", "<html>viewer</html>");
+            putEntry(zipOut, "original-src/js/b.js", "var b = 2;\n");
+        }
+        JscovCoverageData merged = new JscovReportMerger()
+                .addReportDirs(Arrays.asList(report1Dir, report2Dir))
+                .mergeInto(mergedDir);
+
+        assertEquals(merged.getFileCoverage("/js/a.js").getLineData(), new int[]{NOT_CODE, 3});
+        assertEquals(merged.getFileCoverage("/js/b.js").getLineData(), new int[]{1});
+
+        assertEquals(readFile(new File(mergedDir, "original-src/js/a.js")), "var a = 1;\n");
+        assertEquals(readFile(new File(mergedDir, "original-src/js/b.js")), "var b = 2;\n");
+        assertEquals(readFile(new File(mergedDir, "jscoverage.html")), "<html>viewer</html>");
+
+        JscovCoverageData written = JscovCoverageData.readReport(mergedDir);
+
+        assertEquals(written.toJSON(), merged.toJSON());
+        assertTrue(new File(baseDir, "run2.zip").isFile());
+    }
+
+    private static JscovFileCoverage fileCoverage(String uri, int[] lineData, int functionCount,
+            int evalFalse, int evalTrue) {
+        SortedMap<Integer, int[]> branchData = new TreeMap<>();
+        branchData.put(2, new int[]{5, 3, evalFalse, evalTrue, NOT_CODE, 0, 0, 0});
+
+        return new JscovFileCoverage(uri, lineData, new int[]{functionCount}, branchData);
+    }
+
+    private static void writeReport(File reportDir, JscovFileCoverage fileCoverage) {
+        JscovCoverageData reportData = new JscovCoverageData();
+        reportData.add(fileCoverage);
+
+        reportDir.mkdirs();
+        reportData.writeReport(reportDir);
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readFile(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static void putEntry(ZipOutputStream zipOut, String name, String content)
+            throws IOException {
+        zipOut.putNextEntry(new ZipEntry(name));
+        zipOut.write(content.getBytes(StandardCharsets.UTF_8));
+        zipOut.closeEntry();
+    }
+}
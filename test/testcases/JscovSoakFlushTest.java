@@ -0,0 +1,223 @@
+/* Copyright (c) 2019 dbradley.
+ */
+package testcases;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.jtestdb.selenium.jscov.JscovCoverageData;
+import org.jtestdb.selenium.jscov.JscovTestUtil;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * The soak flush interleaved with stores by the proxy-server: the report
+ * written by a flush (in the background) and the report JSCover re-writes
+ * for a store are the same 'jscoverage.json', no code-coverage of either
+ * is to be lost.
+ * <p>
+ * The web-page is a stand-in WebDriver (of one JS-file, one line counted)
+ * answering the scripts of JscovTestUtil as an instrumented web-page does,
+ * its store posting to the JSCover proxy-server.
+ *
+ * @author dbradley
+ */
+public class JscovSoakFlushTest {
+
+    private final static int PROXY_PORT = 3131;
+
+    private final static String JS_FILE_URI = "/js/soak.js";
+
+    private final static int BULK_FILE_COUNT = 40;
+
+    private final static int BULK_LINE_COUNT = 5000;
+
+    @Test
+    public void soakFlushWithProxyStores() {
+        JscovTestUtil proxySvr = new JscovTestUtil(PROXY_PORT,
+                "soakflush",
+                String.format("%s/test/dpends/jscoverInst",
+                        System.getProperty("user.dir")));
+
+        proxySvr.removeAllReports();
+
+        proxySvr.setOnCodeCoverage()
+                .setSoakFlushSchedule(1, 30)
+                .setOnSoakFlush()
+                .startProxyServer();
+
+        StandInPage page = new StandInPage(
+                String.format("http://localhost:%d/jscoverage-store", PROXY_PORT));
+        try {
+            proxySvr.overrideWebDriveForJSCoverProxy(page.webDriver());
+
+            // each store (and reset) by the proxy-server, while the flushes
+            // of the schedule take and write the coverage in between
+            long endMsecs = System.currentTimeMillis() + 8000;
+
+            while (System.currentTimeMillis() < endMsecs) {
+                page.execute(7);
+                proxySvr.resetCoverage(true, 30);
+                page.execute(3);
+                pause(50);
+            }
+            page.execute(11);
+
+        } finally {
+            proxySvr.stopProxyServer(30);
+            proxySvr.flush();
+        }
+        assertTrue(proxySvr.getSoakFlushCount() > 0, "no soak flush");
+
+        File reportDir = new File(String.format(
+                "%s/test/dpends/jscoverInst/reports/soakflush",
+                System.getProperty("user.dir")));
+        JscovCoverageData reportData = JscovCoverageData.readReport(reportDir);
+
+        assertEquals(reportData.getFileCoverage(JS_FILE_URI).getLineData()[1],
+                page.getExecutedCount());
+    }
+
+    private static void pause(long msecs) {
+        try {
+            Thread.sleep(msecs);
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An instrumented web-page of one JS-file with one line counted, as a
+     * WebDriver (and JavascriptExecutor) answering the take, reset and
+     * store scripts of JscovTestUtil; each answer is one turn of the
+     * web-page.
+     */
+    private static final class StandInPage implements InvocationHandler {
+
+        private final static Pattern REPORT_DIR_PATTERN
+                = Pattern.compile("jscoverage_report\\('([^']*)'");
+
+        private final String storeUrl;
+
+        private int lineCount = 0;
+
+        private int executedCount = 0;
+
+        StandInPage(String storeUrl) {
+            this.storeUrl = storeUrl;
+        }
+
+        WebDriver webDriver() {
+            return (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, this);
+        }
+
+        synchronized void execute(int times) {
+            this.lineCount += times;
+            this.executedCount += times;
+        }
+
+        synchronized int getExecutedCount() {
+            return this.executedCount;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws IOException {
+            switch (method.getName()) {
+                case "executeScript":
+                    return executeScript((String) args[0]);
+
+                case "executeAsyncScript":
+                    return store((String) args[0]);
+
+                case "manage":
+                    return answerAll(WebDriver.Options.class, answerAll(WebDriver.Timeouts.class, null));
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+
+                case "equals":
+                    return proxy == args[0];
+
+                case "toString":
+                    return "StandInPage";
+
+                default:
+                    return null;
+            }
+        }
+
+        private Object executeScript(String script) {
+            if (script.contains("jscoverage_serializeCoverageToJSON")) {
+                // take and reset
+                String coverageJson = coverageJson();
+                this.lineCount = 0;
+
+                return Arrays.asList("http://localhost:1", coverageJson);
+            }
+            if (script.contains("zeroCounts")) {
+                // reset
+                this.lineCount = 0;
+                return true;
+            }
+            return null;
+        }
+
+        private Object store(String script) throws IOException {
+            Matcher reportDirMatcher = REPORT_DIR_PATTERN.matcher(script);
+            String reportDir = reportDirMatcher.find() ? reportDirMatcher.group(1) : "";
+
+            HttpURLConnection storeConnection = (HttpURLConnection) new URL(
+                    reportDir.isEmpty() ? this.storeUrl : this.storeUrl + "/" + reportDir)
+                    .openConnection();
+
+            storeConnection.setRequestMethod("POST");
+            storeConnection.setDoOutput(true);
+
+            try (OutputStream storeOut = storeConnection.getOutputStream()) {
+                storeOut.write(coverageJson().getBytes(StandardCharsets.UTF_8));
+            }
+            return (long) storeConnection.getResponseCode();
+        }
+
+        private String coverageJson() {
+            StringBuilder coverageJson = new StringBuilder(String.format(
+                    "{\"%s\":{\"lineData\":[null,%d],\"functionData\":[],\"branchData\":{}}",
+                    JS_FILE_URI, this.lineCount));
+
+            // JS-files of no interest, of a size the report (its merge and
+            // write) takes a while
+            for (int i = 0; i < BULK_FILE_COUNT; i++) {
+                coverageJson.append(String.format(",\"/js/bulk%d.js\":{\"lineData\":[null", i));
+                for (int j = 0; j < BULK_LINE_COUNT; j++) {
+                    coverageJson.append(",1");
+                }
+                coverageJson.append("],\"functionData\":[],\"branchData\":{}}");
+            }
+            return coverageJson.append('}').toString();
+        }
+
+        /**
+         * A stand-in answering every method with itself (a cascade) or
+         * another.
+         */
+        private static Object answerAll(Class<?> type, Object other) {
+            return Proxy.newProxyInstance(StandInPage.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> other != null && method.getReturnType().isInstance(other)
+                            ? other : method.getReturnType().isInstance(proxy) ? proxy : null);
+        }
+    }
+}